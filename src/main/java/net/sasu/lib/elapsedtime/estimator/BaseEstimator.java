@@ -9,9 +9,17 @@ import net.sasu.lib.time.stopwatch.state.StopwatchState;
 import org.apache.commons.lang3.time.DurationFormatUtils;
 import org.apache.commons.math3.fraction.BigFraction;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.time.Duration;
 import java.time.InstantSource;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongUnaryOperator;
 
 /**
  * A base abstract class for time estimation implementations that provides common functionality
@@ -21,6 +29,14 @@ import java.util.Objects;
  * <p>The estimator keeps track of total work units, completed work units, and elapsed time
  * using a stopwatch. It can calculate remaining time based on work progress and elapsed time.</p>
  *
+ * <p>Work units may be completed from any amount of threads concurrently: completions are
+ * applied atomically, so no work units are lost and the completed work units never exceed
+ * the total as long as the total is not decreased. The total, the rate history and the
+ * estimates may be updated and read concurrently with completions as well. This holds for the
+ * estimators of this package; subclasses which keep state of their own must guard it themselves,
+ * typically by learning from completions in {@link #workUnitsApplied(long)} and changing the
+ * total through {@link #updateTotalWorkUnits(LongUnaryOperator)}.</p>
+ *
  * @param <EstimatorType> The specific type of estimator extending this base class
  * @param <StopwatchType> The type of stopwatch used for time tracking
  *
@@ -31,11 +47,41 @@ public abstract class BaseEstimator<
         StopwatchType extends StopwatchInterface<StopwatchType>
         > implements Estimator<EstimatorType, StopwatchType> {
 
-    private long totalWorkUnits;
-    private long completedWorkUnits;
+    private volatile long totalWorkUnits;
+    private volatile long completedWorkUnits;
+
+    // the point of progress the rate is measured from, replaced as a whole so readers never see half of it
+    private volatile RateBaseline rateBaseline = RateBaseline.NONE;
 
     StopwatchType stopwatch;
 
+    private final List<ProgressListener> progressListeners = new CopyOnWriteArrayList<>();
+    private final ProgressWaiters progressWaiters = new ProgressWaiters();
+    private final ReentrantLock totalLock = new ReentrantLock();
+
+    // incremented whenever the state an estimate depends on changes
+    private final AtomicLong stateVersion = new AtomicLong();
+    private volatile EstimateCache estimateCache;
+
+    // the stall event begun at the previous completion, only while the event is enabled
+    private volatile EstimatorStallEvent pendingStallEvent;
+    // whether a check of the pending stall event is scheduled on the shared timer wheel
+    private final AtomicBoolean stallCheckScheduled = new AtomicBoolean();
+
+    private static final VarHandle COMPLETED_WORK_UNITS;
+    private static final VarHandle PENDING_STALL_EVENT;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            COMPLETED_WORK_UNITS = lookup.findVarHandle(BaseEstimator.class, "completedWorkUnits", long.class);
+            PENDING_STALL_EVENT = lookup
+                    .findVarHandle(BaseEstimator.class, "pendingStallEvent", EstimatorStallEvent.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
     /**
      * Constructs a new BaseEstimator with the specified stopwatch.
      *
@@ -66,7 +112,8 @@ public abstract class BaseEstimator<
     }
 
     /**
-     * Records the completion of work units and updates the progress.
+     * Records the completion of work units and updates the progress. May be called from any
+     * amount of threads concurrently.
      *
      * @param workUnitsCompleted The amount of work units that were completed
      * @throws IllegalArgumentException if workUnitsCompleted is negative
@@ -78,13 +125,23 @@ public abstract class BaseEstimator<
             throw new IllegalArgumentException("workUnitsCompleted may not be negative");
         }
 
-        long remainingWorkUnits = getRemainingWorkUnits();
-        if (workUnitsCompleted > remainingWorkUnits) {
-            throw new IllegalStateException(
-                    "More work than available completed. Remaining work units: " + remainingWorkUnits);
-        }
+        long completed;
+        do {
+            completed = completedWorkUnits;
+            long remainingWorkUnits = totalWorkUnits - completed;
+            if (workUnitsCompleted > remainingWorkUnits) {
+                throw new IllegalStateException(
+                        "More work than available completed. Remaining work units: " + remainingWorkUnits);
+            }
+        } while (!COMPLETED_WORK_UNITS.compareAndSet(this, completed, completed + workUnitsCompleted));
+        workUnitsApplied(workUnitsCompleted);
+        invalidateEstimate();
+        releaseWaiters();
+        recordCheckpointEvents(workUnitsCompleted);
 
-        completedWorkUnits += workUnitsCompleted;
+        for (ProgressListener progressListener : progressListeners) {
+            progressListener.workUnitsCompleted(this, workUnitsCompleted);
+        }
     }
 
     /**
@@ -96,7 +153,282 @@ public abstract class BaseEstimator<
         if(totalWorkUnits < 0){
             throw new IllegalArgumentException("totalWorkUnits may not be negative");
         }
-        this.totalWorkUnits = totalWorkUnits;
+        updateTotalWorkUnits(previous -> totalWorkUnits);
+    }
+
+    /**
+     * Atomically replaces the total amount of work units with the result of the given function.
+     * The function is applied while holding the lock ordering all changes of the total, so
+     * subclasses can read-modify-write the total, and update state derived from it, before the
+     * new total becomes visible to waiters and listeners.
+     *
+     * @param update The function calculating the new total from the previous one
+     * @return The new total amount of work units
+     * @throws IllegalArgumentException if the new total is negative
+     */
+    protected long updateTotalWorkUnits(LongUnaryOperator update) {
+        long totalWorkUnits;
+        totalLock.lock();
+        try {
+            totalWorkUnits = update.applyAsLong(this.totalWorkUnits);
+            if (totalWorkUnits < 0) {
+                throw new IllegalArgumentException("totalWorkUnits may not be negative");
+            }
+            // waiters must see the totals in the order they were set
+            this.totalWorkUnits = totalWorkUnits;
+            invalidateEstimate();
+            progressWaiters.totalChanged(totalWorkUnits, getCompletedWorkUnits());
+        } finally {
+            totalLock.unlock();
+        }
+
+        for (ProgressListener progressListener : progressListeners) {
+            progressListener.totalWorkUnitsChanged(this, totalWorkUnits);
+        }
+        return totalWorkUnits;
+    }
+
+    /**
+     * Registers a listener which is notified whenever work units are completed
+     * or the total amount of work units changes. Listeners are called synchronously
+     * on the thread updating the estimator, so they should return quickly.
+     *
+     * @param progressListener The listener to register
+     * @throws NullPointerException if progressListener is null
+     */
+    public void addProgressListener(ProgressListener progressListener) {
+        Objects.requireNonNull(progressListener);
+        this.progressListeners.add(progressListener);
+    }
+
+    /**
+     * Removes a previously registered progress listener.
+     *
+     * @param progressListener The listener to remove
+     * @return true if the listener was registered
+     */
+    public boolean removeProgressListener(ProgressListener progressListener) {
+        return this.progressListeners.remove(progressListener);
+    }
+
+    /**
+     * Blocks until all work units have been completed. If the total amount of work units changes
+     * while waiting, the new total is waited for.
+     *
+     * <p>Waiting threads are parked without holding any monitors, so this method may be called
+     * from virtual threads.</p>
+     *
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public void awaitCompletion() throws InterruptedException {
+        progressWaiters.await(this, 0, 1, -1);
+    }
+
+    /**
+     * Blocks until all work units have been completed or the timeout passes.
+     *
+     * @param timeout The maximum time to wait
+     * @return true if all work units were completed, false if the timeout passed
+     * @throws InterruptedException if the thread is interrupted while waiting
+     * @see #awaitCompletion()
+     */
+    public boolean awaitCompletion(Duration timeout) throws InterruptedException {
+        return progressWaiters.await(this, 0, 1, timeoutNanos(timeout));
+    }
+
+    /**
+     * Blocks until the given fraction of the total work units has been completed. If the total amount
+     * of work units changes while waiting, the fraction of the new total is waited for.
+     *
+     * @param fraction The fraction of work to wait for, between 0 and 1
+     * @throws IllegalArgumentException if fraction is not between 0 and 1
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public void awaitFraction(double fraction) throws InterruptedException {
+        progressWaiters.await(this, 0, validateFraction(fraction), -1);
+    }
+
+    /**
+     * Blocks until the given fraction of the total work units has been completed or the timeout passes.
+     *
+     * @param fraction The fraction of work to wait for, between 0 and 1
+     * @param timeout The maximum time to wait
+     * @return true if the fraction was completed, false if the timeout passed
+     * @throws IllegalArgumentException if fraction is not between 0 and 1
+     * @throws InterruptedException if the thread is interrupted while waiting
+     * @see #awaitFraction(double)
+     */
+    public boolean awaitFraction(double fraction, Duration timeout) throws InterruptedException {
+        return progressWaiters.await(this, 0, validateFraction(fraction), timeoutNanos(timeout));
+    }
+
+    /**
+     * Blocks until at least the given amount of work units has been completed.
+     *
+     * @param workUnits The amount of completed work units to wait for
+     * @throws IllegalArgumentException if workUnits is negative
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public void awaitUnits(long workUnits) throws InterruptedException {
+        progressWaiters.await(this, validateUnits(workUnits), Double.NaN, -1);
+    }
+
+    /**
+     * Blocks until at least the given amount of work units has been completed or the timeout passes.
+     *
+     * @param workUnits The amount of completed work units to wait for
+     * @param timeout The maximum time to wait
+     * @return true if the work units were completed, false if the timeout passed
+     * @throws IllegalArgumentException if workUnits is negative
+     * @throws InterruptedException if the thread is interrupted while waiting
+     * @see #awaitUnits(long)
+     */
+    public boolean awaitUnits(long workUnits, Duration timeout) throws InterruptedException {
+        return progressWaiters.await(this, validateUnits(workUnits), Double.NaN, timeoutNanos(timeout));
+    }
+
+    /**
+     * Called by {@link #completeWorkUnits(long)} once the completed work units have been applied, and
+     * before the estimate is invalidated and listeners are notified. Subclasses which learn from
+     * completions update their state here, so that only completions which were actually applied are
+     * learned from, and listeners see the updated state. May be called from any amount of threads
+     * concurrently. The default implementation does nothing.
+     *
+     * @param workUnitsCompleted The amount of work units that were completed
+     */
+    protected void workUnitsApplied(long workUnitsCompleted) {
+    }
+
+    /**
+     * Wakes up the threads waiting for the current amount of completed work units. Subclasses which
+     * track completed work units outside of {@link #completeWorkUnits(long)} must call this whenever
+     * the amount increases.
+     */
+    protected void releaseWaiters() {
+        long completed = getCompletedWorkUnits();
+        if (progressWaiters.isTargetReached(completed)) {
+            progressWaiters.release(completed);
+        }
+    }
+
+    /**
+     * Records the JFR checkpoint event and ends the stall event begun at the previous completion.
+     * While the events are disabled this costs no more than the enabled checks and a volatile read,
+     * and allocates nothing.
+     */
+    private void recordCheckpointEvents(long workUnitsCompleted) {
+        if (EstimatorCheckpointEvent.enabled()) {
+            EstimatorCheckpointEvent checkpointEvent = new EstimatorCheckpointEvent();
+            checkpointEvent.estimator = eventEstimatorName();
+            checkpointEvent.workUnitsCompleted = workUnitsCompleted;
+            checkpointEvent.completedWorkUnits = getCompletedWorkUnits();
+            checkpointEvent.totalWorkUnits = getTotalWorkUnits();
+            // reads the stopwatch, so only done for events which pass the recording's filters
+            if (checkpointEvent.shouldCommit()) {
+                checkpointEvent.workUnitsPerSecond = workUnitsPerSecond(checkpointEvent.completedWorkUnits);
+                checkpointEvent.commit();
+            }
+        }
+
+        if (pendingStallEvent != null) {
+            EstimatorStallEvent stallEvent = (EstimatorStallEvent) PENDING_STALL_EVENT.getAndSet(this, null);
+            if (stallEvent != null) {
+                stallEvent.end();
+                if (stallEvent.shouldCommit()) {
+                    stallEvent.estimator = eventEstimatorName();
+                    stallEvent.completedWorkUnits = getCompletedWorkUnits();
+                    stallEvent.totalWorkUnits = getTotalWorkUnits();
+                    stallEvent.commit();
+                }
+            }
+        }
+        if (EstimatorStallEvent.enabled() && getRemainingWorkUnits() > 0) {
+            EstimatorStallEvent nextStallEvent = new EstimatorStallEvent();
+            nextStallEvent.begin();
+            pendingStallEvent = nextStallEvent;
+            scheduleStallCheck();
+        }
+    }
+
+    /**
+     * Schedules a check of the pending stall event one tick of the shared timer wheel from now,
+     * unless one is scheduled already.
+     */
+    private void scheduleStallCheck() {
+        if (stallCheckScheduled.compareAndSet(false, true)) {
+            TimerWheel timerWheel = TimerWheel.shared();
+            timerWheel.schedule(timerWheel.getInstantSource().instant().plus(timerWheel.getTickDuration()),
+                    this::checkStall);
+        }
+    }
+
+    /**
+     * Records the pending stall event as ongoing once the estimator has been stalled for longer than
+     * the threshold, and checks again a tick later while it has not.
+     */
+    private void checkStall() {
+        recordOngoingStall();
+        stallCheckScheduled.set(false);
+        // a completion which began a stall event meanwhile may have seen the check still scheduled
+        if (pendingStallEvent != null && EstimatorStallEvent.enabled()) {
+            scheduleStallCheck();
+        }
+    }
+
+    /**
+     * Records the pending stall event as ongoing if the estimator has been stalled for longer than
+     * the threshold by now. Otherwise the event stays pending, unless progress was made meanwhile.
+     */
+    private void recordOngoingStall() {
+        EstimatorStallEvent stallEvent = (EstimatorStallEvent) PENDING_STALL_EVENT.getAndSet(this, null);
+        if (stallEvent == null) {
+            return;
+        }
+        stallEvent.end();
+        if (!stallEvent.shouldCommit()) {
+            // fails if a completion has begun the next stall event meanwhile
+            PENDING_STALL_EVENT.compareAndSet(this, null, stallEvent);
+            return;
+        }
+        stallEvent.estimator = eventEstimatorName();
+        stallEvent.completedWorkUnits = getCompletedWorkUnits();
+        stallEvent.totalWorkUnits = getTotalWorkUnits();
+        stallEvent.ongoing = true;
+        stallEvent.commit();
+    }
+
+    private String eventEstimatorName() {
+        return getClass().getSimpleName() + '@' + Integer.toHexString(System.identityHashCode(this));
+    }
+
+    private static double validateFraction(double fraction) {
+        if (!(fraction >= 0 && fraction <= 1)) {
+            throw new IllegalArgumentException("fraction must be between 0 and 1");
+        }
+        return fraction;
+    }
+
+    private static long validateUnits(long workUnits) {
+        if (workUnits < 0) {
+            throw new IllegalArgumentException("workUnits may not be negative");
+        }
+        return workUnits;
+    }
+
+    private static long timeoutNanos(Duration timeout) {
+        Objects.requireNonNull(timeout);
+        if (timeout.isNegative()) {
+            return 0;
+        }
+        return toNanosSaturated(timeout);
+    }
+
+    static long toNanosSaturated(Duration duration) {
+        try {
+            return duration.toNanos();
+        } catch (ArithmeticException e) {
+            return duration.isNegative() ? Long.MIN_VALUE : Long.MAX_VALUE;
+        }
     }
 
     @Override
@@ -117,12 +449,15 @@ public abstract class BaseEstimator<
         if(this.totalWorkUnits < 1) {
             throw new IllegalStateException("To start estimator totalWorkUnits must be greater than zero");
         }
-        return this.stopwatch.start();
+        StopwatchType started = this.stopwatch.start();
+        invalidateEstimate();
+        return started;
     }
 
     @Override
     public StopwatchType stop() {
         this.stopwatch.stop();
+        invalidateEstimate();
         return (StopwatchType) this;
     }
 
@@ -132,7 +467,8 @@ public abstract class BaseEstimator<
      * @return The amount of remaining work units
      */
     public long getRemainingWorkUnits() {
-        return this.totalWorkUnits - this.completedWorkUnits;
+        long completed = this.completedWorkUnits;
+        return this.totalWorkUnits - completed;
     }
 
     /**
@@ -181,14 +517,145 @@ public abstract class BaseEstimator<
     }
 
     /**
-     * Calculates and returns the estimated remaining time based on work progress and elapsed time.
-     * Returns Duration.ZERO if no work remains or total work units is zero.
-     * Returns MAX_DURATION if no work has been completed yet.
+     * Returns the estimated remaining time as calculated by {@link #computeRemainingDuration()}.
+     * If the {@code EstimateRecomputed} JFR event is enabled, the calculation is recorded as an event.
+     *
+     * <p>If the estimate cache has been enabled with {@link #enableEstimateCache(Duration)}, the
+     * last calculated estimate is returned as long as it is valid.</p>
+     *
+     * <p>Estimators implement {@link #computeRemainingDuration()}; subclasses overriding this method
+     * should call it through {@code super} to keep the cache and the event.</p>
      *
      * @return The estimated remaining duration
      */
     @Override
     public Duration remainingDuration() {
+        EstimateCache cache = estimateCache;
+        if (cache == null) {
+            return recomputeRemainingDuration();
+        }
+        long version = stateVersion.get();
+        Duration remaining = cache.get(version);
+        if (remaining == null) {
+            remaining = recomputeRemainingDuration();
+            cache.put(version, remaining);
+        }
+        return remaining;
+    }
+
+    /**
+     * Returns the average rate of completion since the rate baseline, as used by the default estimate.
+     */
+    private double workUnitsPerSecond(long completedWorkUnits) {
+        long elapsedNanos = getElapsedTime().getDuration().toNanos();
+        RateBaseline baseline = rateBaseline;
+        if (completedWorkUnits > baseline.completedWorkUnits) {
+            completedWorkUnits -= baseline.completedWorkUnits;
+            elapsedNanos -= baseline.elapsedNanos;
+        }
+        return elapsedNanos <= 0 ? 0 : completedWorkUnits * 1e9 / elapsedNanos;
+    }
+
+    private Duration recomputeRemainingDuration() {
+        if (!EstimateRecomputedEvent.enabled()) {
+            return computeRemainingDuration();
+        }
+
+        EstimateRecomputedEvent event = new EstimateRecomputedEvent();
+        event.begin();
+        Duration remaining = computeRemainingDuration();
+        event.end();
+        if (event.shouldCommit()) {
+            event.estimator = eventEstimatorName();
+            event.completedWorkUnits = getCompletedWorkUnits();
+            event.totalWorkUnits = getTotalWorkUnits();
+            event.remaining = toNanosSaturated(remaining);
+            event.commit();
+        }
+        return remaining;
+    }
+
+    /**
+     * Enables caching of the estimate, using the ticks of the {@link TimerWheel#shared() shared timer wheel}
+     * to measure the time quantum.
+     *
+     * @param timeQuantum The time after which a cached estimate expires
+     * @return This estimator
+     * @see #enableEstimateCache(Duration, TimerWheel)
+     */
+    public EstimatorType enableEstimateCache(Duration timeQuantum) {
+        return enableEstimateCache(timeQuantum, TimerWheel.shared());
+    }
+
+    /**
+     * Enables caching of the estimate, for estimators which are read far more often than they are
+     * updated. {@link #remainingDuration()} then returns the last calculated estimate until work units
+     * are completed, the total or the rate history changes, or the time quantum passes. The time
+     * quantum is rounded up to whole ticks of the given timer wheel and only passes while the wheel
+     * advances. A read which hits the cache does not lock and does not read the clock.
+     *
+     * <p>Subclasses whose estimate depends on state which is not updated through this class must
+     * call {@link #invalidateEstimate()} when that state changes.</p>
+     *
+     * @param timeQuantum The time after which a cached estimate expires
+     * @param timerWheel The timer wheel whose ticks measure the time quantum
+     * @return This estimator
+     * @throws IllegalArgumentException if timeQuantum is not positive
+     */
+    public EstimatorType enableEstimateCache(Duration timeQuantum, TimerWheel timerWheel) {
+        Objects.requireNonNull(timeQuantum);
+        Objects.requireNonNull(timerWheel);
+        if (timeQuantum.isNegative() || timeQuantum.isZero()) {
+            throw new IllegalArgumentException("timeQuantum must be positive");
+        }
+        this.estimateCache = new EstimateCache(timeQuantum, timerWheel);
+        return (EstimatorType) this;
+    }
+
+    /**
+     * Disables caching of the estimate.
+     *
+     * @return This estimator
+     */
+    public EstimatorType disableEstimateCache() {
+        this.estimateCache = null;
+        return (EstimatorType) this;
+    }
+
+    /**
+     * Returns whether the estimate is cached.
+     *
+     * @return true if the estimate cache is enabled
+     */
+    public boolean isEstimateCacheEnabled() {
+        return estimateCache != null;
+    }
+
+    /**
+     * Invalidates the cached estimate. Subclasses must call this whenever state which their
+     * estimate depends on changes outside of the methods of this class. Without an enabled estimate
+     * cache this only reads a volatile field, so it adds no shared write to the completion path.
+     */
+    protected void invalidateEstimate() {
+        // a cache enabled concurrently starts empty, so a skipped bump cannot leave a stale entry behind
+        if (estimateCache != null) {
+            stateVersion.incrementAndGet();
+        }
+    }
+
+    /**
+     * Calculates the estimated remaining time based on work progress and elapsed time.
+     * Returns Duration.ZERO if no work remains or total work units is zero.
+     * Returns MAX_DURATION if no work has been completed yet.
+     * Subclasses override this method to provide their own estimation.
+     *
+     * <p>If the rate history has been reset with {@link #resetRateHistory(long, Duration)}, only the
+     * work completed and the time elapsed since the reset are used, as soon as any work has been
+     * completed after the reset.</p>
+     *
+     * @return The estimated remaining duration
+     */
+    protected Duration computeRemainingDuration() {
         final long remainingWorkUnits = this.getRemainingWorkUnits();
         if (this.getTotalWorkUnits() == 0 || remainingWorkUnits == 0) {
             return Duration.ZERO;
@@ -199,8 +666,15 @@ public abstract class BaseEstimator<
             return MAX_DURATION;
         }
 
+        long elapsedNanos = this.getElapsedTime().getDuration().toNanos();
+        RateBaseline baseline = rateBaseline;
+        if (completedWorkUnits > baseline.completedWorkUnits) {
+            completedWorkUnits -= baseline.completedWorkUnits;
+            elapsedNanos = Math.max(0, elapsedNanos - baseline.elapsedNanos);
+        }
+
         BigFraction ratioRemaining = new BigFraction(remainingWorkUnits, completedWorkUnits);
-        BigFraction remainingTimeInNanos = ratioRemaining.multiply(this.getElapsedTime().getDuration().toNanos());
+        BigFraction remainingTimeInNanos = ratioRemaining.multiply(elapsedNanos);
 
         return Duration.ofNanos(remainingTimeInNanos.longValue());
     }
@@ -213,6 +687,51 @@ public abstract class BaseEstimator<
         return new ElapsedTime(this.remainingDuration());
     }
 
+    /**
+     * Captures the current progress and estimate of this estimator.
+     *
+     * @return A snapshot of this estimator
+     */
+    public EstimateSnapshot snapshot() {
+        // read the completed work units first, so that a concurrently growing total cannot be exceeded
+        long completed = getCompletedWorkUnits();
+        long total = getTotalWorkUnits();
+        return new EstimateSnapshot(getInstantSource().instant(), total, completed,
+                getElapsedTime().getDuration(), remainingDuration());
+    }
+
+    /**
+     * Discards the rate history up to the current progress, so that the remaining time is
+     * estimated only from work completed from now on.
+     *
+     * @see #resetRateHistory(long, Duration)
+     */
+    public void resetRateHistory() {
+        resetRateHistory(getCompletedWorkUnits(), getElapsedTime().getDuration());
+    }
+
+    /**
+     * Discards the rate history up to the given point of progress, e.g. because the speed of the
+     * process changed at that point. Subclasses keeping their own history should override this
+     * method to discard or down-weight it, and call the super implementation.
+     *
+     * @param completedWorkUnits The amount of work units completed at the point of change
+     * @param elapsed The time elapsed at the point of change
+     * @throws IllegalArgumentException if completedWorkUnits is negative or greater than the currently
+     *         completed work units, or elapsed is negative
+     */
+    public void resetRateHistory(long completedWorkUnits, Duration elapsed) {
+        Objects.requireNonNull(elapsed);
+        if (completedWorkUnits < 0 || completedWorkUnits > getCompletedWorkUnits()) {
+            throw new IllegalArgumentException("completedWorkUnits must be between 0 and " + getCompletedWorkUnits());
+        }
+        if (elapsed.isNegative()) {
+            throw new IllegalArgumentException("elapsed may not be negative");
+        }
+        this.rateBaseline = new RateBaseline(completedWorkUnits, elapsed.toNanos());
+        invalidateEstimate();
+    }
+
     /**
      * Returns completedWorkUnits
      * @return The amount of completed work units
@@ -233,4 +752,19 @@ public abstract class BaseEstimator<
     public StopwatchType getStopwatch() {
         return stopwatch;
     }
+
+    /**
+     * The point of progress from which the rate is measured.
+     */
+    private static final class RateBaseline {
+        static final RateBaseline NONE = new RateBaseline(0, 0);
+
+        final long completedWorkUnits;
+        final long elapsedNanos;
+
+        RateBaseline(long completedWorkUnits, long elapsedNanos) {
+            this.completedWorkUnits = completedWorkUnits;
+            this.elapsedNanos = elapsedNanos;
+        }
+    }
 }
@@ -5,8 +5,7 @@ import net.sasu.lib.time.stopwatch.Stopwatch;
 
 import java.time.Duration;
 import java.time.Instant;
-import java.util.LinkedList;
-import java.util.Queue;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * A basic implementation of time estimation that uses a moving average approach
@@ -29,12 +28,45 @@ import java.util.Queue;
  * </ul>
  * The oldest measurement is dropped when the window is full.
  *
+ * <p><b>Adaptive window:</b><br>
+ * An estimator created with {@link #adaptive(int)} chooses its effective window size online.
+ * The window grows by one measurement for every measurement consistent with the current window
+ * and shrinks to the two latest measurements when a rate shift is detected, i.e. when two
+ * consecutive measurements deviate from the window average in the same direction by more than
+ * three standard deviations and at least half of the average. A single outlier therefore does not
+ * discard the history, while a lasting change in speed does. The window never grows beyond the
+ * given maximum, so memory stays bounded and every update is O(1) amortized.</p>
+ *
+ * <p>The window is guarded by a lock, so work units may be completed and estimates read from any
+ * amount of threads concurrently.</p>
+ *
  * @author Sasu
  */
 public class BasicEstimator extends DefaultEstimator<Stopwatch> {
 
-    private final Queue<Long> recentDurations;
+    /**
+     * The smallest effective window size of an adaptive estimator.
+     */
+    public static final int MIN_ADAPTIVE_WINDOW_SIZE = 2;
+
+    private static final double SHIFT_STANDARD_DEVIATIONS = 3;
+    private static final double SHIFT_MIN_RELATIVE_CHANGE = 0.5;
+
+    private final ReentrantLock windowLock = new ReentrantLock();
+
+    // ring buffer of the recent durations per work unit, with running sums for O(1) statistics
+    private final long[] recentDurations;
+    private int oldestIndex;
+    private int measurementCount;
+    private long durationSum;
+    private double durationSquareSum;
+
     private final int windowSize;
+    private final boolean adaptive;
+    private int effectiveWindowSize;
+    private int pendingShiftDirection;
+    private double pendingShiftMean;
+    private double pendingShiftBand;
     private Instant lastCompletionTime;
 
     /**
@@ -55,12 +87,18 @@ public class BasicEstimator extends DefaultEstimator<Stopwatch> {
      * @throws IllegalArgumentException if windowSize is less than 1
      */
     public BasicEstimator(int windowSize) {
+        this(windowSize, false);
+    }
+
+    private BasicEstimator(int windowSize, boolean adaptive) {
         super(new Stopwatch());
         if (windowSize < 1) {
             throw new IllegalArgumentException("Window size must be at least 1");
         }
         this.windowSize = windowSize;
-        this.recentDurations = new LinkedList<>();
+        this.recentDurations = new long[windowSize];
+        this.adaptive = adaptive;
+        this.effectiveWindowSize = adaptive ? MIN_ADAPTIVE_WINDOW_SIZE : windowSize;
     }
 
     /**
@@ -76,35 +114,54 @@ public class BasicEstimator extends DefaultEstimator<Stopwatch> {
             throw new IllegalArgumentException("Window size must be at least 1");
         }
         this.windowSize = windowSize;
-        this.recentDurations = new LinkedList<>();
+        this.recentDurations = new long[windowSize];
+        this.adaptive = false;
+        this.effectiveWindowSize = windowSize;
     }
 
     /**
-     * Records the completion of work units and updates the moving average window.
-     * The duration per work unit is calculated and added to the recent measurements,
-     * maintaining the specified window size by removing older measurements if necessary.
+     * Creates a new BasicEstimator which adjusts its effective window size online,
+     * between {@link #MIN_ADAPTIVE_WINDOW_SIZE} and the given maximum.
+     *
+     * @param maxWindowSize The largest amount of recent measurements to keep for averaging
+     * @return A new adaptive BasicEstimator
+     * @throws IllegalArgumentException if maxWindowSize is less than MIN_ADAPTIVE_WINDOW_SIZE
+     */
+    public static BasicEstimator adaptive(int maxWindowSize) {
+        if (maxWindowSize < MIN_ADAPTIVE_WINDOW_SIZE) {
+            throw new IllegalArgumentException("Window size must be at least " + MIN_ADAPTIVE_WINDOW_SIZE);
+        }
+        return new BasicEstimator(maxWindowSize, true);
+    }
+
+    /**
+     * Updates the moving average window with a completion which has been applied. The duration per
+     * work unit since the previous completion is added to the recent measurements, maintaining the
+     * specified window size by removing older measurements if necessary. Completions of zero work
+     * units are not measured.
      *
      * @param workUnitsCompleted The amount of work units that were completed
      */
     @Override
-    public void completeWorkUnits(long workUnitsCompleted) {
-        Instant now = getInstantSource().instant();
-
-        if (lastCompletionTime != null) {
-            long durationNanos = Duration.between(lastCompletionTime, now).toNanos();
+    protected void workUnitsApplied(long workUnitsCompleted) {
+        if (workUnitsCompleted == 0) {
+            return;
+        }
+        windowLock.lock();
+        try {
+            Instant now = getInstantSource().instant();
 
-            // Add duration per work unit
-            long durationPerUnit = durationNanos / workUnitsCompleted;
-            recentDurations.offer(durationPerUnit);
+            if (lastCompletionTime != null) {
+                long durationNanos = Duration.between(lastCompletionTime, now).toNanos();
 
-            // Maintain window size
-            while (recentDurations.size() > windowSize) {
-                recentDurations.poll();
+                // Add duration per work unit
+                addMeasurement(durationNanos / workUnitsCompleted);
             }
-        }
 
-        lastCompletionTime = now;
-        super.completeWorkUnits(workUnitsCompleted);
+            lastCompletionTime = now;
+        } finally {
+            windowLock.unlock();
+        }
     }
 
     /**
@@ -115,31 +172,142 @@ public class BasicEstimator extends DefaultEstimator<Stopwatch> {
      *         no measurements are available or no work remains
      */
     @Override
-    public Duration remainingDuration() {
-        if (getRemainingWorkUnits() == 0) {
+    protected Duration computeRemainingDuration() {
+        long remainingWorkUnits = getRemainingWorkUnits();
+        if (remainingWorkUnits == 0) {
             return Duration.ZERO;
         }
 
-        // If no measurements yet but we have work to do, use elapsed time for estimation
-        if (recentDurations.isEmpty()) {
-            if (getCompletedWorkUnits() == 0) {
-                return MAX_DURATION;
+        windowLock.lock();
+        try {
+            // If no measurements yet but we have work to do, use elapsed time for estimation
+            if (measurementCount == 0) {
+                return super.computeRemainingDuration();
             }
-            // Calculate based on elapsed time, similar to DefaultEstimator
-            long elapsedNanos = getElapsedTime().getDuration().toNanos();
-            double nanosPerUnit = (double) elapsedNanos / getCompletedWorkUnits();
-            return Duration.ofNanos((long) (nanosPerUnit * getRemainingWorkUnits()));
+
+            // Calculate total remaining time
+            long remainingNanos = (long) (getAverageNanosPerUnit() * remainingWorkUnits);
+            return Duration.ofNanos(remainingNanos);
+        } finally {
+            windowLock.unlock();
         }
+    }
 
-        // Calculate average duration per work unit from recent measurements
-        double averageDurationNanos = recentDurations.stream()
-                .mapToLong(Long::longValue)
-                .average()
-                .orElse(0.0);
+    /**
+     * Returns the moving average of the duration per work unit over the current window.
+     *
+     * @return The average duration per work unit in nanoseconds, or 0.0 if no measurements are available
+     */
+    public double getAverageNanosPerUnit() {
+        windowLock.lock();
+        try {
+            if (measurementCount == 0) {
+                return 0.0;
+            }
+            return (double) durationSum / measurementCount;
+        } finally {
+            windowLock.unlock();
+        }
+    }
 
-        // Calculate total remaining time
-        long remainingNanos = (long) (averageDurationNanos * getRemainingWorkUnits());
-        return Duration.ofNanos(remainingNanos);
+    /**
+     * Discards all measurements of the moving average window in addition to the rate history
+     * of the base estimator. Until new measurements are available, the remaining time is estimated
+     * from the progress since the given point.
+     *
+     * @param completedWorkUnits The amount of work units completed at the point of change
+     * @param elapsed The time elapsed at the point of change
+     */
+    @Override
+    public void resetRateHistory(long completedWorkUnits, Duration elapsed) {
+        super.resetRateHistory(completedWorkUnits, elapsed);
+        windowLock.lock();
+        try {
+            while (measurementCount > 0) {
+                removeOldestMeasurement();
+            }
+            if (adaptive) {
+                effectiveWindowSize = MIN_ADAPTIVE_WINDOW_SIZE;
+                pendingShiftDirection = 0;
+            }
+        } finally {
+            windowLock.unlock();
+        }
+    }
+
+    /**
+     * Adds a duration per work unit to the window, adapting the effective window size first
+     * if this estimator is adaptive.
+     *
+     * @param durationPerUnit The measured duration per work unit in nanoseconds
+     */
+    void addMeasurement(long durationPerUnit) {
+        if (adaptive && measurementCount >= MIN_ADAPTIVE_WINDOW_SIZE) {
+            adaptWindow(durationPerUnit);
+        }
+
+        if (measurementCount == recentDurations.length) {
+            removeOldestMeasurement();
+        }
+        recentDurations[(oldestIndex + measurementCount) % recentDurations.length] = durationPerUnit;
+        measurementCount++;
+        durationSum += durationPerUnit;
+        durationSquareSum += (double) durationPerUnit * durationPerUnit;
+
+        // Maintain window size
+        while (measurementCount > effectiveWindowSize) {
+            removeOldestMeasurement();
+        }
+    }
+
+    private void adaptWindow(long durationPerUnit) {
+        double mean;
+        double band;
+        if (pendingShiftDirection != 0) {
+            // compare against the window as it was before the first deviating measurement,
+            // which would otherwise inflate the variance enough to hide the shift
+            mean = pendingShiftMean;
+            band = pendingShiftBand;
+        } else {
+            mean = (double) durationSum / measurementCount;
+            double variance = Math.max(0, durationSquareSum / measurementCount - mean * mean);
+            band = Math.max(SHIFT_STANDARD_DEVIATIONS * Math.sqrt(variance), SHIFT_MIN_RELATIVE_CHANGE * mean);
+        }
+
+        int shiftDirection = 0;
+        if (durationPerUnit > mean + band) {
+            shiftDirection = 1;
+        } else if (durationPerUnit < mean - band) {
+            shiftDirection = -1;
+        }
+
+        if (shiftDirection != 0 && shiftDirection == pendingShiftDirection) {
+            // confirmed shift: keep only the previous measurement, which already belongs to the new rate
+            while (measurementCount > 1) {
+                removeOldestMeasurement();
+            }
+            effectiveWindowSize = MIN_ADAPTIVE_WINDOW_SIZE;
+            pendingShiftDirection = 0;
+        } else {
+            pendingShiftDirection = shiftDirection;
+            pendingShiftMean = mean;
+            pendingShiftBand = band;
+            if (shiftDirection == 0 && effectiveWindowSize < windowSize) {
+                effectiveWindowSize++;
+            }
+        }
+    }
+
+    private void removeOldestMeasurement() {
+        long oldest = recentDurations[oldestIndex];
+        oldestIndex = (oldestIndex + 1) % recentDurations.length;
+        measurementCount--;
+        durationSum -= oldest;
+        durationSquareSum -= (double) oldest * oldest;
+        if (measurementCount == 0) {
+            // reset to avoid accumulating floating point error
+            durationSquareSum = 0;
+        }
     }
 
     /**
@@ -153,7 +321,8 @@ public class BasicEstimator extends DefaultEstimator<Stopwatch> {
     /**
      * Returns the window size used for the moving average calculation.
      * The window size determines how many recent measurements are used
-     * to calculate average duration per work unit.
+     * to calculate average duration per work unit. For an adaptive estimator
+     * this is the maximum window size.
      *
      * @return the amount of measurements used in the moving average
      */
@@ -161,6 +330,30 @@ public class BasicEstimator extends DefaultEstimator<Stopwatch> {
         return windowSize;
     }
 
+    /**
+     * Returns the window size currently in effect. This equals {@link #getWindowSize()}
+     * unless the estimator is adaptive.
+     *
+     * @return the amount of measurements currently used in the moving average
+     */
+    public int getEffectiveWindowSize() {
+        windowLock.lock();
+        try {
+            return effectiveWindowSize;
+        } finally {
+            windowLock.unlock();
+        }
+    }
+
+    /**
+     * Returns whether this estimator adapts its window size online.
+     *
+     * @return true if this estimator was created with {@link #adaptive(int)}
+     */
+    public boolean isAdaptive() {
+        return adaptive;
+    }
+
     /**
      * Returns the current amount of duration measurements in the moving average window.
      * This will be less than or equal to the window size, depending on how many
@@ -169,6 +362,11 @@ public class BasicEstimator extends DefaultEstimator<Stopwatch> {
      * @return the current amount of measurements in the moving average window
      */
     public int getCurrentMeasurementCount() {
-        return recentDurations.size();
+        windowLock.lock();
+        try {
+            return measurementCount;
+        } finally {
+            windowLock.unlock();
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,118 @@
+package net.sasu.lib.elapsedtime.estimator;
+
+import java.math.BigInteger;
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Computes the remaining time of many tracked processes in one pass over primitive columns,
+ * for schedulers re-estimating tens of thousands of jobs at a time.
+ *
+ * <p>The estimate of each element is the same as {@link BaseEstimator#remainingDuration()} with the
+ * default {@link BaseEstimator#computeRemainingDuration()} would return for the same progress: zero if
+ * the total is zero or no work remains, unknown if no work has been completed, and otherwise the
+ * remaining work units times the elapsed time per completed work unit, truncated to nanoseconds.
+ * The rate baseline of {@link BaseEstimator#resetRateHistory(long, Duration)} is supported with the
+ * optional baseline columns.</p>
+ *
+ * <p>Estimates are computed with long arithmetic without allocating. Only estimates whose
+ * intermediate product does not fit into a long fall back to exact arithmetic; estimates which do
+ * not fit into a long themselves saturate to {@link Long#MAX_VALUE} or {@link Long#MIN_VALUE}.</p>
+ *
+ * @author Sasu
+ */
+public final class BulkEstimates {
+
+    /**
+     * The remaining time in nanoseconds of an element whose remaining time is unknown, corresponding
+     * to {@link Estimator#MAX_DURATION}.
+     */
+    public static final long UNKNOWN = Long.MAX_VALUE;
+
+    private static final BigInteger MAX_LONG = BigInteger.valueOf(Long.MAX_VALUE);
+    private static final BigInteger MIN_LONG = BigInteger.valueOf(Long.MIN_VALUE);
+
+    private BulkEstimates() {
+    }
+
+    /**
+     * Computes the remaining time of every element.
+     *
+     * @param completedWorkUnits The completed work units of each element
+     * @param totalWorkUnits The total work units of each element
+     * @param elapsedNanos The elapsed time of each element in nanoseconds
+     * @param remainingNanos Receives the remaining time of each element in nanoseconds, or {@link #UNKNOWN}
+     * @throws IllegalArgumentException if the arrays are of different lengths
+     */
+    public static void remainingNanos(long[] completedWorkUnits, long[] totalWorkUnits, long[] elapsedNanos,
+                                      long[] remainingNanos) {
+        validateLengths(remainingNanos.length, completedWorkUnits, totalWorkUnits, elapsedNanos);
+        for (int i = 0; i < remainingNanos.length; i++) {
+            remainingNanos[i] = remainingNanos(completedWorkUnits[i], totalWorkUnits[i], elapsedNanos[i], 0, 0);
+        }
+    }
+
+    /**
+     * Computes the remaining time of every element, measuring the rate from the given baselines
+     * as {@link BaseEstimator#resetRateHistory(long, Duration)} does.
+     *
+     * @param completedWorkUnits The completed work units of each element
+     * @param totalWorkUnits The total work units of each element
+     * @param elapsedNanos The elapsed time of each element in nanoseconds
+     * @param baselineCompletedWorkUnits The completed work units of each element at its last rate reset
+     * @param baselineElapsedNanos The elapsed time of each element at its last rate reset in nanoseconds
+     * @param remainingNanos Receives the remaining time of each element in nanoseconds, or {@link #UNKNOWN}
+     * @throws IllegalArgumentException if the arrays are of different lengths
+     */
+    public static void remainingNanos(long[] completedWorkUnits, long[] totalWorkUnits, long[] elapsedNanos,
+                                      long[] baselineCompletedWorkUnits, long[] baselineElapsedNanos,
+                                      long[] remainingNanos) {
+        validateLengths(remainingNanos.length, completedWorkUnits, totalWorkUnits, elapsedNanos,
+                baselineCompletedWorkUnits, baselineElapsedNanos);
+        for (int i = 0; i < remainingNanos.length; i++) {
+            remainingNanos[i] = remainingNanos(completedWorkUnits[i], totalWorkUnits[i], elapsedNanos[i],
+                    baselineCompletedWorkUnits[i], baselineElapsedNanos[i]);
+        }
+    }
+
+    static long remainingNanos(long completed, long total, long elapsedNanos,
+                               long baselineCompleted, long baselineElapsedNanos) {
+        long remaining = total - completed;
+        if (total == 0 || remaining == 0) {
+            return 0;
+        }
+        if (completed == 0) {
+            return UNKNOWN;
+        }
+        if (completed > baselineCompleted) {
+            completed -= baselineCompleted;
+            elapsedNanos = Math.max(0, elapsedNanos - baselineElapsedNanos);
+        }
+
+        long product = remaining * elapsedNanos;
+        if (Math.multiplyHigh(remaining, elapsedNanos) == (product >> 63)) {
+            return product / completed;
+        }
+        return exactQuotient(remaining, elapsedNanos, completed);
+    }
+
+    private static long exactQuotient(long remaining, long elapsedNanos, long completed) {
+        BigInteger quotient = BigInteger.valueOf(remaining).multiply(BigInteger.valueOf(elapsedNanos))
+                .divide(BigInteger.valueOf(completed));
+        if (quotient.compareTo(MAX_LONG) > 0) {
+            return Long.MAX_VALUE;
+        }
+        if (quotient.compareTo(MIN_LONG) < 0) {
+            return Long.MIN_VALUE;
+        }
+        return quotient.longValue();
+    }
+
+    private static void validateLengths(int length, long[]... columns) {
+        for (long[] column : columns) {
+            if (Objects.requireNonNull(column).length != length) {
+                throw new IllegalArgumentException("All arrays must have the same length");
+            }
+        }
+    }
+}
@@ -0,0 +1,455 @@
+package net.sasu.lib.elapsedtime.estimator;
+
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Renders the progress of several estimators on a console, one line per estimator, showing a
+ * progress bar, the completed percentage, the rate, the elapsed time and the estimated remaining time.
+ *
+ * <p>On a terminal the lines are redrawn in place using ANSI cursor control. Each frame is drawn
+ * into a reusable frame buffer and compared with what is on screen, so that only the changed cells
+ * are written, and a frame without changes writes nothing. Otherwise plain lines are printed
+ * periodically. Frames are rendered at a fixed rate on a thread of their own and each frame is
+ * written to the output channel with a single write.</p>
+ *
+ * <p>Example usage:</p>
+ * <pre>
+ * {@literal
+ * try (ConsoleProgressRenderer renderer = ConsoleProgressRenderer.forStandardOutput()) {
+ *     renderer.addBar("download", downloadEstimator);
+ *     renderer.addBar("import", importEstimator);
+ *     renderer.start();
+ *     ...
+ * }
+ * }
+ * </pre>
+ *
+ * @author Sasu
+ */
+public class ConsoleProgressRenderer implements AutoCloseable {
+
+    /**
+     * The default amount of frames rendered per second on a terminal.
+     */
+    public static final int DEFAULT_FRAMES_PER_SECOND = 10;
+
+    /**
+     * The default width of a line in characters.
+     */
+    public static final int DEFAULT_WIDTH = 80;
+
+    /**
+     * The default interval between printing plain lines when the output is not a terminal.
+     */
+    public static final Duration DEFAULT_PLAIN_INTERVAL = Duration.ofSeconds(10);
+
+    /**
+     * The minimum width of a line in characters.
+     */
+    public static final int MIN_WIDTH = 40;
+
+    private static final String ESC = "\u001b[";
+    // unchanged runs shorter than this are rewritten rather than skipped with a cursor movement
+    private static final int MIN_SKIPPED_CELLS = 4;
+    private static final int MIN_BAR_WIDTH = 5;
+
+    private final WritableByteChannel channel;
+    private final boolean ansi;
+    private final int width;
+    private final long periodNanos;
+    private final List<Bar> bars = new CopyOnWriteArrayList<>();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final StringBuilder line = new StringBuilder();
+    private final StringBuilder stats = new StringBuilder();
+    private final StringBuilder output = new StringBuilder();
+    private final TextEncoder encoder = new TextEncoder(4096);
+    private char[][] frame = new char[0][];
+    private char[][] screen = new char[0][];
+    private int screenRows;
+    private int cursorRow;
+    private int cursorColumn;
+
+    private volatile Thread thread;
+
+    /**
+     * Creates a renderer writing to the standard output. ANSI cursor control is used if the
+     * standard output is a terminal, and the line width is taken from the COLUMNS environment
+     * variable if it is set.
+     *
+     * @return A new renderer, not yet started
+     */
+    public static ConsoleProgressRenderer forStandardOutput() {
+        boolean terminal = System.console() != null && !"dumb".equals(System.getenv("TERM"));
+        int width = DEFAULT_WIDTH;
+        String columns = System.getenv("COLUMNS");
+        if (columns != null) {
+            try {
+                width = Math.max(MIN_WIDTH, Integer.parseInt(columns.trim()) - 1);
+            } catch (NumberFormatException e) {
+                // keep the default width
+            }
+        }
+        return new ConsoleProgressRenderer(Channels.newChannel(new FileOutputStream(FileDescriptor.out)),
+                terminal, width, DEFAULT_FRAMES_PER_SECOND, DEFAULT_PLAIN_INTERVAL);
+    }
+
+    /**
+     * Creates a renderer.
+     *
+     * @param channel The channel to write to
+     * @param ansi true to redraw the lines in place using ANSI cursor control, false to print plain lines
+     * @param width The width of a line in characters
+     * @param framesPerSecond The amount of frames rendered per second when using ANSI cursor control
+     * @param plainInterval The interval between printing plain lines when not using ANSI cursor control
+     * @throws IllegalArgumentException if width is less than {@link #MIN_WIDTH}, framesPerSecond is
+     *         not positive or plainInterval is not positive
+     */
+    public ConsoleProgressRenderer(WritableByteChannel channel, boolean ansi, int width, int framesPerSecond,
+                                   Duration plainInterval) {
+        this.channel = Objects.requireNonNull(channel);
+        Objects.requireNonNull(plainInterval);
+        if (width < MIN_WIDTH) {
+            throw new IllegalArgumentException("width must be at least " + MIN_WIDTH);
+        }
+        if (framesPerSecond <= 0) {
+            throw new IllegalArgumentException("framesPerSecond must be greater than zero");
+        }
+        if (plainInterval.isNegative() || plainInterval.isZero()) {
+            throw new IllegalArgumentException("plainInterval must be positive");
+        }
+        this.ansi = ansi;
+        this.width = width;
+        this.periodNanos = ansi ? 1_000_000_000L / framesPerSecond : plainInterval.toNanos();
+    }
+
+    /**
+     * Adds a progress bar for the given estimator below the existing bars.
+     *
+     * @param label The label shown in front of the bar
+     * @param estimator The estimator whose progress to show
+     * @return This renderer
+     * @throws NullPointerException if label or estimator is null
+     */
+    public ConsoleProgressRenderer addBar(String label, BaseEstimator<?, ?> estimator) {
+        bars.add(new Bar(Objects.requireNonNull(label), Objects.requireNonNull(estimator)));
+        return this;
+    }
+
+    /**
+     * Removes the progress bars of the given estimator. On a terminal, the lines below it move up.
+     *
+     * @param estimator The estimator whose bars to remove
+     * @return true if a bar was removed
+     */
+    public boolean removeBar(BaseEstimator<?, ?> estimator) {
+        return bars.removeIf(bar -> bar.estimator == estimator);
+    }
+
+    /**
+     * Starts a daemon thread rendering frames at the configured rate.
+     *
+     * @return This renderer
+     * @throws IllegalStateException if the renderer has already been started
+     */
+    public ConsoleProgressRenderer start() {
+        lock.lock();
+        try {
+            if (thread != null) {
+                throw new IllegalStateException("Renderer has already been started");
+            }
+            Thread renderThread = new Thread(this::run, "time-estimator-console-renderer");
+            renderThread.setDaemon(true);
+            thread = renderThread;
+            renderThread.start();
+        } finally {
+            lock.unlock();
+        }
+        return this;
+    }
+
+    private void run() {
+        while (thread == Thread.currentThread()) {
+            long deadline = System.nanoTime() + periodNanos;
+            long remaining = periodNanos;
+            while (remaining > 0 && thread == Thread.currentThread()) {
+                // unparked by close(); never interrupted, as that would close an interruptible channel
+                LockSupport.parkNanos(this, remaining);
+                remaining = deadline - System.nanoTime();
+            }
+            if (thread != Thread.currentThread()) {
+                return;
+            }
+            try {
+                render();
+            } catch (UncheckedIOException e) {
+                // the output is gone, there is nothing left to render to
+                thread = null;
+            }
+        }
+    }
+
+    /**
+     * Renders a frame immediately.
+     *
+     * @throws UncheckedIOException if writing to the channel fails
+     */
+    public void render() {
+        lock.lock();
+        try {
+            output.setLength(0);
+            if (ansi) {
+                renderAnsi();
+            } else {
+                renderPlain();
+            }
+            write();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void renderPlain() {
+        List<Bar> currentBars = List.copyOf(bars);
+        int labelWidth = labelWidth(currentBars);
+        for (Bar bar : currentBars) {
+            composeLine(bar, labelWidth);
+            output.append(line, 0, Math.min(line.length(), width)).append('\n');
+        }
+    }
+
+    private void renderAnsi() {
+        List<Bar> currentBars = List.copyOf(bars);
+        int rows = Math.max(currentBars.size(), screenRows);
+        ensureRows(rows);
+
+        int labelWidth = labelWidth(currentBars);
+        for (int row = 0; row < rows; row++) {
+            char[] cells = frame[row];
+            Arrays.fill(cells, ' ');
+            if (row < currentBars.size()) {
+                composeLine(currentBars.get(row), labelWidth);
+                line.getChars(0, Math.min(line.length(), width), cells, 0);
+            }
+        }
+
+        for (int row = 0; row < screenRows; row++) {
+            redrawChangedCells(row);
+        }
+        for (int row = screenRows; row < rows; row++) {
+            moveCursor(screenRows, 0);
+            char[] cells = frame[row];
+            int length = width;
+            while (length > 0 && cells[length - 1] == ' ') {
+                length--;
+            }
+            output.append(cells, 0, length).append('\n');
+            System.arraycopy(cells, 0, screen[row], 0, width);
+            screenRows++;
+            cursorRow = screenRows;
+            cursorColumn = 0;
+        }
+        moveCursor(screenRows, 0);
+    }
+
+    private void redrawChangedCells(int row) {
+        char[] shown = screen[row];
+        char[] cells = frame[row];
+        int column = 0;
+        while (column < width) {
+            if (shown[column] == cells[column]) {
+                column++;
+                continue;
+            }
+            int start = column;
+            int end = column + 1;
+            int unchanged = 0;
+            for (column = end; column < width && unchanged < MIN_SKIPPED_CELLS; column++) {
+                if (shown[column] == cells[column]) {
+                    unchanged++;
+                } else {
+                    unchanged = 0;
+                    end = column + 1;
+                }
+            }
+            moveCursor(row, start);
+            output.append(cells, start, end - start);
+            System.arraycopy(cells, start, shown, start, end - start);
+            cursorColumn = end;
+            column = end;
+        }
+    }
+
+    private void moveCursor(int row, int column) {
+        if (row < cursorRow) {
+            output.append(ESC).append(cursorRow - row).append('A');
+        } else if (row > cursorRow) {
+            output.append(ESC).append(row - cursorRow).append('B');
+        }
+        if (column < cursorColumn) {
+            output.append('\r');
+            if (column > 0) {
+                output.append(ESC).append(column).append('C');
+            }
+        } else if (column > cursorColumn) {
+            output.append(ESC).append(column - cursorColumn).append('C');
+        }
+        cursorRow = row;
+        cursorColumn = column;
+    }
+
+    private void ensureRows(int rows) {
+        if (frame.length < rows) {
+            int oldRows = frame.length;
+            frame = Arrays.copyOf(frame, rows);
+            screen = Arrays.copyOf(screen, rows);
+            for (int row = oldRows; row < rows; row++) {
+                frame[row] = new char[width];
+                screen[row] = new char[width];
+                Arrays.fill(screen[row], ' ');
+            }
+        }
+    }
+
+    private int labelWidth(List<Bar> currentBars) {
+        int labelWidth = 0;
+        for (Bar bar : currentBars) {
+            labelWidth = Math.max(labelWidth, bar.label.length());
+        }
+        return Math.min(labelWidth, width / 4);
+    }
+
+    /**
+     * Composes the line of a bar: label [#####-----]  45.0%   12.3/s 00:01:02 ETA 00:03:04
+     */
+    private void composeLine(Bar bar, int labelWidth) {
+        EstimateSnapshot snapshot = bar.estimator.snapshot();
+        double fraction = Math.min(1, snapshot.getFractionCompleted());
+
+        stats.setLength(0);
+        long permille = (long) (fraction * 1000);
+        stats.append(permille / 10).append('.').append(permille % 10).append('%');
+        padLeft(stats, 0, 7);
+        appendRate(snapshot.getWorkUnitsPerSecond());
+        stats.append(' ');
+        appendDuration(stats, snapshot.getElapsed());
+        stats.append(" ETA ");
+        appendDuration(stats, snapshot.getRemaining());
+
+        line.setLength(0);
+        if (bar.label.length() > labelWidth) {
+            line.append(bar.label, 0, labelWidth);
+        } else {
+            line.append(bar.label);
+            line.append(" ".repeat(labelWidth - bar.label.length()));
+        }
+        int barWidth = width - labelWidth - stats.length() - 3;
+        if (barWidth >= MIN_BAR_WIDTH) {
+            int filled = (int) (fraction * barWidth);
+            line.append(" [");
+            for (int i = 0; i < barWidth; i++) {
+                line.append(i < filled ? '#' : '-');
+            }
+            line.append(']');
+        }
+        line.append(stats);
+    }
+
+    private void appendRate(double workUnitsPerSecond) {
+        int start = stats.length();
+        if (workUnitsPerSecond < 1000) {
+            long tenths = Math.round(workUnitsPerSecond * 10);
+            stats.append(tenths / 10).append('.').append(tenths % 10);
+        } else {
+            stats.append(Math.round(workUnitsPerSecond));
+        }
+        stats.append("/s");
+        padLeft(stats, start, 11);
+    }
+
+    private static void padLeft(StringBuilder sb, int start, int length) {
+        while (sb.length() - start < length) {
+            sb.insert(start, ' ');
+        }
+    }
+
+    static void appendDuration(StringBuilder sb, Duration duration) {
+        if (duration.equals(Estimator.MAX_DURATION)) {
+            sb.append(Estimator.INFINITY_STRING);
+            return;
+        }
+        long seconds = duration.getSeconds();
+        appendTwoDigits(sb, seconds / 3600).append(':');
+        appendTwoDigits(sb, seconds / 60 % 60).append(':');
+        appendTwoDigits(sb, seconds % 60);
+    }
+
+    private static StringBuilder appendTwoDigits(StringBuilder sb, long value) {
+        if (value < 10) {
+            sb.append('0');
+        }
+        return sb.append(value);
+    }
+
+    private void write() {
+        if (output.length() == 0) {
+            return;
+        }
+        ByteBuffer buffer = encoder.encode(output);
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Stops the render thread, if one has been started, waits for it to finish a frame it may be
+     * writing, and renders a final frame. The channel is not closed.
+     */
+    @Override
+    public void close() {
+        Thread renderThread = thread;
+        thread = null;
+        if (renderThread != null && renderThread != Thread.currentThread()) {
+            LockSupport.unpark(renderThread);
+            boolean interrupted = false;
+            while (renderThread.isAlive()) {
+                try {
+                    renderThread.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        render();
+    }
+
+    private static final class Bar {
+        final String label;
+        final BaseEstimator<?, ?> estimator;
+
+        Bar(String label, BaseEstimator<?, ?> estimator) {
+            this.label = label;
+            this.estimator = estimator;
+        }
+    }
+}
@@ -0,0 +1,334 @@
+package net.sasu.lib.elapsedtime.estimator;
+
+import net.sasu.lib.time.stopwatch.StopwatchInterface;
+import net.sasu.lib.time.stopwatch.state.StopwatchState;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.OptionalLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * An estimator for processes whose total amount of work grows while they run, such as crawlers
+ * or recursive directory scans which discover new work as they complete old work.
+ *
+ * <p>The estimator tracks two rates: the rate at which work units are completed and the rate at
+ * which new work units are discovered. Both are exponentially decayed averages with a configurable
+ * half-life, so they follow the recent behaviour of the process and are updated in O(1) per call.
+ * As long as completion outpaces discovery, the backlog drains at the difference of the two rates:</p>
+ * <pre>
+ * remaining time        = remaining work units / (completion rate - discovery rate)
+ * predicted total units = completed + remaining work units / (1 - discovery rate / completion rate)
+ * </pre>
+ *
+ * <p>When discovery keeps up with or outpaces completion the work is reported as unbounded:
+ * {@link #isUnbounded()} returns true, {@link #remainingDuration()} returns
+ * {@link Estimator#MAX_DURATION} and {@link #predictedTotalWorkUnits()} is empty.</p>
+ *
+ * <p>Newly discovered work is reported with {@link #discoverWorkUnits(long)}. Increasing the total
+ * with {@link #setTotalWorkUnits(long)} while the estimator is running is treated the same way.</p>
+ *
+ * @param <StopwatchType> The type of stopwatch used for time tracking
+ * @author Sasu
+ */
+public class DiscoveryEstimator<StopwatchType extends StopwatchInterface<StopwatchType>>
+        extends DefaultEstimator<StopwatchType> {
+
+    /**
+     * The default half-life of the completion and discovery rates.
+     */
+    public static final Duration DEFAULT_HALF_LIFE = Duration.ofMinutes(1);
+
+    private final double decayPerNano;
+
+    // guards the decayed rates, which are updated together
+    private final ReentrantLock rateLock = new ReentrantLock();
+    private long lastUpdateNanos;
+    private double decayedTimeNanos;
+    private double decayedCompletedUnits;
+    private double decayedDiscoveredUnits;
+
+    /**
+     * Constructs a new DiscoveryEstimator with the default rate half-life.
+     *
+     * @param stopwatch The stopwatch to use for time tracking
+     */
+    public DiscoveryEstimator(StopwatchType stopwatch) {
+        this(stopwatch, DEFAULT_HALF_LIFE);
+    }
+
+    /**
+     * Constructs a new DiscoveryEstimator with the specified rate half-life.
+     * A shorter half-life adapts faster to changes in the completion and discovery rates,
+     * a longer one gives more stable estimates.
+     *
+     * @param stopwatch The stopwatch to use for time tracking
+     * @param halfLife The time after which the weight of an observation has halved
+     * @throws IllegalArgumentException if halfLife is not positive
+     */
+    public DiscoveryEstimator(StopwatchType stopwatch, Duration halfLife) {
+        super(stopwatch);
+        Objects.requireNonNull(halfLife);
+        if (halfLife.isNegative() || halfLife.isZero()) {
+            throw new IllegalArgumentException("halfLife must be positive");
+        }
+        this.decayPerNano = Math.log(2) / halfLife.toNanos();
+    }
+
+    /**
+     * Records the discovery of new work units, increasing the total amount of work units.
+     *
+     * @param workUnitsDiscovered The amount of newly discovered work units
+     * @throws IllegalArgumentException if workUnitsDiscovered is negative
+     */
+    public void discoverWorkUnits(long workUnitsDiscovered) {
+        if (workUnitsDiscovered < 0) {
+            throw new IllegalArgumentException("workUnitsDiscovered may not be negative");
+        }
+        updateTotalWorkUnits(previous -> {
+            long totalWorkUnits = Math.addExact(previous, workUnitsDiscovered);
+            recordDiscovery(workUnitsDiscovered);
+            return totalWorkUnits;
+        });
+    }
+
+    /**
+     * Sets the total amount of work units. If the estimator is running and the total grows,
+     * the difference is recorded as discovered work.
+     *
+     * @param totalWorkUnits The total amount of work units
+     */
+    @Override
+    public void setTotalWorkUnits(long totalWorkUnits) {
+        if (totalWorkUnits < 0) {
+            throw new IllegalArgumentException("totalWorkUnits may not be negative");
+        }
+        updateTotalWorkUnits(previous -> {
+            recordDiscovery(totalWorkUnits - previous);
+            return totalWorkUnits;
+        });
+    }
+
+    /**
+     * Updates the completion rate before completing the work units, so that the estimate is never
+     * recalculated from the new amount of completed work units and the old rate.
+     *
+     * @param workUnitsCompleted The amount of work units completed
+     */
+    @Override
+    public void completeWorkUnits(long workUnitsCompleted) {
+        long nowNanos = elapsedNanos();
+        rateLock.lock();
+        try {
+            advanceTo(nowNanos);
+            decayedCompletedUnits += workUnitsCompleted;
+        } finally {
+            rateLock.unlock();
+        }
+        try {
+            super.completeWorkUnits(workUnitsCompleted);
+        } catch (RuntimeException e) {
+            rateLock.lock();
+            try {
+                // the completion was added at nowNanos and has decayed since if others advanced further
+                decayedCompletedUnits -= workUnitsCompleted * Math.exp(-decayPerNano * (lastUpdateNanos - nowNanos));
+            } finally {
+                rateLock.unlock();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Records discovered work units in the discovery rate if the estimator is running.
+     * Called while holding the total lock, before the new total becomes visible.
+     */
+    private void recordDiscovery(long discovered) {
+        if (discovered > 0 && getState() == StopwatchState.STARTED) {
+            long nowNanos = elapsedNanos();
+            rateLock.lock();
+            try {
+                advanceTo(nowNanos);
+                decayedDiscoveredUnits += discovered;
+            } finally {
+                rateLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Discards the decayed completion and discovery rates in addition to the rate history of
+     * the base estimator, so that both rates are measured afresh from now on.
+     *
+     * @param completedWorkUnits The amount of work units completed at the point of change
+     * @param elapsed The time elapsed at the point of change
+     */
+    @Override
+    public void resetRateHistory(long completedWorkUnits, Duration elapsed) {
+        long nowNanos = elapsedNanos();
+        rateLock.lock();
+        try {
+            lastUpdateNanos = nowNanos;
+            decayedTimeNanos = 0;
+            decayedCompletedUnits = 0;
+            decayedDiscoveredUnits = 0;
+        } finally {
+            rateLock.unlock();
+        }
+        super.resetRateHistory(completedWorkUnits, elapsed);
+    }
+
+    /**
+     * Calculates the time needed to drain the backlog, taking into account that new work is
+     * still being discovered while the backlog is processed.
+     *
+     * @return The estimated remaining duration, Duration.ZERO if no work remains
+     *         or MAX_DURATION if the work is unbounded or nothing has been completed yet
+     */
+    @Override
+    protected Duration computeRemainingDuration() {
+        long remainingWorkUnits = getRemainingWorkUnits();
+        if (remainingWorkUnits == 0) {
+            return Duration.ZERO;
+        }
+
+        double netRate;
+        long nowNanos = elapsedNanos();
+        rateLock.lock();
+        try {
+            netRate = decayedRate(decayedCompletedUnits, nowNanos) - decayedRate(decayedDiscoveredUnits, nowNanos);
+        } finally {
+            rateLock.unlock();
+        }
+        if (!(netRate > 0)) {
+            return MAX_DURATION;
+        }
+        double remainingNanos = remainingWorkUnits / netRate;
+        if (remainingNanos >= Long.MAX_VALUE) {
+            return MAX_DURATION;
+        }
+        return Duration.ofNanos((long) remainingNanos);
+    }
+
+    /**
+     * Predicts the total amount of work units the process converges to, assuming each completed
+     * work unit keeps discovering new work at the current ratio.
+     *
+     * @return The predicted total, or an empty value if the work is unbounded or
+     *         nothing has been completed yet
+     */
+    public OptionalLong predictedTotalWorkUnits() {
+        long remainingWorkUnits = getRemainingWorkUnits();
+        if (remainingWorkUnits == 0) {
+            return OptionalLong.of(getTotalWorkUnits());
+        }
+
+        double discoveryRatio = getDiscoveryRatio();
+        if (!(discoveryRatio < 1)) {
+            return OptionalLong.empty();
+        }
+        double predictedRemaining = remainingWorkUnits / (1 - discoveryRatio);
+        if (getCompletedWorkUnits() + predictedRemaining >= Long.MAX_VALUE) {
+            return OptionalLong.empty();
+        }
+        return OptionalLong.of(getCompletedWorkUnits() + (long) Math.ceil(predictedRemaining));
+    }
+
+    /**
+     * Returns whether work is being discovered at least as fast as it is completed,
+     * in which case the backlog never drains.
+     *
+     * @return true if the work is currently unbounded
+     */
+    public boolean isUnbounded() {
+        return getRemainingWorkUnits() > 0 && completionRate() > 0 && !(getDiscoveryRatio() < 1);
+    }
+
+    /**
+     * Returns the amount of work units discovered per completed work unit, based on the
+     * current decayed rates.
+     *
+     * @return The discovery ratio, or NaN if nothing has been completed yet
+     */
+    public double getDiscoveryRatio() {
+        long nowNanos = elapsedNanos();
+        rateLock.lock();
+        try {
+            double completionRate = decayedRate(decayedCompletedUnits, nowNanos);
+            if (completionRate == 0) {
+                return Double.NaN;
+            }
+            return decayedRate(decayedDiscoveredUnits, nowNanos) / completionRate;
+        } finally {
+            rateLock.unlock();
+        }
+    }
+
+    /**
+     * Returns the current decayed completion rate.
+     *
+     * @return The amount of work units completed per second
+     */
+    public double getCompletionRatePerSecond() {
+        return completionRate() * 1e9;
+    }
+
+    /**
+     * Returns the current decayed discovery rate.
+     *
+     * @return The amount of work units discovered per second
+     */
+    public double getDiscoveryRatePerSecond() {
+        return discoveryRate() * 1e9;
+    }
+
+    private double completionRate() {
+        long nowNanos = elapsedNanos();
+        rateLock.lock();
+        try {
+            return decayedRate(decayedCompletedUnits, nowNanos);
+        } finally {
+            rateLock.unlock();
+        }
+    }
+
+    private double discoveryRate() {
+        long nowNanos = elapsedNanos();
+        rateLock.lock();
+        try {
+            return decayedRate(decayedDiscoveredUnits, nowNanos);
+        } finally {
+            rateLock.unlock();
+        }
+    }
+
+    /**
+     * Divides a decayed amount of units by the equally decayed time, including the time since the
+     * last update without modifying the state. Must be called while holding the rate lock.
+     */
+    private double decayedRate(double decayedUnits, long nowNanos) {
+        long sinceLastUpdate = Math.max(0, nowNanos - lastUpdateNanos);
+        double decay = Math.exp(-decayPerNano * sinceLastUpdate);
+        double time = decayedTimeNanos * decay + sinceLastUpdate;
+        if (time <= 0) {
+            return 0;
+        }
+        return decayedUnits * decay / time;
+    }
+
+    /**
+     * Decays the rates to the given time. Must be called while holding the rate lock.
+     */
+    private void advanceTo(long nowNanos) {
+        long sinceLastUpdate = Math.max(0, nowNanos - lastUpdateNanos);
+        double decay = Math.exp(-decayPerNano * sinceLastUpdate);
+        decayedTimeNanos = decayedTimeNanos * decay + sinceLastUpdate;
+        decayedCompletedUnits *= decay;
+        decayedDiscoveredUnits *= decay;
+        lastUpdateNanos = Math.max(lastUpdateNanos, nowNanos);
+    }
+
+    private long elapsedNanos() {
+        return getElapsedTime().getDuration().toNanos();
+    }
+}
@@ -0,0 +1,375 @@
+package net.sasu.lib.elapsedtime.estimator;
+
+import net.sasu.lib.time.stopwatch.StopwatchInterface;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * An estimator running several {@link EstimationModel}s side by side, for comparing or blending
+ * estimation methods on a live process.
+ *
+ * <p>Each completion is captured once, with a single read of the stopwatch, into a
+ * {@link SampleBuffer} shared by all models, and all models are updated from it in a single pass.
+ * Running several models therefore costs little more than running one.</p>
+ *
+ * <p>Before a sample is fed to the models, the prediction of each model is scored against it, and
+ * an exponentially weighted average of the relative errors is kept per model. The predictions are
+ * combined either as a weighted average ({@link Combination#WEIGHTED}) or by using the model with
+ * the lowest recent error ({@link Combination#BEST_RECENT_ACCURACY}).</p>
+ *
+ * <p>The models, their scores and the shared samples are guarded by one lock, so completions may be
+ * recorded from any amount of threads concurrently. Models are called while holding it.</p>
+ *
+ * <p>Example usage:</p>
+ * <pre>
+ * {@literal
+ * EnsembleEstimator<Stopwatch> estimator =
+ *         new EnsembleEstimator<>(new Stopwatch(), EnsembleEstimator.Combination.BEST_RECENT_ACCURACY)
+ *                 .addModel(EstimationModel.globalAverage())
+ *                 .addModel(EstimationModel.movingAverage(10))
+ *                 .addModel(EstimationModel.exponentialAverage(0.2));
+ * }
+ * </pre>
+ *
+ * @param <StopwatchType> The type of stopwatch used for time tracking
+ * @author Sasu
+ */
+public class EnsembleEstimator<StopwatchType extends StopwatchInterface<StopwatchType>>
+        extends DefaultEstimator<StopwatchType> {
+
+    /**
+     * How the predictions of the models are combined into one estimate.
+     */
+    public enum Combination {
+        /**
+         * The weighted average of the predictions of all models with a prediction.
+         */
+        WEIGHTED,
+        /**
+         * The prediction of the model with the lowest recent error. Until any model has been
+         * scored, the predictions are combined as with {@link #WEIGHTED}.
+         */
+        BEST_RECENT_ACCURACY
+    }
+
+    /**
+     * The default amount of samples kept in the shared buffer.
+     */
+    public static final int DEFAULT_SAMPLE_CAPACITY = 1024;
+
+    /**
+     * The weight of the newest relative error in the recent error of a model.
+     */
+    public static final double ERROR_SMOOTHING = 0.1;
+
+    private final Combination combination;
+    private final SampleBuffer samples;
+    // guards the samples, the models and their weights and scores, which are updated together
+    private final ReentrantLock modelLock = new ReentrantLock();
+
+    private EstimationModel[] models = new EstimationModel[0];
+    private double[] weights = new double[0];
+    private double[] recentErrors = new double[0];
+    private long lastSampleElapsedNanos;
+
+    /**
+     * Constructs a new EnsembleEstimator with the default sample capacity and no models.
+     *
+     * @param stopwatch The stopwatch to use for time tracking
+     * @param combination How the predictions of the models are combined
+     */
+    public EnsembleEstimator(StopwatchType stopwatch, Combination combination) {
+        this(stopwatch, combination, DEFAULT_SAMPLE_CAPACITY);
+    }
+
+    /**
+     * Constructs a new EnsembleEstimator with no models.
+     *
+     * @param stopwatch The stopwatch to use for time tracking
+     * @param combination How the predictions of the models are combined
+     * @param sampleCapacity The amount of samples kept in the shared buffer
+     * @throws IllegalArgumentException if sampleCapacity is not positive
+     */
+    public EnsembleEstimator(StopwatchType stopwatch, Combination combination, int sampleCapacity) {
+        super(stopwatch);
+        this.combination = Objects.requireNonNull(combination);
+        this.samples = new SampleBuffer(sampleCapacity);
+    }
+
+    /**
+     * Adds a model with weight 1.
+     *
+     * @param model The model to add
+     * @return This estimator
+     * @see #addModel(EstimationModel, double)
+     */
+    public EnsembleEstimator<StopwatchType> addModel(EstimationModel model) {
+        return addModel(model, 1);
+    }
+
+    /**
+     * Adds a model. Models added while the estimator is running are updated from the next completion on.
+     *
+     * @param model The model to add
+     * @param weight The weight of the model in a {@link Combination#WEIGHTED} combination
+     * @return This estimator
+     * @throws IllegalArgumentException if weight is not positive, or the model needs more samples
+     *         than the shared buffer holds
+     */
+    public EnsembleEstimator<StopwatchType> addModel(EstimationModel model, double weight) {
+        Objects.requireNonNull(model);
+        if (!(weight > 0) || Double.isInfinite(weight)) {
+            throw new IllegalArgumentException("weight must be positive");
+        }
+        if (model.getRequiredSamples() > samples.capacity()) {
+            throw new IllegalArgumentException("Model " + model.getName() + " needs " + model.getRequiredSamples()
+                    + " samples but the buffer holds " + samples.capacity());
+        }
+        modelLock.lock();
+        try {
+            int count = models.length;
+            models = Arrays.copyOf(models, count + 1);
+            weights = Arrays.copyOf(weights, count + 1);
+            recentErrors = Arrays.copyOf(recentErrors, count + 1);
+            models[count] = model;
+            weights[count] = weight;
+            recentErrors[count] = Double.NaN;
+        } finally {
+            modelLock.unlock();
+        }
+        invalidateEstimate();
+        return this;
+    }
+
+    /**
+     * Records the applied completion of work units as one sample and updates all models with it.
+     *
+     * @param workUnitsCompleted The amount of work units that were completed
+     */
+    @Override
+    protected void workUnitsApplied(long workUnitsCompleted) {
+        if (workUnitsCompleted == 0) {
+            return;
+        }
+        modelLock.lock();
+        try {
+            // read under the lock, so that the samples are in the order of their elapsed times
+            long elapsedNanos = getElapsedTime().getDuration().toNanos();
+            long durationNanos = Math.max(0, elapsedNanos - lastSampleElapsedNanos);
+            lastSampleElapsedNanos = Math.max(lastSampleElapsedNanos, elapsedNanos);
+            double actualNanosPerUnit = (double) durationNanos / workUnitsCompleted;
+
+            for (int i = 0; i < models.length; i++) {
+                scorePrediction(i, actualNanosPerUnit);
+            }
+            samples.add(workUnitsCompleted, durationNanos);
+            for (EstimationModel model : models) {
+                model.sampleAdded(samples);
+            }
+        } finally {
+            modelLock.unlock();
+        }
+    }
+
+    /**
+     * Must be called while holding the model lock.
+     */
+    private void scorePrediction(int modelIndex, double actualNanosPerUnit) {
+        if (!(actualNanosPerUnit > 0)) {
+            return;
+        }
+        double predicted = models[modelIndex].nanosPerUnit(samples);
+        if (Double.isNaN(predicted)) {
+            return;
+        }
+        double error = Math.abs(predicted - actualNanosPerUnit) / actualNanosPerUnit;
+        double recentError = recentErrors[modelIndex];
+        recentErrors[modelIndex] = Double.isNaN(recentError)
+                ? error
+                : recentError + ERROR_SMOOTHING * (error - recentError);
+    }
+
+    /**
+     * Returns the combined prediction of the duration per work unit.
+     *
+     * @return The predicted duration per work unit in nanoseconds, or NaN if no model has a prediction
+     */
+    public double getNanosPerUnit() {
+        modelLock.lock();
+        try {
+            if (combination == Combination.BEST_RECENT_ACCURACY) {
+                int best = bestModelIndex();
+                if (best >= 0) {
+                    return models[best].nanosPerUnit(samples);
+                }
+            }
+            double weightedSum = 0;
+            double weightSum = 0;
+            for (int i = 0; i < models.length; i++) {
+                double predicted = models[i].nanosPerUnit(samples);
+                if (!Double.isNaN(predicted)) {
+                    weightedSum += weights[i] * predicted;
+                    weightSum += weights[i];
+                }
+            }
+            return weightSum == 0 ? Double.NaN : weightedSum / weightSum;
+        } finally {
+            modelLock.unlock();
+        }
+    }
+
+    /**
+     * Calculates the estimated remaining time from the combined prediction of the models.
+     * Until any model has a prediction, the calculation of {@link BaseEstimator} is used.
+     *
+     * @return The estimated remaining duration
+     */
+    @Override
+    protected Duration computeRemainingDuration() {
+        long remainingWorkUnits = getRemainingWorkUnits();
+        if (remainingWorkUnits == 0) {
+            return Duration.ZERO;
+        }
+        double nanosPerUnit = getNanosPerUnit();
+        if (Double.isNaN(nanosPerUnit)) {
+            return super.computeRemainingDuration();
+        }
+        return toDuration(nanosPerUnit * remainingWorkUnits);
+    }
+
+    /**
+     * Calculates the estimated remaining time using only the given model, for comparing the models.
+     *
+     * @param model A model of this ensemble
+     * @return The estimated remaining duration, or MAX_DURATION if the model has no prediction
+     * @throws IllegalArgumentException if the model is not part of this ensemble
+     */
+    public Duration remainingDuration(EstimationModel model) {
+        double nanosPerUnit;
+        modelLock.lock();
+        try {
+            nanosPerUnit = models[indexOf(model)].nanosPerUnit(samples);
+        } finally {
+            modelLock.unlock();
+        }
+        long remainingWorkUnits = getRemainingWorkUnits();
+        if (remainingWorkUnits == 0) {
+            return Duration.ZERO;
+        }
+        if (Double.isNaN(nanosPerUnit)) {
+            return MAX_DURATION;
+        }
+        return toDuration(nanosPerUnit * remainingWorkUnits);
+    }
+
+    /**
+     * Returns the exponentially weighted average of the relative errors of the predictions of the
+     * given model, 0 meaning the model predicted every recent sample exactly.
+     *
+     * @param model A model of this ensemble
+     * @return The recent relative error of the model, or NaN if the model has not been scored yet
+     * @throws IllegalArgumentException if the model is not part of this ensemble
+     */
+    public double getRecentError(EstimationModel model) {
+        modelLock.lock();
+        try {
+            return recentErrors[indexOf(model)];
+        } finally {
+            modelLock.unlock();
+        }
+    }
+
+    /**
+     * Returns the model with the lowest recent error among the models with a prediction.
+     *
+     * @return The most accurate model, or an empty value if no model has been scored yet
+     */
+    public Optional<EstimationModel> getBestModel() {
+        modelLock.lock();
+        try {
+            int best = bestModelIndex();
+            return best < 0 ? Optional.empty() : Optional.of(models[best]);
+        } finally {
+            modelLock.unlock();
+        }
+    }
+
+    /**
+     * Returns the models of this ensemble in the order they were added.
+     *
+     * @return The models
+     */
+    public List<EstimationModel> getModels() {
+        modelLock.lock();
+        try {
+            return List.of(models);
+        } finally {
+            modelLock.unlock();
+        }
+    }
+
+    /**
+     * Returns how the predictions of the models are combined.
+     *
+     * @return The combination
+     */
+    public Combination getCombination() {
+        return combination;
+    }
+
+    /**
+     * Discards the samples and the state of all models in addition to the rate history of the
+     * base estimator. The recent errors of the models are kept.
+     *
+     * @param completedWorkUnits The amount of work units completed at the point of change
+     * @param elapsed The time elapsed at the point of change
+     */
+    @Override
+    public void resetRateHistory(long completedWorkUnits, Duration elapsed) {
+        modelLock.lock();
+        try {
+            samples.clear();
+            for (EstimationModel model : models) {
+                model.reset();
+            }
+        } finally {
+            modelLock.unlock();
+        }
+        super.resetRateHistory(completedWorkUnits, elapsed);
+    }
+
+    /**
+     * Must be called while holding the model lock.
+     */
+    private int bestModelIndex() {
+        int best = -1;
+        for (int i = 0; i < models.length; i++) {
+            if (!Double.isNaN(recentErrors[i]) && !Double.isNaN(models[i].nanosPerUnit(samples))
+                    && (best < 0 || recentErrors[i] < recentErrors[best])) {
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    private int indexOf(EstimationModel model) {
+        for (int i = 0; i < models.length; i++) {
+            if (models[i] == model) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Model is not part of this ensemble");
+    }
+
+    private static Duration toDuration(double nanos) {
+        if (nanos >= Long.MAX_VALUE) {
+            return MAX_DURATION;
+        }
+        return Duration.ofNanos((long) nanos);
+    }
+}
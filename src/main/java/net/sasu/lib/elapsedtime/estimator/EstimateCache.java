@@ -0,0 +1,68 @@
+package net.sasu.lib.elapsedtime.estimator;
+
+import java.time.Duration;
+
+/**
+ * The last estimate calculated by an estimator, valid until the state of the estimator changes
+ * or a time quantum passes.
+ *
+ * <p>The entry is immutable and published through a volatile field, and the time quantum is
+ * measured in ticks of a {@link TimerWheel}, so that checking the cache needs no locks and no
+ * clock reads. Concurrent calculations simply race to store their result; a result is stored with
+ * the state version read before it was calculated, so a result which is outdated by a concurrent
+ * change never hits.</p>
+ */
+final class EstimateCache {
+
+    private final TimerWheel timerWheel;
+    private final long quantumTicks;
+    private volatile Entry entry;
+
+    /**
+     * Creates an empty cache.
+     *
+     * @param timeQuantum The time after which a cached estimate expires, rounded up to whole ticks
+     * @param timerWheel The timer wheel whose ticks measure the time quantum
+     */
+    EstimateCache(Duration timeQuantum, TimerWheel timerWheel) {
+        long tickNanos = timerWheel.getTickDuration().toNanos();
+        this.timerWheel = timerWheel;
+        this.quantumTicks = Math.max(1, (timeQuantum.toNanos() + tickNanos - 1) / tickNanos);
+    }
+
+    /**
+     * Returns the cached estimate if it was calculated at the given state version and has not expired.
+     *
+     * @param version The current state version of the estimator
+     * @return The cached estimate, or null on a miss
+     */
+    Duration get(long version) {
+        Entry current = entry;
+        if (current != null && current.version == version && timerWheel.getCurrentTick() < current.expiryTick) {
+            return current.remaining;
+        }
+        return null;
+    }
+
+    /**
+     * Stores an estimate.
+     *
+     * @param version The state version of the estimator read before the estimate was calculated
+     * @param remaining The estimate
+     */
+    void put(long version, Duration remaining) {
+        entry = new Entry(version, timerWheel.getCurrentTick() + quantumTicks, remaining);
+    }
+
+    private static final class Entry {
+        final long version;
+        final long expiryTick;
+        final Duration remaining;
+
+        Entry(long version, long expiryTick, Duration remaining) {
+            this.version = version;
+            this.expiryTick = expiryTick;
+            this.remaining = remaining;
+        }
+    }
+}
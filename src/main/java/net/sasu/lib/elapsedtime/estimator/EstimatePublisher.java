@@ -0,0 +1,339 @@
+package net.sasu.lib.elapsedtime.estimator;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A {@link Flow.Publisher} of the estimates of an estimator, for pushing progress to user
+ * interfaces and downstream services instead of polling.
+ *
+ * <p>A new snapshot is published when the estimator has made meaningful progress: when the completed
+ * fraction has changed by at least the configured delta since the last published snapshot, when the
+ * configured interval has passed since the last published snapshot, or when all work has been
+ * completed. Changes of the total are published under the same conditions. Every subscriber receives
+ * the current snapshot when subscribing.</p>
+ *
+ * <p>Subscribers are never buffered: each subscription holds at most the latest undelivered snapshot,
+ * and a newer snapshot replaces it. A slow subscriber therefore sees fewer, but always current,
+ * snapshots. Snapshots are taken and delivered on the configured executor, so the thread calling
+ * {@link BaseEstimator#completeWorkUnits(long)} only decides whether to publish and never calculates
+ * an estimate or blocks. The published snapshots never go backwards: a snapshot older than the last
+ * published one is dropped.</p>
+ *
+ * <p>A subscriber whose {@code onNext} throws is cancelled and the exception is logged. If the executor
+ * rejects a delivery, the subscriber is signalled the rejection with {@code onError}.</p>
+ *
+ * <p>Example usage:</p>
+ * <pre>
+ * {@literal
+ * EstimatePublisher publisher = new EstimatePublisher(estimator);
+ * publisher.subscribe(mySubscriber);
+ * ...
+ * publisher.close(); // completes all subscribers
+ * }
+ * </pre>
+ *
+ * @author Sasu
+ */
+public class EstimatePublisher implements Flow.Publisher<EstimateSnapshot>, ProgressListener, AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EstimatePublisher.class);
+
+    /**
+     * The default change of the completed fraction which triggers publishing.
+     */
+    public static final double DEFAULT_MIN_FRACTION_DELTA = 0.01;
+
+    /**
+     * The default interval after which progress is published regardless of its size.
+     */
+    public static final Duration DEFAULT_MAX_INTERVAL = Duration.ofSeconds(1);
+
+    private final BaseEstimator<?, ?> estimator;
+    private final double minFractionDelta;
+    private final long maxIntervalNanos;
+    private final Executor executor;
+    private final List<ConflatingSubscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    private final AtomicReference<EstimateSnapshot> lastPublished;
+    private final AtomicBoolean publishScheduled = new AtomicBoolean();
+    private volatile boolean closed;
+
+    /**
+     * Creates a publisher for the given estimator using the default thresholds and
+     * delivering on the common fork join pool.
+     *
+     * @param estimator The estimator whose estimates to publish
+     */
+    public EstimatePublisher(BaseEstimator<?, ?> estimator) {
+        this(estimator, DEFAULT_MIN_FRACTION_DELTA, DEFAULT_MAX_INTERVAL, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a publisher for the given estimator.
+     *
+     * @param estimator The estimator whose estimates to publish
+     * @param minFractionDelta The change of the completed fraction which triggers publishing
+     * @param maxInterval The time after which any progress is published
+     * @param executor The executor on which snapshots are delivered to subscribers
+     * @throws IllegalArgumentException if minFractionDelta is negative or maxInterval is negative
+     */
+    public EstimatePublisher(BaseEstimator<?, ?> estimator, double minFractionDelta, Duration maxInterval,
+                             Executor executor) {
+        this.estimator = Objects.requireNonNull(estimator);
+        this.executor = Objects.requireNonNull(executor);
+        Objects.requireNonNull(maxInterval);
+        if (!(minFractionDelta >= 0)) {
+            throw new IllegalArgumentException("minFractionDelta may not be negative");
+        }
+        if (maxInterval.isNegative()) {
+            throw new IllegalArgumentException("maxInterval may not be negative");
+        }
+        this.minFractionDelta = minFractionDelta;
+        this.maxIntervalNanos = maxInterval.toNanos();
+        this.lastPublished = new AtomicReference<>(estimator.snapshot());
+        estimator.addProgressListener(this);
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super EstimateSnapshot> subscriber) {
+        Objects.requireNonNull(subscriber);
+        ConflatingSubscription subscription = new ConflatingSubscription(subscriber);
+        subscriber.onSubscribe(subscription);
+        // a request rejected by the executor terminates the subscription before it is added
+        if (subscription.cancelled || subscription.terminated) {
+            return;
+        }
+        subscriptions.add(subscription);
+        // checked after adding, so that a concurrent close() either completes the subscription or is seen here
+        if (closed) {
+            subscription.complete();
+        } else {
+            subscription.offer(lastPublished.get());
+        }
+    }
+
+    @Override
+    public void workUnitsCompleted(BaseEstimator<?, ?> source, long workUnitsCompleted) {
+        progressChanged();
+    }
+
+    @Override
+    public void totalWorkUnitsChanged(BaseEstimator<?, ?> source, long totalWorkUnits) {
+        progressChanged();
+    }
+
+    /**
+     * Schedules publishing if the progress has changed meaningfully since the last published snapshot.
+     */
+    private void progressChanged() {
+        if (closed || subscriptions.isEmpty()) {
+            return;
+        }
+        EstimateSnapshot previous = lastPublished.get();
+        long totalWorkUnits = estimator.getTotalWorkUnits();
+        long completedWorkUnits = estimator.getCompletedWorkUnits();
+        double fraction = totalWorkUnits == 0 ? 0 : (double) completedWorkUnits / totalWorkUnits;
+
+        boolean meaningful = Math.abs(fraction - previous.getFractionCompleted()) >= minFractionDelta
+                || completedWorkUnits == totalWorkUnits
+                || Duration.between(previous.getTimestamp(), estimator.getInstantSource().instant()).toNanos()
+                        >= maxIntervalNanos;
+        if (meaningful && publishScheduled.compareAndSet(false, true)) {
+            try {
+                executor.execute(this::publishScheduled);
+            } catch (RejectedExecutionException e) {
+                // published here instead, so that the subscribers learn of the rejection
+                publishScheduled();
+            }
+        }
+    }
+
+    private void publishScheduled() {
+        // cleared before the snapshot is taken, so that progress made meanwhile schedules another one
+        publishScheduled.set(false);
+        if (!closed) {
+            publish(estimator.snapshot());
+        }
+    }
+
+    /**
+     * Publishes the current snapshot of the estimator to all subscribers, regardless of the thresholds.
+     */
+    public void publishNow() {
+        if (!closed) {
+            publish(estimator.snapshot());
+        }
+    }
+
+    private void publish(EstimateSnapshot snapshot) {
+        EstimateSnapshot previous;
+        do {
+            previous = lastPublished.get();
+            if (!isNewer(snapshot, previous)) {
+                return;
+            }
+        } while (!lastPublished.compareAndSet(previous, snapshot));
+        for (ConflatingSubscription subscription : subscriptions) {
+            subscription.offer(snapshot);
+        }
+    }
+
+    /**
+     * Returns whether the first snapshot is not older than the second one: it has more completed work
+     * units, or as many and a timestamp not before the other.
+     */
+    private static boolean isNewer(EstimateSnapshot snapshot, EstimateSnapshot other) {
+        if (snapshot.getCompletedWorkUnits() != other.getCompletedWorkUnits()) {
+            return snapshot.getCompletedWorkUnits() > other.getCompletedWorkUnits();
+        }
+        return !snapshot.getTimestamp().isBefore(other.getTimestamp());
+    }
+
+    /**
+     * Stops publishing, detaches from the estimator and completes all subscribers.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        estimator.removeProgressListener(this);
+        for (ConflatingSubscription subscription : subscriptions) {
+            subscription.complete();
+        }
+    }
+
+    /**
+     * Returns the current amount of subscribers.
+     *
+     * @return The amount of subscribers
+     */
+    public int getSubscriberCount() {
+        return subscriptions.size();
+    }
+
+    /**
+     * A subscription holding at most the latest undelivered snapshot.
+     */
+    private final class ConflatingSubscription implements Flow.Subscription {
+
+        private final Flow.Subscriber<? super EstimateSnapshot> subscriber;
+        private final AtomicReference<EstimateSnapshot> latest = new AtomicReference<>();
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger pendingDrains = new AtomicInteger();
+        private volatile boolean completed;
+        private volatile boolean cancelled;
+        private volatile Throwable error;
+        private boolean terminated;
+
+        ConflatingSubscription(Flow.Subscriber<? super EstimateSnapshot> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        void offer(EstimateSnapshot snapshot) {
+            latest.accumulateAndGet(snapshot, (current, offered) ->
+                    current == null || isNewer(offered, current) ? offered : current);
+            scheduleDrain();
+        }
+
+        void complete() {
+            completed = true;
+            scheduleDrain();
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                error = new IllegalArgumentException("Requested amount must be positive, was " + n);
+            } else {
+                demand.accumulateAndGet(n, (current, added) -> {
+                    long sum = current + added;
+                    return sum < 0 ? Long.MAX_VALUE : sum;
+                });
+            }
+            scheduleDrain();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            subscriptions.remove(this);
+        }
+
+        private void scheduleDrain() {
+            if (pendingDrains.getAndIncrement() == 0) {
+                try {
+                    executor.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    // this thread owns the drain until the count is reset, so it may signal the subscriber
+                    if (!terminated && !cancelled) {
+                        terminate();
+                        signal(() -> subscriber.onError(e));
+                    }
+                    pendingDrains.set(0);
+                }
+            }
+        }
+
+        private void drain() {
+            int missed = 1;
+            do {
+                signal(this::deliver);
+                missed = pendingDrains.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        /**
+         * Calls the subscriber, cancelling the subscription if it throws.
+         */
+        private void signal(Runnable signal) {
+            try {
+                signal.run();
+            } catch (RuntimeException e) {
+                cancel();
+                LOGGER.error("Subscriber {} failed and has been cancelled", subscriber, e);
+            }
+        }
+
+        private void deliver() {
+            if (terminated || cancelled) {
+                return;
+            }
+            if (error != null) {
+                terminate();
+                subscriber.onError(error);
+                return;
+            }
+            if (demand.get() > 0) {
+                EstimateSnapshot snapshot = latest.getAndSet(null);
+                if (snapshot != null) {
+                    if (demand.get() != Long.MAX_VALUE) {
+                        demand.decrementAndGet();
+                    }
+                    subscriber.onNext(snapshot);
+                }
+            }
+            if (completed && (latest.get() == null || demand.get() == 0)) {
+                terminate();
+                subscriber.onComplete();
+            }
+        }
+
+        private void terminate() {
+            terminated = true;
+            subscriptions.remove(this);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package net.sasu.lib.elapsedtime.estimator;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+import jdk.jfr.Timespan;
+
+/**
+ * A JDK Flight Recorder event recorded whenever an estimator calculates its remaining time.
+ * The duration of the event is the cost of the calculation.
+ *
+ * <p>The event is disabled by default. Its threshold can be raised to only record
+ * calculations which take longer than expected.</p>
+ *
+ * @author Sasu
+ */
+@Name(EstimateRecomputedEvent.NAME)
+@Label("Estimate Recomputed")
+@Description("Calculation of the remaining time by an estimator")
+@Category({"Time Estimator"})
+@Enabled(false)
+@Threshold("0 ms")
+@StackTrace(false)
+final class EstimateRecomputedEvent extends Event {
+
+    static final String NAME = "net.sasu.lib.elapsedtime.estimator.EstimateRecomputed";
+
+    // only asked whether the event is enabled, so that disabled events cost no allocation
+    private static final EstimateRecomputedEvent PROBE = new EstimateRecomputedEvent();
+
+    @Label("Estimator")
+    String estimator;
+
+    @Label("Completed Work Units")
+    long completedWorkUnits;
+
+    @Label("Total Work Units")
+    long totalWorkUnits;
+
+    @Label("Remaining")
+    @Description("The estimated remaining time, Long.MAX_VALUE if unknown")
+    @Timespan(Timespan.NANOSECONDS)
+    long remaining;
+
+    /**
+     * Returns whether the event is enabled in any running recording, without creating an event.
+     *
+     * @return true if the event is enabled
+     */
+    static boolean enabled() {
+        return PROBE.isEnabled();
+    }
+}
@@ -0,0 +1,144 @@
+package net.sasu.lib.elapsedtime.estimator;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * An immutable, point-in-time view of the progress and the estimate of an estimator.
+ *
+ * <p>Snapshots are cheap to pass between threads and are what consumers which must not touch the
+ * estimator itself, such as publishers, renderers and status endpoints, work with.</p>
+ *
+ * @see BaseEstimator#snapshot()
+ * @author Sasu
+ */
+public final class EstimateSnapshot {
+
+    private final Instant timestamp;
+    private final long totalWorkUnits;
+    private final long completedWorkUnits;
+    private final Duration elapsed;
+    private final Duration remaining;
+
+    /**
+     * Constructs a new EstimateSnapshot.
+     *
+     * @param timestamp The time at which the snapshot was taken
+     * @param totalWorkUnits The total amount of work units
+     * @param completedWorkUnits The amount of completed work units
+     * @param elapsed The elapsed time
+     * @param remaining The estimated remaining time
+     * @throws NullPointerException if timestamp, elapsed or remaining is null
+     */
+    public EstimateSnapshot(Instant timestamp, long totalWorkUnits, long completedWorkUnits,
+                            Duration elapsed, Duration remaining) {
+        this.timestamp = Objects.requireNonNull(timestamp);
+        this.totalWorkUnits = totalWorkUnits;
+        this.completedWorkUnits = completedWorkUnits;
+        this.elapsed = Objects.requireNonNull(elapsed);
+        this.remaining = Objects.requireNonNull(remaining);
+    }
+
+    /**
+     * Returns the time at which the snapshot was taken.
+     *
+     * @return The timestamp of the snapshot
+     */
+    public Instant getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Returns totalWorkUnits
+     * @return The total amount of work units
+     */
+    public long getTotalWorkUnits() {
+        return totalWorkUnits;
+    }
+
+    /**
+     * Returns completedWorkUnits
+     * @return The amount of completed work units
+     */
+    public long getCompletedWorkUnits() {
+        return completedWorkUnits;
+    }
+
+    /**
+     * Returns the amount of work units remaining to be completed.
+     *
+     * @return The amount of remaining work units
+     */
+    public long getRemainingWorkUnits() {
+        return totalWorkUnits - completedWorkUnits;
+    }
+
+    /**
+     * Returns the completed fraction of the work.
+     *
+     * @return The completed fraction between 0 and 1, or 0 if the total is zero
+     */
+    public double getFractionCompleted() {
+        if (totalWorkUnits == 0) {
+            return 0;
+        }
+        return (double) completedWorkUnits / totalWorkUnits;
+    }
+
+    /**
+     * Returns the elapsed time.
+     *
+     * @return The elapsed time
+     */
+    public Duration getElapsed() {
+        return elapsed;
+    }
+
+    /**
+     * Returns the estimated remaining time.
+     *
+     * @return The estimated remaining time, {@link Estimator#MAX_DURATION} if unknown
+     */
+    public Duration getRemaining() {
+        return remaining;
+    }
+
+    /**
+     * Returns the average amount of work units completed per second over the elapsed time.
+     *
+     * @return The amount of work units completed per second
+     */
+    public double getWorkUnitsPerSecond() {
+        long elapsedNanos = elapsed.toNanos();
+        if (elapsedNanos == 0) {
+            return 0;
+        }
+        return completedWorkUnits * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof EstimateSnapshot other)) {
+            return false;
+        }
+        return totalWorkUnits == other.totalWorkUnits && completedWorkUnits == other.completedWorkUnits
+                && timestamp.equals(other.timestamp) && elapsed.equals(other.elapsed)
+                && remaining.equals(other.remaining);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(timestamp, totalWorkUnits, completedWorkUnits, elapsed, remaining);
+    }
+
+    @Override
+    public String toString() {
+        return "EstimateSnapshot{timestamp=" + timestamp + ", totalWorkUnits=" + totalWorkUnits
+                + ", completedWorkUnits=" + completedWorkUnits + ", elapsed=" + elapsed
+                + ", remaining=" + remaining + "}";
+    }
+}
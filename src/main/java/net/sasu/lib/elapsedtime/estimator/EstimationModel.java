@@ -0,0 +1,82 @@
+package net.sasu.lib.elapsedtime.estimator;
+
+/**
+ * A model predicting the duration per work unit from the completion samples of an
+ * {@link EnsembleEstimator}. Models read the samples from the buffer shared by all models
+ * of the ensemble instead of storing their own copies.
+ *
+ * @see EnsembleEstimator
+ * @author Sasu
+ */
+public interface EstimationModel {
+
+    /**
+     * Returns the name of the model, used when reporting on the models of an ensemble.
+     *
+     * @return The name of the model
+     */
+    String getName();
+
+    /**
+     * Returns how many samples, including the newest one, the model needs to be able to read from
+     * the shared buffer. An ensemble only accepts the model if its buffer is large enough.
+     *
+     * @return The amount of samples the model reads back
+     */
+    default int getRequiredSamples() {
+        return 1;
+    }
+
+    /**
+     * Updates the model with the newest sample of the buffer, which is the sample of age 0.
+     *
+     * @param samples The shared sample buffer
+     */
+    void sampleAdded(SampleBuffer samples);
+
+    /**
+     * Returns the predicted duration per work unit.
+     *
+     * @param samples The shared sample buffer
+     * @return The predicted duration per work unit in nanoseconds, or NaN if unknown
+     */
+    double nanosPerUnit(SampleBuffer samples);
+
+    /**
+     * Discards the state of the model, called when the shared buffer is cleared.
+     */
+    void reset();
+
+    /**
+     * Returns a model predicting the average duration per work unit over all samples,
+     * like {@link DefaultEstimator}.
+     *
+     * @return A new global average model
+     */
+    static EstimationModel globalAverage() {
+        return new EstimationModels.GlobalAverage();
+    }
+
+    /**
+     * Returns a model predicting the average duration per work unit over the latest samples,
+     * like {@link BasicEstimator}.
+     *
+     * @param windowSize The amount of latest samples to average
+     * @return A new moving average model
+     * @throws IllegalArgumentException if windowSize is not positive
+     */
+    static EstimationModel movingAverage(int windowSize) {
+        return new EstimationModels.MovingAverage(windowSize);
+    }
+
+    /**
+     * Returns a model predicting an exponentially weighted average of the duration per work unit.
+     *
+     * @param alpha The weight of the newest sample, between 0 (exclusive) and 1 (inclusive)
+     * @return A new exponential average model
+     * @throws IllegalArgumentException if alpha is not between 0 and 1
+     */
+    static EstimationModel exponentialAverage(double alpha) {
+        return new EstimationModels.ExponentialAverage(alpha);
+    }
+}
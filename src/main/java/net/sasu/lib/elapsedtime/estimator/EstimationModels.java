@@ -0,0 +1,121 @@
+package net.sasu.lib.elapsedtime.estimator;
+
+/**
+ * The built-in implementations of {@link EstimationModel}.
+ *
+ * @author Sasu
+ */
+final class EstimationModels {
+
+    private EstimationModels() {
+    }
+
+    static final class GlobalAverage implements EstimationModel {
+
+        @Override
+        public String getName() {
+            return "global average";
+        }
+
+        @Override
+        public void sampleAdded(SampleBuffer samples) {
+            // the buffer keeps the totals
+        }
+
+        @Override
+        public double nanosPerUnit(SampleBuffer samples) {
+            if (samples.getTotalWorkUnits() == 0) {
+                return Double.NaN;
+            }
+            return (double) samples.getTotalDurationNanos() / samples.getTotalWorkUnits();
+        }
+
+        @Override
+        public void reset() {
+            // the buffer keeps the totals
+        }
+    }
+
+    static final class MovingAverage implements EstimationModel {
+
+        private final int windowSize;
+        private int sampleCount;
+        private double nanosPerUnitSum;
+
+        MovingAverage(int windowSize) {
+            if (windowSize <= 0) {
+                throw new IllegalArgumentException("windowSize must be greater than zero");
+            }
+            this.windowSize = windowSize;
+        }
+
+        @Override
+        public String getName() {
+            return "moving average(" + windowSize + ")";
+        }
+
+        @Override
+        public int getRequiredSamples() {
+            // the sample leaving the window is read after the newest one has been added
+            return windowSize + 1;
+        }
+
+        @Override
+        public void sampleAdded(SampleBuffer samples) {
+            nanosPerUnitSum += samples.getNanosPerUnit(0);
+            if (sampleCount == windowSize) {
+                nanosPerUnitSum -= samples.getNanosPerUnit(windowSize);
+            } else {
+                sampleCount++;
+            }
+        }
+
+        @Override
+        public double nanosPerUnit(SampleBuffer samples) {
+            if (sampleCount == 0) {
+                return Double.NaN;
+            }
+            return nanosPerUnitSum / sampleCount;
+        }
+
+        @Override
+        public void reset() {
+            sampleCount = 0;
+            nanosPerUnitSum = 0;
+        }
+    }
+
+    static final class ExponentialAverage implements EstimationModel {
+
+        private final double alpha;
+        private double average = Double.NaN;
+
+        ExponentialAverage(double alpha) {
+            if (!(alpha > 0 && alpha <= 1)) {
+                throw new IllegalArgumentException("alpha must be greater than 0 and at most 1");
+            }
+            this.alpha = alpha;
+        }
+
+        @Override
+        public String getName() {
+            return "exponential average(" + alpha + ")";
+        }
+
+        @Override
+        public void sampleAdded(SampleBuffer samples) {
+            double nanosPerUnit = samples.getNanosPerUnit(0);
+            average = Double.isNaN(average) ? nanosPerUnit : average + alpha * (nanosPerUnit - average);
+        }
+
+        @Override
+        public double nanosPerUnit(SampleBuffer samples) {
+            return average;
+        }
+
+        @Override
+        public void reset() {
+            average = Double.NaN;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package net.sasu.lib.elapsedtime.estimator;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A JDK Flight Recorder event recorded whenever work units are completed.
+ *
+ * <p>The event is disabled by default and can be enabled by name in a recording configuration.</p>
+ *
+ * @author Sasu
+ */
+@Name(EstimatorCheckpointEvent.NAME)
+@Label("Estimator Checkpoint")
+@Description("Work units completed by an estimator")
+@Category({"Time Estimator"})
+@Enabled(false)
+@StackTrace(false)
+final class EstimatorCheckpointEvent extends Event {
+
+    static final String NAME = "net.sasu.lib.elapsedtime.estimator.Checkpoint";
+
+    // only asked whether the event is enabled, so that disabled events cost no allocation
+    private static final EstimatorCheckpointEvent PROBE = new EstimatorCheckpointEvent();
+
+    @Label("Estimator")
+    String estimator;
+
+    @Label("Work Units Completed")
+    @Description("The amount of work units completed at this checkpoint")
+    long workUnitsCompleted;
+
+    @Label("Completed Work Units")
+    long completedWorkUnits;
+
+    @Label("Total Work Units")
+    long totalWorkUnits;
+
+    @Label("Work Units Per Second")
+    @Description("The average rate of completion since the start or the last reset of the rate history")
+    double workUnitsPerSecond;
+
+    /**
+     * Returns whether the event is enabled in any running recording, without creating an event.
+     *
+     * @return true if the event is enabled
+     */
+    static boolean enabled() {
+        return PROBE.isEnabled();
+    }
+}
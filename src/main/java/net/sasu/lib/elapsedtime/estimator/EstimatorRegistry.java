@@ -0,0 +1,68 @@
+package net.sasu.lib.elapsedtime.estimator;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * A registry of named estimators, e.g. all the running jobs of a process, for reporting their
+ * progress in one place such as an {@link EstimatorStatusServer}.
+ *
+ * <p>Estimators may be registered and unregistered from any thread. The estimators are kept in the
+ * order of their names.</p>
+ *
+ * @author Sasu
+ */
+public class EstimatorRegistry {
+
+    private final ConcurrentSkipListMap<String, BaseEstimator<?, ?>> estimators = new ConcurrentSkipListMap<>();
+
+    /**
+     * Registers an estimator under the given name.
+     *
+     * @param name The name of the estimator
+     * @param estimator The estimator to register
+     * @throws IllegalArgumentException if an estimator is already registered under the name
+     */
+    public void register(String name, BaseEstimator<?, ?> estimator) {
+        Objects.requireNonNull(name);
+        Objects.requireNonNull(estimator);
+        if (estimators.putIfAbsent(name, estimator) != null) {
+            throw new IllegalArgumentException("An estimator is already registered as " + name);
+        }
+    }
+
+    /**
+     * Unregisters the estimator with the given name.
+     *
+     * @param name The name of the estimator
+     * @return true if an estimator was registered under the name
+     */
+    public boolean unregister(String name) {
+        return estimators.remove(Objects.requireNonNull(name)) != null;
+    }
+
+    /**
+     * Returns the registered estimators by their names.
+     *
+     * @return An unmodifiable view of the registered estimators
+     */
+    public Map<String, BaseEstimator<?, ?>> getEstimators() {
+        return Collections.unmodifiableMap(estimators);
+    }
+
+    /**
+     * Takes a snapshot of every registered estimator in a single sweep.
+     *
+     * @return The snapshots by the names of their estimators, in the order of the names
+     */
+    public Map<String, EstimateSnapshot> snapshot() {
+        Map<String, EstimateSnapshot> snapshots = new LinkedHashMap<>();
+        for (Map.Entry<String, BaseEstimator<?, ?>> entry : estimators.entrySet()) {
+            snapshots.put(entry.getKey(), entry.getValue().snapshot());
+        }
+        return snapshots;
+    }
+}
@@ -0,0 +1,59 @@
+package net.sasu.lib.elapsedtime.estimator;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * A JDK Flight Recorder event spanning a time in which an estimator made no progress. It is
+ * recorded only if no progress was made for longer than the threshold: when the next work units are
+ * completed, or, while the estimator is still stalled, by a check on the
+ * {@link TimerWheel#shared() shared timer wheel} within a tick after the stall exceeded the threshold.
+ * A stall recorded while ongoing ends at that check and is not recorded again.
+ *
+ * <p>The event is disabled by default.</p>
+ *
+ * @author Sasu
+ */
+@Name(EstimatorStallEvent.NAME)
+@Label("Estimator Stall")
+@Description("Time without progress between two completions of an estimator")
+@Category({"Time Estimator"})
+@Enabled(false)
+@Threshold("1 s")
+@StackTrace(false)
+final class EstimatorStallEvent extends Event {
+
+    static final String NAME = "net.sasu.lib.elapsedtime.estimator.Stall";
+
+    // only asked whether the event is enabled, so that disabled events cost no allocation
+    private static final EstimatorStallEvent PROBE = new EstimatorStallEvent();
+
+    @Label("Estimator")
+    String estimator;
+
+    @Label("Completed Work Units")
+    @Description("The amount of completed work units when the stall was recorded")
+    long completedWorkUnits;
+
+    @Label("Total Work Units")
+    long totalWorkUnits;
+
+    @Label("Ongoing")
+    @Description("Whether the estimator was still stalled when the stall was recorded")
+    boolean ongoing;
+
+    /**
+     * Returns whether the event is enabled in any running recording, without creating an event.
+     *
+     * @return true if the event is enabled
+     */
+    static boolean enabled() {
+        return PROBE.isEnabled();
+    }
+}
@@ -0,0 +1,235 @@
+package net.sasu.lib.elapsedtime.estimator;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * An immutable snapshot of the state of one estimator, used to combine the progress of a job which
+ * is sharded across many estimators, possibly running in different processes.
+ *
+ * <p>A state is identified by the id of the shard it describes and ordered by a sequence number
+ * which the shard increments for every snapshot it publishes. The state contains the work unit
+ * counts, the elapsed time and the rate model of the shard: the recent duration per work unit for
+ * estimators which keep a moving window, or the overall average otherwise.</p>
+ *
+ * <p>States are combined with {@link MergedEstimatorState}, which also defines the binary wire format.</p>
+ *
+ * @author Sasu
+ */
+public final class EstimatorState implements Comparable<EstimatorState> {
+
+    /**
+     * The size of one encoded state in bytes.
+     */
+    static final int ENCODED_SIZE = 6 * Long.BYTES;
+
+    private final long shardId;
+    private final long sequence;
+    private final long totalWorkUnits;
+    private final long completedWorkUnits;
+    private final long elapsedNanos;
+    private final double nanosPerUnit;
+
+    /**
+     * Constructs a new EstimatorState.
+     *
+     * @param shardId The id of the shard this state describes
+     * @param sequence The sequence number of this state within its shard, higher is newer
+     * @param totalWorkUnits The total amount of work units of the shard
+     * @param completedWorkUnits The amount of work units completed by the shard
+     * @param elapsedNanos The time elapsed in the shard in nanoseconds
+     * @param nanosPerUnit The duration per work unit the shard currently estimates with, or NaN if unknown
+     * @throws IllegalArgumentException if the counts or the elapsed time are invalid
+     */
+    public EstimatorState(long shardId, long sequence, long totalWorkUnits, long completedWorkUnits,
+                          long elapsedNanos, double nanosPerUnit) {
+        if (completedWorkUnits < 0 || completedWorkUnits > totalWorkUnits) {
+            throw new IllegalArgumentException("completedWorkUnits must be between 0 and " + totalWorkUnits);
+        }
+        if (elapsedNanos < 0) {
+            throw new IllegalArgumentException("elapsedNanos may not be negative");
+        }
+        this.shardId = shardId;
+        this.sequence = sequence;
+        this.totalWorkUnits = totalWorkUnits;
+        this.completedWorkUnits = completedWorkUnits;
+        this.elapsedNanos = elapsedNanos;
+        this.nanosPerUnit = nanosPerUnit;
+    }
+
+    /**
+     * Captures the current state of an estimator. For a {@link BasicEstimator} with measurements the
+     * moving average is used as the rate model, otherwise the overall average duration per work unit.
+     *
+     * @param shardId The id of the shard the estimator belongs to
+     * @param sequence The sequence number of this snapshot, which must grow with every snapshot of the shard
+     * @param estimator The estimator to capture
+     * @return The captured state
+     */
+    public static EstimatorState of(long shardId, long sequence, BaseEstimator<?, ?> estimator) {
+        Objects.requireNonNull(estimator);
+        long completed = estimator.getCompletedWorkUnits();
+        long elapsedNanos = estimator.getElapsedTime().getDuration().toNanos();
+
+        double nanosPerUnit = Double.NaN;
+        if (estimator instanceof BasicEstimator basicEstimator && basicEstimator.getCurrentMeasurementCount() > 0) {
+            nanosPerUnit = basicEstimator.getAverageNanosPerUnit();
+        } else if (completed > 0) {
+            nanosPerUnit = (double) elapsedNanos / completed;
+        }
+        return new EstimatorState(shardId, sequence, estimator.getTotalWorkUnits(), completed, elapsedNanos,
+                nanosPerUnit);
+    }
+
+    /**
+     * Returns the estimated remaining time of this shard.
+     *
+     * @return The estimated remaining duration, Duration.ZERO if no work remains
+     *         or MAX_DURATION if the rate of the shard is unknown
+     */
+    public Duration remainingDuration() {
+        long remainingWorkUnits = getRemainingWorkUnits();
+        if (remainingWorkUnits == 0) {
+            return Duration.ZERO;
+        }
+        if (!(nanosPerUnit > 0)) {
+            return Estimator.MAX_DURATION;
+        }
+        double remainingNanos = nanosPerUnit * remainingWorkUnits;
+        if (remainingNanos >= Long.MAX_VALUE) {
+            return Estimator.MAX_DURATION;
+        }
+        return Duration.ofNanos(Math.round(remainingNanos));
+    }
+
+    void writeTo(ByteBuffer buffer) {
+        buffer.putLong(shardId)
+                .putLong(sequence)
+                .putLong(totalWorkUnits)
+                .putLong(completedWorkUnits)
+                .putLong(elapsedNanos)
+                .putDouble(nanosPerUnit);
+    }
+
+    static EstimatorState readFrom(ByteBuffer buffer) throws BufferUnderflowException {
+        return new EstimatorState(buffer.getLong(), buffer.getLong(), buffer.getLong(), buffer.getLong(),
+                buffer.getLong(), buffer.getDouble());
+    }
+
+    /**
+     * Orders states of the same shard from oldest to newest. Ties between states with the same
+     * sequence number are broken by their contents, so that the newest state is always well-defined.
+     * The shard id breaks the remaining ties, which keeps the ordering consistent with
+     * {@link #equals(Object)}; it is irrelevant when comparing states of the same shard.
+     *
+     * @param other The state to compare to
+     * @return a negative integer, zero, or a positive integer as this state is older than, equal to, or newer
+     *         than the other state
+     */
+    @Override
+    public int compareTo(EstimatorState other) {
+        int result = Long.compare(sequence, other.sequence);
+        if (result == 0) {
+            result = Long.compare(completedWorkUnits, other.completedWorkUnits);
+        }
+        if (result == 0) {
+            result = Long.compare(elapsedNanos, other.elapsedNanos);
+        }
+        if (result == 0) {
+            result = Long.compare(totalWorkUnits, other.totalWorkUnits);
+        }
+        if (result == 0) {
+            result = Double.compare(nanosPerUnit, other.nanosPerUnit);
+        }
+        if (result == 0) {
+            result = Long.compare(shardId, other.shardId);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the id of the shard this state describes.
+     *
+     * @return The shard id
+     */
+    public long getShardId() {
+        return shardId;
+    }
+
+    /**
+     * Returns the sequence number of this state within its shard.
+     *
+     * @return The sequence number
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Returns totalWorkUnits
+     * @return The total amount of work units of the shard
+     */
+    public long getTotalWorkUnits() {
+        return totalWorkUnits;
+    }
+
+    /**
+     * Returns completedWorkUnits
+     * @return The amount of work units completed by the shard
+     */
+    public long getCompletedWorkUnits() {
+        return completedWorkUnits;
+    }
+
+    /**
+     * Returns the amount of work units remaining in the shard.
+     *
+     * @return The amount of remaining work units
+     */
+    public long getRemainingWorkUnits() {
+        return totalWorkUnits - completedWorkUnits;
+    }
+
+    /**
+     * Returns the time elapsed in the shard.
+     *
+     * @return The elapsed time in nanoseconds
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Returns the duration per work unit the shard estimates with.
+     *
+     * @return The duration per work unit in nanoseconds, or NaN if unknown
+     */
+    public double getNanosPerUnit() {
+        return nanosPerUnit;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof EstimatorState other)) {
+            return false;
+        }
+        return compareTo(other) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(shardId, sequence, totalWorkUnits, completedWorkUnits, elapsedNanos, nanosPerUnit);
+    }
+
+    @Override
+    public String toString() {
+        return "EstimatorState{shardId=" + shardId + ", sequence=" + sequence + ", totalWorkUnits=" + totalWorkUnits
+                + ", completedWorkUnits=" + completedWorkUnits + ", elapsedNanos=" + elapsedNanos
+                + ", nanosPerUnit=" + nanosPerUnit + "}";
+    }
+}
@@ -0,0 +1,283 @@
+package net.sasu.lib.elapsedtime.estimator;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * An embedded HTTP server reporting the progress of all the estimators of an {@link EstimatorRegistry},
+ * so that e.g. {@code curl localhost:8080/progress} shows the remaining time of every running job.
+ *
+ * <p>{@value #PATH} responds with JSON, and {@value #PATH}{@code ?format=text} with a plain-text
+ * table. Each response is rendered from a single sweep of {@link EstimateSnapshot}s. Taking a snapshot
+ * calculates the estimate of an estimator: for a {@link DefaultEstimator} this only reads volatile
+ * state, but {@link BasicEstimator}, {@link EnsembleEstimator} and {@link DiscoveryEstimator} briefly
+ * take the lock their completing threads also take, and a {@link PipelineEstimator} applies the
+ * pending completions of its last stage. Scraping these contends with the threads completing work;
+ * with {@link BaseEstimator#enableEstimateCache(Duration) the estimate cache} enabled it does so at
+ * most once per time quantum. The responses are encoded into pooled, reusable buffers, so frequent
+ * scraping creates little garbage.</p>
+ *
+ * <p>Requests are handled on virtual threads when the runtime supports them, and on a pool of daemon
+ * threads otherwise.</p>
+ *
+ * <p>Example usage:</p>
+ * <pre>
+ * {@literal
+ * EstimatorStatusServer server = new EstimatorStatusServer(registry, 8080);
+ * server.start();
+ * ...
+ * server.close();
+ * }
+ * </pre>
+ *
+ * @author Sasu
+ */
+public class EstimatorStatusServer implements AutoCloseable {
+
+    /**
+     * The path the progress is served at.
+     */
+    public static final String PATH = "/progress";
+
+    private static final int MAX_POOLED_BUFFER_SIZE = 1 << 20;
+
+    private final EstimatorRegistry registry;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Queue<ResponseWriter> writers = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Creates a server listening on the given port of the loopback address. The server is started with
+     * {@link #start()}.
+     *
+     * @param registry The estimators to report
+     * @param port The port to listen on, 0 for any free port
+     * @throws IOException if the port cannot be bound
+     */
+    public EstimatorStatusServer(EstimatorRegistry registry, int port) throws IOException {
+        this(registry, new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+    }
+
+    /**
+     * Creates a server listening on the given address. The server is started with {@link #start()}.
+     *
+     * @param registry The estimators to report
+     * @param address The address to listen on
+     * @throws IOException if the address cannot be bound
+     */
+    public EstimatorStatusServer(EstimatorRegistry registry, InetSocketAddress address) throws IOException {
+        this.registry = Objects.requireNonNull(registry);
+        this.server = HttpServer.create(Objects.requireNonNull(address), 0);
+        this.executor = newExecutor();
+        server.setExecutor(executor);
+        server.createContext(PATH, this::handle);
+    }
+
+    private static ExecutorService newExecutor() {
+        try {
+            // virtual threads are only available from Java 21 on
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "time-estimator-status-server");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Starts serving requests.
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Returns the address the server listens on, e.g. to find out the port chosen for port 0.
+     *
+     * @return The address of the server
+     */
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    /**
+     * Stops the server, waiting for no requests.
+     */
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String method = exchange.getRequestMethod();
+            if (!method.equals("GET") && !method.equals("HEAD")) {
+                exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            if (!exchange.getRequestURI().getPath().equals(PATH)) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            boolean text = "format=text".equals(exchange.getRequestURI().getQuery());
+
+            Map<String, EstimateSnapshot> snapshots = registry.snapshot();
+            ResponseWriter writer = writers.poll();
+            if (writer == null) {
+                writer = new ResponseWriter();
+            }
+            try {
+                ByteBuffer body = text ? writer.writeText(snapshots) : writer.writeJson(snapshots);
+                exchange.getResponseHeaders().set("Content-Type",
+                        text ? "text/plain; charset=utf-8" : "application/json; charset=utf-8");
+                if (method.equals("HEAD")) {
+                    exchange.sendResponseHeaders(200, -1);
+                } else {
+                    exchange.sendResponseHeaders(200, body.remaining());
+                    exchange.getResponseBody().write(body.array(), body.position(), body.remaining());
+                }
+            } finally {
+                if (writer.encoder.capacity() <= MAX_POOLED_BUFFER_SIZE) {
+                    writers.offer(writer);
+                }
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Renders responses into a reusable text and byte buffer.
+     */
+    static final class ResponseWriter {
+
+        private static final String[] TEXT_HEADERS = {"COMPLETED", "TOTAL", "PERCENT", "RATE/S", "ELAPSED", "ETA"};
+
+        private final StringBuilder text = new StringBuilder();
+        private final TextEncoder encoder = new TextEncoder(4096);
+
+        ByteBuffer writeJson(Map<String, EstimateSnapshot> snapshots) {
+            text.setLength(0);
+            text.append("{\"estimators\":[");
+            boolean first = true;
+            for (Map.Entry<String, EstimateSnapshot> entry : snapshots.entrySet()) {
+                EstimateSnapshot snapshot = entry.getValue();
+                if (!first) {
+                    text.append(',');
+                }
+                first = false;
+                text.append("{\"name\":");
+                appendJsonString(entry.getKey());
+                text.append(",\"timestamp\":\"").append(snapshot.getTimestamp())
+                        .append("\",\"totalWorkUnits\":").append(snapshot.getTotalWorkUnits())
+                        .append(",\"completedWorkUnits\":").append(snapshot.getCompletedWorkUnits())
+                        .append(",\"fractionCompleted\":").append(snapshot.getFractionCompleted())
+                        .append(",\"workUnitsPerSecond\":").append(snapshot.getWorkUnitsPerSecond())
+                        .append(",\"elapsedMillis\":").append(snapshot.getElapsed().toMillis())
+                        .append(",\"remainingMillis\":");
+                if (snapshot.getRemaining().equals(Estimator.MAX_DURATION)) {
+                    text.append("null");
+                } else {
+                    text.append(snapshot.getRemaining().toMillis());
+                }
+                text.append('}');
+            }
+            text.append("]}\n");
+            return encode();
+        }
+
+        private void appendJsonString(String value) {
+            text.append('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"' || c == '\\') {
+                    text.append('\\').append(c);
+                } else if (c < 0x20) {
+                    text.append("\\u00").append(Character.forDigit(c >> 4, 16)).append(Character.forDigit(c & 0xF, 16));
+                } else {
+                    text.append(c);
+                }
+            }
+            text.append('"');
+        }
+
+        ByteBuffer writeText(Map<String, EstimateSnapshot> snapshots) {
+            int nameWidth = "NAME".length();
+            for (String name : snapshots.keySet()) {
+                nameWidth = Math.max(nameWidth, name.length());
+            }
+
+            text.setLength(0);
+            int start = text.length();
+            text.append("NAME");
+            padRight(start, nameWidth);
+            for (String header : TEXT_HEADERS) {
+                appendColumn(header);
+            }
+            text.append('\n');
+
+            for (Map.Entry<String, EstimateSnapshot> entry : snapshots.entrySet()) {
+                EstimateSnapshot snapshot = entry.getValue();
+                start = text.length();
+                text.append(entry.getKey());
+                padRight(start, nameWidth);
+                appendColumn(Long.toString(snapshot.getCompletedWorkUnits()));
+                appendColumn(Long.toString(snapshot.getTotalWorkUnits()));
+                long tenths = Math.round(snapshot.getFractionCompleted() * 1000);
+                appendColumn(tenths / 10 + "." + tenths % 10 + "%");
+                tenths = Math.round(snapshot.getWorkUnitsPerSecond() * 10);
+                appendColumn(tenths / 10 + "." + tenths % 10);
+                appendColumn(snapshot.getElapsed());
+                appendColumn(snapshot.getRemaining());
+                text.append('\n');
+            }
+            return encode();
+        }
+
+        private void appendColumn(String value) {
+            text.append("  ");
+            int start = text.length();
+            text.append(value);
+            padLeft(start, 12);
+        }
+
+        private void appendColumn(Duration duration) {
+            text.append("  ");
+            int start = text.length();
+            ConsoleProgressRenderer.appendDuration(text, duration);
+            padLeft(start, 12);
+        }
+
+        private void padLeft(int start, int length) {
+            while (text.length() - start < length) {
+                text.insert(start, ' ');
+            }
+        }
+
+        private void padRight(int start, int length) {
+            while (text.length() - start < length) {
+                text.append(' ');
+            }
+        }
+
+        private ByteBuffer encode() {
+            return encoder.encode(text);
+        }
+    }
+}
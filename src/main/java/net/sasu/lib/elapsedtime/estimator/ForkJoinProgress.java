@@ -0,0 +1,256 @@
+package net.sasu.lib.elapsedtime.estimator;
+
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Reports the progress of divide-and-conquer {@link java.util.concurrent.ForkJoinTask}s to an
+ * estimator without making the leaves contend on it.
+ *
+ * <p>The work is handed down the task tree as {@link Share}s of the total budget: the root task gets
+ * the {@link #root() root share}, and each task splits its share between its subtasks. Leaves
+ * complete work units of their share, which are accumulated in a counter of the worker thread
+ * running them, indexed by {@link ForkJoinWorkerThread#getPoolIndex()} and padded against false
+ * sharing. A worker publishes its counter to the estimator once it reaches the batch size, and
+ * {@link #flush()} publishes all counters, e.g. after joining. Publishing is serialized with a lock,
+ * so the estimator itself is only ever updated by one thread at a time.</p>
+ *
+ * <p>Shares never complete more than their budget, so the published progress never exceeds the
+ * total even if leaves report inexactly.</p>
+ *
+ * <p>Example usage:</p>
+ * <pre>
+ * {@literal
+ * estimator.initAndStart(items.length);
+ * ForkJoinProgress progress = new ForkJoinProgress(estimator, pool, 1000);
+ * pool.invoke(new SumTask(items, 0, items.length, progress.root()));
+ * progress.flush();
+ *
+ * // in SumTask.compute():
+ * if (to - from <= THRESHOLD) {
+ *     ... share.complete(1) for each item ...
+ * } else {
+ *     SumTask left = new SumTask(items, from, middle, share.split(middle - from));
+ *     left.fork();
+ *     long right = new SumTask(items, middle, to, share).compute();
+ *     return right + left.join();
+ * }
+ * }
+ * </pre>
+ *
+ * @author Sasu
+ */
+public class ForkJoinProgress {
+
+    /**
+     * The default amount of work units a worker accumulates before publishing them.
+     */
+    public static final long DEFAULT_BATCH_SIZE = 1024;
+
+    // 16 longs = 128 bytes, two cache lines, so that adjacent prefetching does not cause false sharing either
+    private static final int STRIDE = 16;
+    private static final int SHARED_SLOT = 0;
+
+    private final BaseEstimator<?, ?> estimator;
+    private final long batchSize;
+    private final int workerSlots;
+    private final AtomicLongArray counters;
+    private final ReentrantLock publishLock = new ReentrantLock();
+
+    /**
+     * Creates a helper publishing to the given estimator in batches of the default size.
+     *
+     * @param estimator The estimator to publish to, initialized with the total work units
+     * @param pool The pool running the tasks, used for sizing the worker counters
+     */
+    public ForkJoinProgress(BaseEstimator<?, ?> estimator, ForkJoinPool pool) {
+        this(estimator, pool, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Creates a helper publishing to the given estimator.
+     *
+     * @param estimator The estimator to publish to, initialized with the total work units
+     * @param pool The pool running the tasks, used for sizing the worker counters
+     * @param batchSize The amount of work units a worker accumulates before publishing them
+     * @throws IllegalArgumentException if batchSize is not positive
+     */
+    public ForkJoinProgress(BaseEstimator<?, ?> estimator, ForkJoinPool pool, long batchSize) {
+        this.estimator = Objects.requireNonNull(estimator);
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be greater than zero");
+        }
+        this.batchSize = batchSize;
+        // pools may add compensating workers while tasks block in join
+        this.workerSlots = 2 * pool.getParallelism();
+        this.counters = new AtomicLongArray((workerSlots + 1) * STRIDE);
+    }
+
+    /**
+     * Returns a share of all the remaining work units of the estimator, for the root task.
+     *
+     * @return The root share
+     */
+    public Share root() {
+        return new Share(Math.max(0, estimator.getRemainingWorkUnits()));
+    }
+
+    /**
+     * Returns a share of the given budget, e.g. for one of several independently submitted root tasks.
+     *
+     * @param budget The amount of work units of the share
+     * @return A new share
+     * @throws IllegalArgumentException if budget is negative
+     */
+    public Share share(long budget) {
+        if (budget < 0) {
+            throw new IllegalArgumentException("budget may not be negative");
+        }
+        return new Share(budget);
+    }
+
+    /**
+     * Publishes the work units accumulated by all workers to the estimator. May be called at any time
+     * from any thread.
+     */
+    public void flush() {
+        for (int slot = 0; slot <= workerSlots; slot++) {
+            long units = counters.getAndSet(slot * STRIDE, 0);
+            if (units != 0) {
+                publish(units);
+            }
+        }
+    }
+
+    /**
+     * Returns the estimator published to.
+     *
+     * @return The estimator
+     */
+    public BaseEstimator<?, ?> getEstimator() {
+        return estimator;
+    }
+
+    private int currentSlot() {
+        Thread thread = Thread.currentThread();
+        if (thread instanceof ForkJoinWorkerThread) {
+            int poolIndex = ((ForkJoinWorkerThread) thread).getPoolIndex();
+            if (poolIndex < workerSlots) {
+                return poolIndex + 1;
+            }
+        }
+        return SHARED_SLOT;
+    }
+
+    private void add(int slot, long units) {
+        int index = slot * STRIDE;
+        if (counters.addAndGet(index, units) >= batchSize) {
+            long batch = counters.getAndSet(index, 0);
+            if (batch != 0) {
+                publish(batch);
+            }
+        }
+    }
+
+    private void publish(long units) {
+        publishLock.lock();
+        try {
+            estimator.completeWorkUnits(units);
+        } finally {
+            publishLock.unlock();
+        }
+    }
+
+    /**
+     * A share of the work budget owned by one task. A share is not thread-safe: it is used by the task
+     * it was handed to, and split for the subtasks it forks.
+     */
+    public final class Share {
+
+        private long remaining;
+        private int slot = -1;
+
+        private Share(long budget) {
+            this.remaining = budget;
+        }
+
+        /**
+         * Returns the amount of work units of this share not yet completed or split off.
+         *
+         * @return The remaining budget
+         */
+        public long getRemaining() {
+            return remaining;
+        }
+
+        /**
+         * Splits the remaining budget into the given amount of shares as evenly as possible. This
+         * share has no budget left afterwards.
+         *
+         * @param parts The amount of shares
+         * @return The shares
+         * @throws IllegalArgumentException if parts is not positive
+         */
+        public Share[] split(int parts) {
+            if (parts <= 0) {
+                throw new IllegalArgumentException("parts must be greater than zero");
+            }
+            Share[] shares = new Share[parts];
+            long quotient = remaining / parts;
+            long remainder = remaining % parts;
+            for (int i = 0; i < parts; i++) {
+                shares[i] = new Share(quotient + (i < remainder ? 1 : 0));
+            }
+            remaining = 0;
+            return shares;
+        }
+
+        /**
+         * Moves the given amount of work units of this share into a new share, e.g. for a subtask
+         * whose size is known.
+         *
+         * @param units The budget of the new share, at most the remaining budget of this share
+         * @return The new share
+         * @throws IllegalArgumentException if units is negative or greater than the remaining budget
+         */
+        public Share split(long units) {
+            if (units < 0 || units > remaining) {
+                throw new IllegalArgumentException("units must be between 0 and " + remaining);
+            }
+            remaining -= units;
+            return new Share(units);
+        }
+
+        /**
+         * Completes work units of this share. Work units beyond the remaining budget are ignored.
+         *
+         * @param units The amount of completed work units
+         * @throws IllegalArgumentException if units is negative
+         */
+        public void complete(long units) {
+            if (units < 0) {
+                throw new IllegalArgumentException("units may not be negative");
+            }
+            units = Math.min(units, remaining);
+            if (units == 0) {
+                return;
+            }
+            remaining -= units;
+            if (slot < 0) {
+                // a task runs on one worker until it returns, so the slot can be looked up once
+                slot = currentSlot();
+            }
+            add(slot, units);
+        }
+
+        /**
+         * Completes the remaining budget of this share, e.g. when a leaf is done.
+         */
+        public void completeRemaining() {
+            complete(remaining);
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package net.sasu.lib.elapsedtime.estimator;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed-memory histogram of durations with log-linear buckets, in the style of HdrHistogram.
+ *
+ * <p>Values below 2<sup>precisionBits</sup> nanoseconds get a bucket each. Every power of two above
+ * that is split into 2<sup>precisionBits</sup> buckets of equal width, so every recorded value is
+ * known with a relative error of at most 2<sup>-precisionBits</sup>, e.g. below 1% with the default
+ * 7 bits. The whole range of {@code long} is covered, so no value is ever out of range, and the memory
+ * use only depends on the precision: {@code (64 - precisionBits) * 2^precisionBits} counters.</p>
+ *
+ * <p>Recording a value computes its bucket with a few bit operations and increments a counter
+ * atomically, so any amount of threads may record concurrently without locks. Reading is done
+ * through {@link Snapshot}s, which can be subtracted from each other for interval reporting.</p>
+ *
+ * @see UnitLatencyRecorder
+ * @author Sasu
+ */
+public class LatencyHistogram {
+
+    /**
+     * The default amount of bits of precision, giving a relative error below 1%.
+     */
+    public static final int DEFAULT_PRECISION_BITS = 7;
+
+    /**
+     * The minimum amount of bits of precision.
+     */
+    public static final int MIN_PRECISION_BITS = 1;
+
+    /**
+     * The maximum amount of bits of precision.
+     */
+    public static final int MAX_PRECISION_BITS = 16;
+
+    private final int precisionBits;
+    private final AtomicLongArray counts;
+
+    /**
+     * Creates a histogram with the default precision.
+     */
+    public LatencyHistogram() {
+        this(DEFAULT_PRECISION_BITS);
+    }
+
+    /**
+     * Creates a histogram with the given precision.
+     *
+     * @param precisionBits The amount of bits of precision, the relative error being 2^-precisionBits
+     * @throws IllegalArgumentException if precisionBits is not between {@link #MIN_PRECISION_BITS}
+     *         and {@link #MAX_PRECISION_BITS}
+     */
+    public LatencyHistogram(int precisionBits) {
+        if (precisionBits < MIN_PRECISION_BITS || precisionBits > MAX_PRECISION_BITS) {
+            throw new IllegalArgumentException(
+                    "precisionBits must be between " + MIN_PRECISION_BITS + " and " + MAX_PRECISION_BITS);
+        }
+        this.precisionBits = precisionBits;
+        this.counts = new AtomicLongArray(bucketCount(precisionBits));
+    }
+
+    /**
+     * Records a duration.
+     *
+     * @param nanos The duration in nanoseconds, negative values are recorded as zero
+     */
+    public void record(long nanos) {
+        counts.incrementAndGet(bucketIndex(Math.max(0, nanos), precisionBits));
+    }
+
+    /**
+     * Records a duration several times, e.g. the average duration of work units completed together.
+     *
+     * @param nanos The duration in nanoseconds, negative values are recorded as zero
+     * @param count How many times to record the duration
+     * @throws IllegalArgumentException if count is negative
+     */
+    public void record(long nanos, long count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("count may not be negative");
+        }
+        if (count > 0) {
+            counts.addAndGet(bucketIndex(Math.max(0, nanos), precisionBits), count);
+        }
+    }
+
+    /**
+     * Copies the current counts. Values recorded concurrently with taking the snapshot may or may
+     * not be included.
+     *
+     * @return A snapshot of this histogram
+     */
+    public Snapshot snapshot() {
+        long[] copy = new long[counts.length()];
+        for (int i = 0; i < copy.length; i++) {
+            copy[i] = counts.get(i);
+        }
+        return new Snapshot(precisionBits, copy);
+    }
+
+    /**
+     * Returns the amount of bits of precision.
+     *
+     * @return The amount of bits of precision
+     */
+    public int getPrecisionBits() {
+        return precisionBits;
+    }
+
+    static int bucketCount(int precisionBits) {
+        return (64 - precisionBits) << precisionBits;
+    }
+
+    static int bucketIndex(long value, int precisionBits) {
+        long subBuckets = 1L << precisionBits;
+        if (value < subBuckets) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - precisionBits;
+        return (int) (((long) (shift + 1) << precisionBits) + (value >>> shift) - subBuckets);
+    }
+
+    static long lowestValue(int index, int precisionBits) {
+        int subBuckets = 1 << precisionBits;
+        if (index < subBuckets) {
+            return index;
+        }
+        int shift = (index >>> precisionBits) - 1;
+        long subBucket = index & (subBuckets - 1);
+        return (subBuckets + subBucket) << shift;
+    }
+
+    static long highestValue(int index, int precisionBits) {
+        int subBuckets = 1 << precisionBits;
+        if (index < subBuckets) {
+            return index;
+        }
+        int shift = (index >>> precisionBits) - 1;
+        return lowestValue(index, precisionBits) + (1L << shift) - 1;
+    }
+
+    /**
+     * An immutable copy of the counts of a {@link LatencyHistogram}.
+     */
+    public static final class Snapshot {
+
+        private final int precisionBits;
+        private final long[] counts;
+        private final long totalCount;
+
+        Snapshot(int precisionBits, long[] counts) {
+            this.precisionBits = precisionBits;
+            this.counts = counts;
+            long total = 0;
+            for (long count : counts) {
+                total += count;
+            }
+            this.totalCount = total;
+        }
+
+        /**
+         * Returns the amount of recorded values.
+         *
+         * @return The amount of recorded values
+         */
+        public long getTotalCount() {
+            return totalCount;
+        }
+
+        /**
+         * Returns the value below or at which the given percentage of the recorded values lie.
+         * The value is the highest value of its bucket, so it is never below the actual percentile.
+         *
+         * @param percentile The percentile between 0 and 100
+         * @return The value at the percentile in nanoseconds, or 0 if nothing has been recorded
+         * @throws IllegalArgumentException if percentile is not between 0 and 100
+         */
+        public long getValueAtPercentile(double percentile) {
+            if (!(percentile >= 0 && percentile <= 100)) {
+                throw new IllegalArgumentException("percentile must be between 0 and 100");
+            }
+            if (totalCount == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100 * totalCount));
+            long cumulative = 0;
+            for (int i = 0; i < counts.length; i++) {
+                cumulative += counts[i];
+                if (cumulative >= rank) {
+                    return highestValue(i, precisionBits);
+                }
+            }
+            return getMax();
+        }
+
+        /**
+         * Returns the mean of the recorded values, using the middle of each bucket.
+         *
+         * @return The mean in nanoseconds, or NaN if nothing has been recorded
+         */
+        public double getMean() {
+            if (totalCount == 0) {
+                return Double.NaN;
+            }
+            double sum = 0;
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] != 0) {
+                    double middle = lowestValue(i, precisionBits) / 2.0 + highestValue(i, precisionBits) / 2.0;
+                    sum += middle * counts[i];
+                }
+            }
+            return sum / totalCount;
+        }
+
+        /**
+         * Returns the lowest value of the bucket of the smallest recorded value.
+         *
+         * @return The minimum in nanoseconds, or 0 if nothing has been recorded
+         */
+        public long getMin() {
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] != 0) {
+                    return lowestValue(i, precisionBits);
+                }
+            }
+            return 0;
+        }
+
+        /**
+         * Returns the highest value of the bucket of the largest recorded value.
+         *
+         * @return The maximum in nanoseconds, or 0 if nothing has been recorded
+         */
+        public long getMax() {
+            for (int i = counts.length - 1; i >= 0; i--) {
+                if (counts[i] != 0) {
+                    return highestValue(i, precisionBits);
+                }
+            }
+            return 0;
+        }
+
+        /**
+         * Returns the values recorded after the given earlier snapshot was taken, for reporting
+         * the distribution of an interval.
+         *
+         * @param earlier A snapshot of the same histogram taken before this one
+         * @return The difference of the snapshots
+         * @throws IllegalArgumentException if the snapshots have a different precision
+         */
+        public Snapshot minus(Snapshot earlier) {
+            Objects.requireNonNull(earlier);
+            if (earlier.precisionBits != precisionBits) {
+                throw new IllegalArgumentException("Snapshots have a different precision");
+            }
+            long[] difference = new long[counts.length];
+            for (int i = 0; i < counts.length; i++) {
+                difference[i] = Math.max(0, counts[i] - earlier.counts[i]);
+            }
+            return new Snapshot(precisionBits, difference);
+        }
+
+        @Override
+        public String toString() {
+            return "Snapshot{totalCount=" + totalCount + ", min=" + getMin() + ", p50=" + getValueAtPercentile(50)
+                    + ", p99=" + getValueAtPercentile(99) + ", max=" + getMax() + "}";
+        }
+    }
+}
@@ -0,0 +1,296 @@
+package net.sasu.lib.elapsedtime.estimator;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * The combined state of a job sharded across many estimators, e.g. one per worker process.
+ *
+ * <p>The merged state keeps the newest {@link EstimatorState} of every shard. Merging is a
+ * per-shard maximum, which makes it commutative, associative and idempotent: a coordinator can
+ * merge shard states in any order, any amount of times and in any grouping, and always ends up
+ * with the same result. States are kept sorted by shard id, so merging is a linear pass over both
+ * inputs and the encoded form of equal states is identical.</p>
+ *
+ * <p>The wire format is big-endian and consists of a header followed by fixed-width shard states:</p>
+ * <pre>
+ * int    magic ("TEMS")
+ * byte   format version
+ * int    amount of shard states
+ * then per shard state:
+ * long   shard id
+ * long   sequence
+ * long   total work units
+ * long   completed work units
+ * long   elapsed nanoseconds
+ * double nanoseconds per work unit (NaN if unknown)
+ * </pre>
+ *
+ * <p>Example usage on the coordinator:</p>
+ * <pre>
+ * {@literal
+ * MergedEstimatorState global = MergedEstimatorState.EMPTY;
+ * for (byte[] message : receivedMessages) {
+ *     global = global.merge(MergedEstimatorState.fromBytes(message));
+ * }
+ * Duration remaining = global.remainingDuration();
+ * }
+ * </pre>
+ *
+ * @author Sasu
+ */
+public final class MergedEstimatorState {
+
+    /**
+     * The magic number starting the encoded form, the ASCII characters "TEMS" for time estimator
+     * merged state.
+     */
+    public static final int MAGIC = 0x54454D53;
+
+    /**
+     * The current version of the wire format, encoded as the byte following the magic number.
+     */
+    public static final byte FORMAT_VERSION = 1;
+
+    private static final int HEADER_SIZE = Integer.BYTES + Byte.BYTES + Integer.BYTES;
+
+    /**
+     * A merged state without any shards, the identity element of {@link #merge(MergedEstimatorState)}.
+     */
+    public static final MergedEstimatorState EMPTY = new MergedEstimatorState(new EstimatorState[0]);
+
+    private final EstimatorState[] states;
+
+    private MergedEstimatorState(EstimatorState[] states) {
+        this.states = states;
+    }
+
+    /**
+     * Creates a merged state containing only the given shard state.
+     *
+     * @param state The state of a single shard
+     * @return The merged state
+     */
+    public static MergedEstimatorState of(EstimatorState state) {
+        return new MergedEstimatorState(new EstimatorState[]{Objects.requireNonNull(state)});
+    }
+
+    /**
+     * Merges this state with a single shard state.
+     *
+     * @param state The shard state to merge
+     * @return The merged state
+     */
+    public MergedEstimatorState merge(EstimatorState state) {
+        return merge(of(state));
+    }
+
+    /**
+     * Merges this state with another merged state, keeping the newest state of every shard.
+     *
+     * @param other The merged state to merge with
+     * @return The merged state
+     */
+    public MergedEstimatorState merge(MergedEstimatorState other) {
+        EstimatorState[] a = this.states;
+        EstimatorState[] b = other.states;
+        EstimatorState[] merged = new EstimatorState[a.length + b.length];
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (i < a.length && j < b.length) {
+            int order = Long.compare(a[i].getShardId(), b[j].getShardId());
+            if (order < 0) {
+                merged[n++] = a[i++];
+            } else if (order > 0) {
+                merged[n++] = b[j++];
+            } else {
+                merged[n++] = a[i].compareTo(b[j]) >= 0 ? a[i] : b[j];
+                i++;
+                j++;
+            }
+        }
+        while (i < a.length) {
+            merged[n++] = a[i++];
+        }
+        while (j < b.length) {
+            merged[n++] = b[j++];
+        }
+        return new MergedEstimatorState(n == merged.length ? merged : Arrays.copyOf(merged, n));
+    }
+
+    /**
+     * Encodes this state in the binary wire format: the {@link #MAGIC magic number}, the
+     * {@link #FORMAT_VERSION format version} byte, the amount of states as an int and the
+     * states themselves, all big-endian.
+     *
+     * @return The encoded state
+     */
+    public byte[] toBytes() {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + states.length * EstimatorState.ENCODED_SIZE);
+        buffer.putInt(MAGIC).put(FORMAT_VERSION).putInt(states.length);
+        for (EstimatorState state : states) {
+            state.writeTo(buffer);
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Decodes a state from the binary wire format.
+     *
+     * @param bytes The encoded state
+     * @return The decoded state
+     * @throws IllegalArgumentException if the bytes are not a valid encoded state of a supported version
+     */
+    public static MergedEstimatorState fromBytes(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        try {
+            if (buffer.getInt() != MAGIC) {
+                throw new IllegalArgumentException("Not an encoded estimator state");
+            }
+            byte version = buffer.get();
+            if (version != FORMAT_VERSION) {
+                throw new IllegalArgumentException("Unsupported estimator state format version: " + version);
+            }
+            int count = buffer.getInt();
+            if (count < 0 || (long) count * EstimatorState.ENCODED_SIZE != buffer.remaining()) {
+                throw new IllegalArgumentException("Invalid amount of estimator states: " + count);
+            }
+
+            EstimatorState[] decoded = new EstimatorState[count];
+            for (int i = 0; i < count; i++) {
+                decoded[i] = EstimatorState.readFrom(buffer);
+            }
+            return fromUnsorted(decoded);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated estimator state", e);
+        }
+    }
+
+    private static MergedEstimatorState fromUnsorted(EstimatorState[] states) {
+        Arrays.sort(states, Comparator.comparingLong(EstimatorState::getShardId)
+                .thenComparing(Comparator.naturalOrder()));
+        // keep only the newest, i.e. last, state of every shard
+        int n = 0;
+        for (int i = 0; i < states.length; i++) {
+            if (i + 1 == states.length || states[i + 1].getShardId() != states[i].getShardId()) {
+                states[n++] = states[i];
+            }
+        }
+        return new MergedEstimatorState(n == states.length ? states : Arrays.copyOf(states, n));
+    }
+
+    /**
+     * Returns the shard states, sorted by shard id.
+     *
+     * @return An unmodifiable list of the newest state of every shard
+     */
+    public List<EstimatorState> getStates() {
+        return Collections.unmodifiableList(Arrays.asList(states));
+    }
+
+    /**
+     * Returns the total amount of work units of all shards.
+     *
+     * @return The total amount of work units
+     */
+    public long getTotalWorkUnits() {
+        long total = 0;
+        for (EstimatorState state : states) {
+            total += state.getTotalWorkUnits();
+        }
+        return total;
+    }
+
+    /**
+     * Returns the amount of work units completed by all shards.
+     *
+     * @return The amount of completed work units
+     */
+    public long getCompletedWorkUnits() {
+        long completed = 0;
+        for (EstimatorState state : states) {
+            completed += state.getCompletedWorkUnits();
+        }
+        return completed;
+    }
+
+    /**
+     * Returns the amount of work units remaining in all shards.
+     *
+     * @return The amount of remaining work units
+     */
+    public long getRemainingWorkUnits() {
+        return getTotalWorkUnits() - getCompletedWorkUnits();
+    }
+
+    /**
+     * Calculates the remaining time of the job, assuming every shard processes its own partition
+     * of the work: the job is finished when the slowest shard has finished.
+     *
+     * @return The longest remaining duration of all shards, Duration.ZERO if no work remains
+     *         or MAX_DURATION if a shard with remaining work has an unknown rate
+     */
+    public Duration remainingDuration() {
+        Duration longest = Duration.ZERO;
+        for (EstimatorState state : states) {
+            Duration remaining = state.remainingDuration();
+            if (remaining.compareTo(longest) > 0) {
+                longest = remaining;
+            }
+        }
+        return longest;
+    }
+
+    /**
+     * Calculates the remaining time of the job, assuming the remaining work is shared by all shards
+     * with a known rate, e.g. because they take work from a common queue.
+     *
+     * @return The remaining work divided by the combined rate of the shards, Duration.ZERO if no work remains
+     *         or MAX_DURATION if no shard has a known rate
+     */
+    public Duration pooledRemainingDuration() {
+        long remainingWorkUnits = getRemainingWorkUnits();
+        if (remainingWorkUnits == 0) {
+            return Duration.ZERO;
+        }
+        double unitsPerNano = 0;
+        for (EstimatorState state : states) {
+            if (state.getNanosPerUnit() > 0) {
+                unitsPerNano += 1 / state.getNanosPerUnit();
+            }
+        }
+        if (unitsPerNano == 0) {
+            return Estimator.MAX_DURATION;
+        }
+        double remainingNanos = remainingWorkUnits / unitsPerNano;
+        if (remainingNanos >= Long.MAX_VALUE) {
+            return Estimator.MAX_DURATION;
+        }
+        return Duration.ofNanos(Math.round(remainingNanos));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        return o instanceof MergedEstimatorState other && Arrays.equals(states, other.states);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(states);
+    }
+
+    @Override
+    public String toString() {
+        return "MergedEstimatorState" + Arrays.toString(states);
+    }
+}
@@ -0,0 +1,156 @@
+package net.sasu.lib.elapsedtime.estimator;
+
+/**
+ * A two-sided Page-Hinkley test detecting a lasting change in the mean of a stream of values.
+ *
+ * <p>The test keeps a running mean and two cumulative sums of the deviations from it, one biased
+ * downwards by the tolerated magnitude {@code delta} for detecting increases and one biased upwards
+ * for detecting decreases. A change is signalled when a sum has moved more than {@code threshold}
+ * away from its extremum. The sample at which the extremum was reached marks the onset of the
+ * change. Every update is O(1) and the detector keeps no history.</p>
+ *
+ * <p>The detector does not reset itself; after a change has been signalled the caller typically
+ * calls {@link #reset()} so that the new regime is learned from scratch.</p>
+ *
+ * @author Sasu
+ */
+public class PageHinkleyDetector {
+
+    /**
+     * The direction of a detected change.
+     */
+    public enum Shift {
+        /**
+         * No change has been detected.
+         */
+        NONE,
+        /**
+         * The mean of the values has increased.
+         */
+        INCREASE,
+        /**
+         * The mean of the values has decreased.
+         */
+        DECREASE
+    }
+
+    private final double delta;
+    private final double threshold;
+    private final int minSamples;
+
+    private long sampleCount;
+    private double mean;
+    private double increaseSum;
+    private double increaseMinimum;
+    private long increaseOnsetSample;
+    private double decreaseSum;
+    private double decreaseMaximum;
+    private long decreaseOnsetSample;
+
+    /**
+     * Creates a new detector.
+     *
+     * @param delta The magnitude of changes in the mean which are tolerated
+     * @param threshold How far a cumulative sum may move from its extremum before a change is signalled
+     * @param minSamples The amount of samples needed before any change is signalled
+     * @throws IllegalArgumentException if delta is negative, threshold is not positive or minSamples is negative
+     */
+    public PageHinkleyDetector(double delta, double threshold, int minSamples) {
+        if (!(delta >= 0)) {
+            throw new IllegalArgumentException("delta may not be negative");
+        }
+        if (!(threshold > 0)) {
+            throw new IllegalArgumentException("threshold must be positive");
+        }
+        if (minSamples < 0) {
+            throw new IllegalArgumentException("minSamples may not be negative");
+        }
+        this.delta = delta;
+        this.threshold = threshold;
+        this.minSamples = minSamples;
+    }
+
+    /**
+     * Adds a value to the stream and tests for a change.
+     *
+     * @param value The next value of the stream
+     * @return The direction of a detected change, or {@link Shift#NONE}
+     */
+    public Shift update(double value) {
+        sampleCount++;
+        mean += (value - mean) / sampleCount;
+
+        increaseSum += value - mean - delta;
+        if (increaseSum < increaseMinimum) {
+            increaseMinimum = increaseSum;
+            increaseOnsetSample = sampleCount;
+        }
+        decreaseSum += value - mean + delta;
+        if (decreaseSum > decreaseMaximum) {
+            decreaseMaximum = decreaseSum;
+            decreaseOnsetSample = sampleCount;
+        }
+
+        if (sampleCount < minSamples) {
+            return Shift.NONE;
+        }
+        if (increaseSum - increaseMinimum > threshold) {
+            return Shift.INCREASE;
+        }
+        if (decreaseMaximum - decreaseSum > threshold) {
+            return Shift.DECREASE;
+        }
+        return Shift.NONE;
+    }
+
+    /**
+     * Forgets all samples.
+     */
+    public void reset() {
+        sampleCount = 0;
+        mean = 0;
+        increaseSum = 0;
+        increaseMinimum = 0;
+        increaseOnsetSample = 0;
+        decreaseSum = 0;
+        decreaseMaximum = 0;
+        decreaseOnsetSample = 0;
+    }
+
+    /**
+     * Returns the number of the last sample before the onset of a change in the given direction,
+     * counting from one. Zero means the change started before the first sample.
+     *
+     * @param shift The direction of the change
+     * @return The number of the last sample belonging to the previous regime
+     * @throws IllegalArgumentException if shift is {@link Shift#NONE}
+     */
+    public long getOnsetSample(Shift shift) {
+        switch (shift) {
+            case INCREASE:
+                return increaseOnsetSample;
+            case DECREASE:
+                return decreaseOnsetSample;
+            default:
+                throw new IllegalArgumentException("No onset for " + shift);
+        }
+    }
+
+    /**
+     * Returns the amount of samples since construction or the last reset.
+     *
+     * @return The amount of samples
+     */
+    public long getSampleCount() {
+        return sampleCount;
+    }
+
+    /**
+     * Returns the running mean of the samples since construction or the last reset.
+     *
+     * @return The mean of the samples
+     */
+    public double getMean() {
+        return mean;
+    }
+}
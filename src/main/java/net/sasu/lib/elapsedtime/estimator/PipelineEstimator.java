@@ -0,0 +1,431 @@
+package net.sasu.lib.elapsedtime.estimator;
+
+import net.sasu.lib.time.stopwatch.StopwatchInterface;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * An estimator for work processed by a pipeline of stages, e.g. read &rarr; transform &rarr; write,
+ * where every work unit passes through all stages in order and the stages are connected by queues.
+ *
+ * <p>Each stage reports its own completions through its {@link Stage} handle. The counters of all
+ * stages are {@link LongAdder}s, so any amount of threads of any stage can report progress without
+ * contending with each other. The work of the pipeline as a whole is complete once the last stage has
+ * completed all work units: completions of the last stage are folded into the completed work units of
+ * the estimator in batches, whenever they are read and otherwise once per tick of the
+ * {@link TimerWheel#shared() shared timer wheel}. Progress listeners and waiters are therefore
+ * notified of them within a tick, and a cached estimate follows them once it is read again after its
+ * time quantum has passed. Work units completed through {@link #completeWorkUnits(long)} count as
+ * completions of the last stage, but are applied immediately.</p>
+ *
+ * <p>The capacity of a stage is its throughput while it was busy. Whenever the estimate is read, the
+ * counters of the stages are sampled, and the time between two samples counts as busy time of a stage
+ * if at least as many work units were queued in front of it at the first sample as it completed until
+ * the second, as its queue then never ran empty. A stage which has been sampled but has never been
+ * busy is starved by the stages in front of it; it is assumed to keep up with them. Until the first
+ * two samples have been taken, the throughput of each stage since the start is used.</p>
+ *
+ * <p>A stage drains the work units queued in front of it, as well as the work units which have not
+ * reached it yet, at its capacity, and it cannot finish before the stage in front of it. The pipeline
+ * finishes when the last of the stages has drained its backlog. The limiting stage is the stage with
+ * the lowest capacity among the stages which are not starved. Queues are assumed to be unbounded: a
+ * stage blocked by a full queue behind it counts as busy, so its capacity is measured as the
+ * throughput of the stage limiting it.</p>
+ *
+ * <p>Example usage:</p>
+ * <pre>
+ * {@literal
+ * PipelineEstimator<Stopwatch> estimator = new PipelineEstimator<>(new Stopwatch(), "read", "transform", "write");
+ * estimator.initAndStart(1000);
+ * PipelineEstimator.Stage read = estimator.getStage(0);
+ * // in the reader threads
+ * read.completeWorkUnits(1);
+ * }
+ * </pre>
+ *
+ * @param <StopwatchType> The type of stopwatch used for time tracking
+ * @author Sasu
+ */
+public class PipelineEstimator<StopwatchType extends StopwatchInterface<StopwatchType>>
+        extends DefaultEstimator<StopwatchType> {
+
+    private final List<Stage> stages;
+    private final Stage lastStage;
+    private final TimerWheel timerWheel = TimerWheel.shared();
+
+    // completions of the last stage which have been applied to the completed work units
+    private final ReentrantLock foldLock = new ReentrantLock();
+    private volatile long foldedWorkUnits;
+    private final AtomicBoolean foldScheduled = new AtomicBoolean();
+
+    // the previous sample of the stage counters, guarded by sampleLock
+    private final ReentrantLock sampleLock = new ReentrantLock();
+    private long sampleElapsedNanos = -1;
+    private long sampleIntervals;
+
+    /**
+     * Constructs a new PipelineEstimator with the specified stopwatch and stages.
+     *
+     * @param stopwatch The stopwatch to use for time tracking
+     * @param stageNames The names of the stages in pipeline order
+     * @throws IllegalArgumentException if no stages are given
+     */
+    public PipelineEstimator(StopwatchType stopwatch, String... stageNames) {
+        super(stopwatch);
+        if (stageNames.length == 0) {
+            throw new IllegalArgumentException("At least one stage is required");
+        }
+        List<Stage> stageList = new ArrayList<>(stageNames.length);
+        for (int i = 0; i < stageNames.length; i++) {
+            stageList.add(new Stage(i, Objects.requireNonNull(stageNames[i])));
+        }
+        this.stages = Collections.unmodifiableList(stageList);
+        this.lastStage = stageList.get(stageList.size() - 1);
+    }
+
+    /**
+     * Returns the amount of completed work units, including the completions of the last stage
+     * which have not been folded in yet.
+     *
+     * @return The amount of completed work units
+     */
+    @Override
+    public long getCompletedWorkUnits() {
+        foldCompletions();
+        return super.getCompletedWorkUnits();
+    }
+
+    @Override
+    public long getRemainingWorkUnits() {
+        foldCompletions();
+        return super.getRemainingWorkUnits();
+    }
+
+    /**
+     * Applies the completions of the last stage recorded since the previous fold. Completions which
+     * would exceed the total are kept until the total has grown.
+     */
+    private void foldCompletions() {
+        if (lastStage.completedWorkUnits.sum() == foldedWorkUnits) {
+            return;
+        }
+        foldLock.lock();
+        try {
+            long pending = lastStage.completedWorkUnits.sum() - foldedWorkUnits;
+            long applicable = Math.min(pending, super.getRemainingWorkUnits());
+            if (applicable > 0) {
+                // counted as folded first, as listeners may read the completed work units again
+                foldedWorkUnits += applicable;
+                super.completeWorkUnits(applicable);
+            }
+        } finally {
+            foldLock.unlock();
+        }
+    }
+
+    private void scheduleFold() {
+        if (!foldScheduled.get() && foldScheduled.compareAndSet(false, true)) {
+            timerWheel.schedule(timerWheel.getInstantSource().instant().plus(timerWheel.getTickDuration()), () -> {
+                foldScheduled.set(false);
+                foldCompletions();
+            });
+        }
+    }
+
+    /**
+     * Calculates the estimated remaining time as the remaining drain time of the last stage, which
+     * cannot finish before any of the stages in front of it.
+     *
+     * @return The estimated remaining duration, Duration.ZERO if no work remains
+     *         or MAX_DURATION if a stage with remaining work has not completed anything yet
+     */
+    @Override
+    protected Duration computeRemainingDuration() {
+        return lastStage.remainingDuration();
+    }
+
+    /**
+     * Returns the stage which limits the throughput of the pipeline, i.e. the stage with the lowest
+     * capacity among the stages with remaining work which are not starved by the stages in front of
+     * them. Stages which have not completed anything yet but have work remaining are considered
+     * limiting, as nothing is known about their capacity.
+     *
+     * @return The limiting stage, or null if all stages have completed all work units
+     */
+    public Stage getLimitingStage() {
+        Measurement measurement = measure();
+
+        Stage limitingStage = null;
+        for (boolean includeStarved : new boolean[]{false, true}) {
+            double lowestRate = Double.POSITIVE_INFINITY;
+            for (int i = 0; i < stages.size(); i++) {
+                if (measurement.workUnits[i] > 0 && (includeStarved || !measurement.starved[i])
+                        && (limitingStage == null || measurement.unitsPerNano[i] < lowestRate)) {
+                    limitingStage = stages.get(i);
+                    lowestRate = measurement.unitsPerNano[i];
+                }
+            }
+            if (limitingStage != null) {
+                break;
+            }
+        }
+        return limitingStage;
+    }
+
+    /**
+     * Samples the counters of the stages and calculates the work remaining for each stage and the
+     * rate at which it is expected to process it.
+     */
+    private Measurement measure() {
+        long totalWorkUnits = getTotalWorkUnits();
+        long elapsedNanos = getElapsedTime().getDuration().toNanos();
+        int stageCount = stages.size();
+        long[] completed = new long[stageCount];
+        for (int i = 0; i < stageCount; i++) {
+            completed[i] = stages.get(i).getCompletedWorkUnits();
+        }
+
+        Measurement measurement = new Measurement(stageCount);
+        sampleLock.lock();
+        try {
+            sample(completed, totalWorkUnits, elapsedNanos);
+            for (int i = 0; i < stageCount; i++) {
+                Stage stage = stages.get(i);
+                // the first stage has no queue in front of it
+                long arrived = i == 0 ? completed[i] : Math.max(completed[i], completed[i - 1]);
+                measurement.workUnits[i] = (arrived - completed[i]) + Math.max(0, totalWorkUnits - arrived);
+
+                double overallRate = elapsedNanos > 0 ? (double) completed[i] / elapsedNanos : 0;
+                if (stage.busyNanos > 0 && stage.busyWorkUnits > 0) {
+                    measurement.unitsPerNano[i] = (double) stage.busyWorkUnits / stage.busyNanos;
+                } else if (sampleIntervals > 0 && stage.busyNanos == 0 && i > 0) {
+                    measurement.starved[i] = true;
+                    measurement.unitsPerNano[i] = Math.max(overallRate, measurement.unitsPerNano[i - 1]);
+                } else {
+                    measurement.unitsPerNano[i] = overallRate;
+                }
+            }
+        } finally {
+            sampleLock.unlock();
+        }
+        return measurement;
+    }
+
+    /**
+     * Adds the time since the previous sample to the busy time of the stages which had at least as
+     * many work units queued in front of them as they have completed since. Called under the sample lock.
+     */
+    private void sample(long[] completed, long totalWorkUnits, long elapsedNanos) {
+        long intervalNanos = elapsedNanos - sampleElapsedNanos;
+        boolean first = sampleElapsedNanos < 0;
+        if (!first && intervalNanos <= 0) {
+            return;
+        }
+        for (int i = 0; i < completed.length; i++) {
+            Stage stage = stages.get(i);
+            long queued = i == 0 ? totalWorkUnits - completed[i] : Math.max(0, completed[i - 1] - completed[i]);
+            if (!first) {
+                long done = completed[i] - stage.sampleCompleted;
+                if (stage.sampleQueued > 0 && stage.sampleQueued >= done) {
+                    stage.busyNanos += intervalNanos;
+                    stage.busyWorkUnits += done;
+                }
+            }
+            stage.sampleCompleted = completed[i];
+            stage.sampleQueued = queued;
+        }
+        if (!first) {
+            sampleIntervals++;
+        }
+        sampleElapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * Returns the stages of this pipeline in pipeline order.
+     *
+     * @return An unmodifiable list of the stages
+     */
+    public List<Stage> getStages() {
+        return stages;
+    }
+
+    /**
+     * Returns the stage at the given position of the pipeline.
+     *
+     * @param index The position of the stage, starting from zero
+     * @return The stage
+     */
+    public Stage getStage(int index) {
+        return stages.get(index);
+    }
+
+    /**
+     * Returns the stage with the given name.
+     *
+     * @param name The name of the stage
+     * @return The stage
+     * @throws IllegalArgumentException if there is no stage with the given name
+     */
+    public Stage getStage(String name) {
+        for (Stage stage : stages) {
+            if (stage.getName().equals(name)) {
+                return stage;
+            }
+        }
+        throw new IllegalArgumentException("No such stage: " + name);
+    }
+
+    /**
+     * The work remaining for each stage and the rate at which it is processed.
+     */
+    private static final class Measurement {
+        final long[] workUnits;
+        final double[] unitsPerNano;
+        final boolean[] starved;
+
+        Measurement(int stageCount) {
+            this.workUnits = new long[stageCount];
+            this.unitsPerNano = new double[stageCount];
+            this.starved = new boolean[stageCount];
+        }
+    }
+
+    /**
+     * A single stage of a {@link PipelineEstimator}.
+     */
+    public final class Stage {
+
+        private final int index;
+        private final String name;
+        private final LongAdder completedWorkUnits = new LongAdder();
+
+        // guarded by the sample lock of the estimator
+        private long sampleCompleted;
+        private long sampleQueued;
+        private long busyNanos;
+        private long busyWorkUnits;
+
+        private Stage(int index, String name) {
+            this.index = index;
+            this.name = name;
+        }
+
+        /**
+         * Records the completion of work units by this stage. This method may be called
+         * concurrently from any amount of threads without contention.
+         *
+         * @param workUnitsCompleted The amount of work units that were completed
+         * @throws IllegalArgumentException if workUnitsCompleted is negative
+         * @throws IllegalStateException if this is the last stage and workUnitsCompleted is greater
+         *         than remaining work units
+         */
+        public void completeWorkUnits(long workUnitsCompleted) {
+            if (workUnitsCompleted < 0) {
+                throw new IllegalArgumentException("workUnitsCompleted may not be negative");
+            }
+            if (this != lastStage) {
+                completedWorkUnits.add(workUnitsCompleted);
+                return;
+            }
+            long remainingWorkUnits = PipelineEstimator.super.getRemainingWorkUnits()
+                    - (completedWorkUnits.sum() - foldedWorkUnits);
+            if (workUnitsCompleted > remainingWorkUnits) {
+                throw new IllegalStateException(
+                        "More work than available completed. Remaining work units: " + remainingWorkUnits);
+            }
+            completedWorkUnits.add(workUnitsCompleted);
+            scheduleFold();
+        }
+
+        /**
+         * Returns the amount of work units completed by this stage. The work units completed by the
+         * last stage are those of the estimator.
+         *
+         * @return The amount of completed work units
+         */
+        public long getCompletedWorkUnits() {
+            if (this == lastStage) {
+                return PipelineEstimator.this.getCompletedWorkUnits();
+            }
+            return completedWorkUnits.sum();
+        }
+
+        /**
+         * Returns the amount of work units which have been completed by the previous stage but not
+         * yet by this stage. The first stage has no queue in front of it.
+         *
+         * @return The amount of work units queued in front of this stage
+         */
+        public long getQueueDepth() {
+            if (index == 0) {
+                return 0;
+            }
+            return Math.max(0, stages.get(index - 1).getCompletedWorkUnits() - getCompletedWorkUnits());
+        }
+
+        /**
+         * Returns the observed throughput of this stage since the estimator was started, including
+         * the time it was starved or blocked.
+         *
+         * @return The amount of work units completed per second
+         */
+        public double getThroughputPerSecond() {
+            long elapsedNanos = getElapsedTime().getDuration().toNanos();
+            if (elapsedNanos == 0) {
+                return 0;
+            }
+            return getCompletedWorkUnits() * 1e9 / elapsedNanos;
+        }
+
+        /**
+         * Returns the estimated time until this stage has processed all of its work units: its
+         * queued backlog and the work units still to reach it at its capacity, but not before the
+         * stages in front of it have finished.
+         *
+         * @return The estimated remaining duration of this stage
+         */
+        public Duration remainingDuration() {
+            Measurement measurement = measure();
+            double remainingNanos = 0;
+            for (int i = 0; i <= index; i++) {
+                if (measurement.workUnits[i] > 0) {
+                    remainingNanos = Math.max(remainingNanos, measurement.workUnits[i] / measurement.unitsPerNano[i]);
+                }
+            }
+            if (remainingNanos >= Long.MAX_VALUE) {
+                return MAX_DURATION;
+            }
+            return Duration.ofNanos((long) remainingNanos);
+        }
+
+        /**
+         * Returns the position of this stage in the pipeline.
+         *
+         * @return The index of this stage, starting from zero
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        /**
+         * Returns the name of this stage.
+         *
+         * @return The name of this stage
+         */
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+}
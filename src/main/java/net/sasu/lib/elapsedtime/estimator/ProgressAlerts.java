@@ -0,0 +1,413 @@
+package net.sasu.lib.elapsedtime.estimator;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Event driven alerts for a single estimator, replacing the need to poll estimators for
+ * missed deadlines, stalls and milestones.
+ *
+ * <p>Progress based conditions are evaluated incrementally when work units are completed:
+ * fraction alerts are kept ordered so that a completion only compares the current fraction against
+ * the nearest pending threshold. Time based conditions are driven by a {@link TimerWheel}, which is
+ * typically shared by all alerts in the application, so the cost scales with the amount of events
+ * rather than with the amount of jobs times a polling rate. The predicted finish is re-evaluated at
+ * most once per tick of the timer wheel and only compared against the earliest pending deadline, and
+ * a stall check is only scheduled while a stall can still be detected.</p>
+ *
+ * <p>Example usage:</p>
+ * <pre>
+ * {@literal
+ * ProgressAlerts<BasicEstimator> alerts = new ProgressAlerts<>(estimator)
+ *         .onPredictedFinishAfter(deadline, e -> log.warn("Job will miss its deadline"))
+ *         .onNoProgressFor(Duration.ofMinutes(5), e -> log.warn("Job has stalled"))
+ *         .onFractionReached(0.5, e -> log.info("Job is half done"));
+ * }
+ * </pre>
+ *
+ * <p>The timer wheel should use the same instant source as the estimator. Callbacks are run on the
+ * thread completing work units or on the timer wheel thread and should return quickly.</p>
+ *
+ * @param <EstimatorType> The type of the observed estimator
+ * @author Sasu
+ */
+public class ProgressAlerts<EstimatorType extends BaseEstimator<?, ?>> implements ProgressListener, AutoCloseable {
+
+    private final EstimatorType estimator;
+    private final TimerWheel timerWheel;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final PriorityQueue<FractionAlert> fractionAlerts = new PriorityQueue<>();
+    private volatile double nextFraction = Double.POSITIVE_INFINITY;
+
+    private final List<DeadlineAlert> deadlineAlerts = new ArrayList<>();
+    private volatile long earliestDeadlineNanos = Long.MAX_VALUE;
+    private volatile long lastDeadlineEvaluationTick = Long.MIN_VALUE;
+
+    private final List<StallAlert> stallAlerts = new ArrayList<>();
+    private volatile boolean hasStallAlerts;
+    // set when a stall alert has fired or found the work completed and waits to be re-armed by progress
+    private volatile boolean hasDisarmedStallAlerts;
+    private volatile long lastProgressNanos;
+
+    /**
+     * Creates alerts for the given estimator using the shared timer wheel.
+     *
+     * @param estimator The estimator to observe
+     */
+    public ProgressAlerts(EstimatorType estimator) {
+        this(estimator, TimerWheel.shared());
+    }
+
+    /**
+     * Creates alerts for the given estimator using the given timer wheel for time based conditions.
+     *
+     * @param estimator The estimator to observe
+     * @param timerWheel The timer wheel driving time based conditions
+     * @throws NullPointerException if estimator or timerWheel is null
+     */
+    public ProgressAlerts(EstimatorType estimator, TimerWheel timerWheel) {
+        this.estimator = Objects.requireNonNull(estimator);
+        this.timerWheel = Objects.requireNonNull(timerWheel);
+        this.lastProgressNanos = nowNanos();
+        estimator.addProgressListener(this);
+    }
+
+    /**
+     * Registers a one-shot callback which is called when the predicted finish time of the estimator
+     * is after the given deadline. The prediction is re-evaluated whenever work units are completed,
+     * and the callback is also called if the deadline passes while work still remains.
+     *
+     * @param deadline The instant by which the work should be finished
+     * @param callback The callback to call when the deadline is predicted to be missed
+     * @return This instance
+     */
+    public ProgressAlerts<EstimatorType> onPredictedFinishAfter(Instant deadline, Consumer<? super EstimatorType> callback) {
+        Objects.requireNonNull(deadline);
+        Objects.requireNonNull(callback);
+
+        DeadlineAlert alert = new DeadlineAlert(deadline, callback);
+        lock.lock();
+        try {
+            deadlineAlerts.add(alert);
+            updateEarliestDeadline();
+            // scheduled once registered, as a deadline which has passed already expires on the next tick
+            alert.timeout = timerWheel.schedule(deadline, () -> {
+                if (estimator.getRemainingWorkUnits() > 0) {
+                    fireDeadlineAlert(alert);
+                }
+            });
+        } finally {
+            lock.unlock();
+        }
+        lastDeadlineEvaluationTick = timerWheel.getCurrentTick();
+        evaluateDeadlines();
+        return this;
+    }
+
+    /**
+     * Registers a callback which is called when no work units have been completed for the given
+     * duration. The callback is called once per stall; it is re-armed by the next completion.
+     * No callbacks are made once all work units have been completed, until the total grows again.
+     *
+     * @param duration The maximum duration without progress
+     * @param callback The callback to call when the estimator has stalled
+     * @return This instance
+     * @throws IllegalArgumentException if duration is not positive
+     */
+    public ProgressAlerts<EstimatorType> onNoProgressFor(Duration duration, Consumer<? super EstimatorType> callback) {
+        Objects.requireNonNull(duration);
+        Objects.requireNonNull(callback);
+        if (duration.isNegative() || duration.isZero()) {
+            throw new IllegalArgumentException("duration must be positive");
+        }
+
+        StallAlert alert = new StallAlert(duration.toNanos(), callback);
+        lock.lock();
+        try {
+            stallAlerts.add(alert);
+            hasStallAlerts = true;
+            if (estimator.getRemainingWorkUnits() > 0) {
+                scheduleStallCheck(alert, lastProgressNanos + alert.durationNanos);
+            } else {
+                hasDisarmedStallAlerts = true;
+            }
+        } finally {
+            lock.unlock();
+        }
+        return this;
+    }
+
+    /**
+     * Registers a one-shot callback which is called when the completed fraction of the work reaches
+     * the given value. If the fraction has already been reached the callback is called immediately.
+     *
+     * @param fraction The fraction of completed work between 0 and 1
+     * @param callback The callback to call when the fraction has been reached
+     * @return This instance
+     * @throws IllegalArgumentException if fraction is not between 0 and 1
+     */
+    public ProgressAlerts<EstimatorType> onFractionReached(double fraction, Consumer<? super EstimatorType> callback) {
+        Objects.requireNonNull(callback);
+        if (!(fraction >= 0 && fraction <= 1)) {
+            throw new IllegalArgumentException("fraction must be between 0 and 1");
+        }
+
+        lock.lock();
+        try {
+            fractionAlerts.add(new FractionAlert(fraction, callback));
+            nextFraction = fractionAlerts.peek().fraction;
+        } finally {
+            lock.unlock();
+        }
+        evaluateFractions();
+        return this;
+    }
+
+    @Override
+    public void workUnitsCompleted(BaseEstimator<?, ?> source, long workUnitsCompleted) {
+        if (completedFraction() >= nextFraction) {
+            evaluateFractions();
+        }
+        if (earliestDeadlineNanos != Long.MAX_VALUE) {
+            long tick = timerWheel.getCurrentTick();
+            if (tick != lastDeadlineEvaluationTick) {
+                lastDeadlineEvaluationTick = tick;
+                evaluateDeadlines();
+            }
+        }
+        if (hasStallAlerts) {
+            lastProgressNanos = nowNanos();
+            if (hasDisarmedStallAlerts) {
+                armStallAlerts();
+            }
+        }
+    }
+
+    @Override
+    public void totalWorkUnitsChanged(BaseEstimator<?, ?> source, long totalWorkUnits) {
+        if (completedFraction() >= nextFraction) {
+            evaluateFractions();
+        }
+        if (hasDisarmedStallAlerts) {
+            armStallAlerts();
+        }
+    }
+
+    /**
+     * Detaches these alerts from the estimator and cancels all pending timeouts.
+     */
+    @Override
+    public void close() {
+        estimator.removeProgressListener(this);
+        lock.lock();
+        try {
+            fractionAlerts.clear();
+            nextFraction = Double.POSITIVE_INFINITY;
+            deadlineAlerts.forEach(alert -> alert.timeout.cancel());
+            deadlineAlerts.clear();
+            earliestDeadlineNanos = Long.MAX_VALUE;
+            stallAlerts.forEach(alert -> {
+                if (alert.timeout != null) {
+                    alert.timeout.cancel();
+                }
+            });
+            stallAlerts.clear();
+            hasStallAlerts = false;
+            hasDisarmedStallAlerts = false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the observed estimator.
+     *
+     * @return The observed estimator
+     */
+    public EstimatorType getEstimator() {
+        return estimator;
+    }
+
+    private double completedFraction() {
+        long totalWorkUnits = estimator.getTotalWorkUnits();
+        if (totalWorkUnits == 0) {
+            return 0;
+        }
+        return (double) estimator.getCompletedWorkUnits() / totalWorkUnits;
+    }
+
+    private void evaluateFractions() {
+        List<FractionAlert> reached = new ArrayList<>();
+        lock.lock();
+        try {
+            double completedFraction = completedFraction();
+            while (!fractionAlerts.isEmpty() && fractionAlerts.peek().fraction <= completedFraction) {
+                reached.add(fractionAlerts.poll());
+            }
+            nextFraction = fractionAlerts.isEmpty() ? Double.POSITIVE_INFINITY : fractionAlerts.peek().fraction;
+        } finally {
+            lock.unlock();
+        }
+        reached.forEach(alert -> alert.callback.accept(estimator));
+    }
+
+    private void evaluateDeadlines() {
+        if (estimator.getRemainingWorkUnits() == 0) {
+            return;
+        }
+        Duration remainingDuration = estimator.remainingDuration();
+        if (remainingDuration.equals(Estimator.MAX_DURATION)) {
+            // nothing to base a prediction on yet, the deadline timeout covers this case
+            return;
+        }
+        long remainingNanos = BaseEstimator.toNanosSaturated(remainingDuration);
+        long nowNanos = nowNanos();
+        long predictedFinishNanos = nowNanos + remainingNanos < nowNanos ? Long.MAX_VALUE : nowNanos + remainingNanos;
+        if (predictedFinishNanos <= earliestDeadlineNanos) {
+            // no deadline can be missed if the earliest one is not
+            return;
+        }
+
+        List<DeadlineAlert> missed = new ArrayList<>();
+        lock.lock();
+        try {
+            for (DeadlineAlert alert : deadlineAlerts) {
+                if (predictedFinishNanos > alert.deadlineNanos) {
+                    missed.add(alert);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        missed.forEach(this::fireDeadlineAlert);
+    }
+
+    private void updateEarliestDeadline() {
+        long earliest = Long.MAX_VALUE;
+        for (DeadlineAlert alert : deadlineAlerts) {
+            earliest = Math.min(earliest, alert.deadlineNanos);
+        }
+        earliestDeadlineNanos = earliest;
+    }
+
+    private void fireDeadlineAlert(DeadlineAlert alert) {
+        lock.lock();
+        try {
+            if (!deadlineAlerts.remove(alert)) {
+                return;
+            }
+            updateEarliestDeadline();
+        } finally {
+            lock.unlock();
+        }
+        alert.timeout.cancel();
+        alert.callback.accept(estimator);
+    }
+
+    /**
+     * Schedules the next check of a registered stall alert. Called under the lock, so that the check
+     * cannot run before the alert and its timeout have been stored.
+     */
+    private void scheduleStallCheck(StallAlert alert, long deadlineNanos) {
+        Instant deadline = Instant.ofEpochSecond(0, deadlineNanos);
+        alert.timeout = timerWheel.schedule(deadline, () -> checkStall(alert));
+    }
+
+    /**
+     * Re-arms the stall alerts which have fired or found the work completed, once there is progress
+     * or more work again.
+     */
+    private void armStallAlerts() {
+        lock.lock();
+        try {
+            if (!hasDisarmedStallAlerts || estimator.getRemainingWorkUnits() == 0) {
+                return;
+            }
+            long nowNanos = nowNanos();
+            for (StallAlert alert : stallAlerts) {
+                if (alert.timeout == null) {
+                    scheduleStallCheck(alert, nowNanos + alert.durationNanos);
+                }
+            }
+            hasDisarmedStallAlerts = false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void checkStall(StallAlert alert) {
+        boolean stalled;
+        lock.lock();
+        try {
+            if (!stallAlerts.contains(alert)) {
+                return;
+            }
+            long lastProgress = lastProgressNanos;
+            boolean due = nowNanos() - lastProgress >= alert.durationNanos;
+            boolean finished = estimator.getRemainingWorkUnits() == 0;
+            stalled = due && !finished;
+            if (due || finished) {
+                // stays disarmed until the next progress, so a stall fires once and a finished job never
+                alert.timeout = null;
+                hasDisarmedStallAlerts = true;
+            } else {
+                // there has been progress since the check was scheduled, so the stall is due later
+                scheduleStallCheck(alert, lastProgress + alert.durationNanos);
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (stalled) {
+            alert.callback.accept(estimator);
+        }
+    }
+
+    private long nowNanos() {
+        return TimerWheel.toEpochNanos(estimator.getInstantSource().instant());
+    }
+
+    private final class FractionAlert implements Comparable<FractionAlert> {
+        final double fraction;
+        final Consumer<? super EstimatorType> callback;
+
+        FractionAlert(double fraction, Consumer<? super EstimatorType> callback) {
+            this.fraction = fraction;
+            this.callback = callback;
+        }
+
+        @Override
+        public int compareTo(FractionAlert other) {
+            return Double.compare(fraction, other.fraction);
+        }
+    }
+
+    private final class DeadlineAlert {
+        final long deadlineNanos;
+        final Consumer<? super EstimatorType> callback;
+        TimerWheel.Timeout timeout;
+
+        DeadlineAlert(Instant deadline, Consumer<? super EstimatorType> callback) {
+            this.deadlineNanos = TimerWheel.toEpochNanos(deadline);
+            this.callback = callback;
+        }
+    }
+
+    private final class StallAlert {
+        final long durationNanos;
+        final Consumer<? super EstimatorType> callback;
+        // null while the alert is disarmed
+        TimerWheel.Timeout timeout;
+
+        StallAlert(long durationNanos, Consumer<? super EstimatorType> callback) {
+            this.durationNanos = durationNanos;
+            this.callback = callback;
+        }
+    }
+}
@@ -0,0 +1,291 @@
+package net.sasu.lib.elapsedtime.estimator;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A downsampled history of the progress of an estimator, for charting the throughput of long
+ * running processes without keeping every sample.
+ *
+ * <p>The amount of completed work units is kept in a pyramid of resolutions: per second for the
+ * last hour, per minute for the last day and per hour for as long as configured. Each level is a
+ * fixed-size ring buffer of primitives, so the memory use is constant however long the process
+ * runs. Completions only update the per-second level; when a second, minute or hour has passed,
+ * its last value is rolled up into the next coarser level, so recording is O(1) amortized.</p>
+ *
+ * <p>Queries return the history of any time range at the best resolution still available for the
+ * start of the range.</p>
+ *
+ * <p>Example usage:</p>
+ * <pre>
+ * {@literal
+ * ProgressHistory history = new ProgressHistory(estimator);
+ * ...
+ * ProgressHistory.Series lastDay = history.query(now.minus(Duration.ofDays(1)), now);
+ * }
+ * </pre>
+ *
+ * @author Sasu
+ */
+public class ProgressHistory implements ProgressListener, AutoCloseable {
+
+    /**
+     * The amount of per-second values kept.
+     */
+    public static final int SECONDS_RETAINED = 3600;
+
+    /**
+     * The amount of per-minute values kept.
+     */
+    public static final int MINUTES_RETAINED = 1440;
+
+    /**
+     * The default amount of per-hour values kept.
+     */
+    public static final int DEFAULT_HOURS_RETAINED = 24 * 366;
+
+    private static final long NO_BUCKET = Long.MIN_VALUE;
+
+    private final BaseEstimator<?, ?> estimator;
+    private final Level[] levels;
+    private final ReentrantLock lock = new ReentrantLock();
+    private long lastSecond = NO_BUCKET;
+    private long lastCompletedWorkUnits;
+
+    /**
+     * Creates a history of the given estimator keeping per-hour values for about a year.
+     *
+     * @param estimator The estimator whose progress to record
+     */
+    public ProgressHistory(BaseEstimator<?, ?> estimator) {
+        this(estimator, DEFAULT_HOURS_RETAINED);
+    }
+
+    /**
+     * Creates a history of the given estimator. The current progress is recorded immediately.
+     *
+     * @param estimator The estimator whose progress to record
+     * @param hoursRetained The amount of per-hour values kept
+     * @throws IllegalArgumentException if hoursRetained is not positive
+     */
+    public ProgressHistory(BaseEstimator<?, ?> estimator, int hoursRetained) {
+        this.estimator = Objects.requireNonNull(estimator);
+        if (hoursRetained <= 0) {
+            throw new IllegalArgumentException("hoursRetained must be greater than zero");
+        }
+        this.levels = new Level[]{
+                new Level(1, SECONDS_RETAINED),
+                new Level(60, MINUTES_RETAINED),
+                new Level(3600, hoursRetained)
+        };
+        record(estimator.getInstantSource().instant(), estimator.getCompletedWorkUnits());
+        estimator.addProgressListener(this);
+    }
+
+    @Override
+    public void workUnitsCompleted(BaseEstimator<?, ?> source, long workUnitsCompleted) {
+        record(estimator.getInstantSource().instant(), estimator.getCompletedWorkUnits());
+    }
+
+    /**
+     * Records the amount of completed work units at the given time. Times before the latest
+     * recorded time are recorded as the latest time.
+     *
+     * @param time The time of the measurement
+     * @param completedWorkUnits The amount of work units completed by then
+     */
+    public void record(Instant time, long completedWorkUnits) {
+        long second = time.getEpochSecond();
+        lock.lock();
+        try {
+            if (lastSecond != NO_BUCKET && second > lastSecond) {
+                rollUp(lastSecond, second);
+            }
+            second = Math.max(second, lastSecond);
+            levels[0].put(second, completedWorkUnits);
+            lastSecond = second;
+            lastCompletedWorkUnits = completedWorkUnits;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void rollUp(long previousSecond, long second) {
+        for (int i = 1; i < levels.length; i++) {
+            Level level = levels[i];
+            long previousBucket = Math.floorDiv(previousSecond, level.resolutionSeconds);
+            if (previousBucket == Math.floorDiv(second, level.resolutionSeconds)) {
+                // a coarser bucket cannot close before the finer one within it
+                return;
+            }
+            level.put(previousBucket, lastCompletedWorkUnits);
+        }
+    }
+
+    /**
+     * Returns the history of the given time range at the finest resolution which is still
+     * available for the start of the range.
+     *
+     * @param from The start of the range, inclusive
+     * @param to The end of the range, inclusive
+     * @return The recorded values in the range, oldest first
+     * @throws IllegalArgumentException if from is after to
+     */
+    public Series query(Instant from, Instant to) {
+        Objects.requireNonNull(from);
+        Objects.requireNonNull(to);
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("from may not be after to");
+        }
+        lock.lock();
+        try {
+            Level level = levels[levels.length - 1];
+            for (Level candidate : levels) {
+                if (from.getEpochSecond() >= candidate.oldestRetainedSecond(lastSecond)) {
+                    level = candidate;
+                    break;
+                }
+            }
+            return level.collect(from.getEpochSecond(), to.getEpochSecond(), lastSecond, lastCompletedWorkUnits);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the monitored estimator.
+     *
+     * @return The monitored estimator
+     */
+    public BaseEstimator<?, ?> getEstimator() {
+        return estimator;
+    }
+
+    /**
+     * Stops recording the progress of the estimator.
+     */
+    @Override
+    public void close() {
+        estimator.removeProgressListener(this);
+    }
+
+    private static final class Level {
+        final long resolutionSeconds;
+        final long[] buckets;
+        final long[] values;
+
+        Level(long resolutionSeconds, int size) {
+            this.resolutionSeconds = resolutionSeconds;
+            this.buckets = new long[size];
+            this.values = new long[size];
+            Arrays.fill(buckets, NO_BUCKET);
+        }
+
+        void put(long bucket, long value) {
+            int index = (int) Math.floorMod(bucket, (long) buckets.length);
+            buckets[index] = bucket;
+            values[index] = value;
+        }
+
+        long oldestRetainedSecond(long lastSecond) {
+            return (Math.floorDiv(lastSecond, resolutionSeconds) - buckets.length + 1) * resolutionSeconds;
+        }
+
+        Series collect(long fromSecond, long toSecond, long lastSecond, long lastValue) {
+            long newestBucket = Math.floorDiv(lastSecond, resolutionSeconds);
+            long firstBucket = Math.max(Math.floorDiv(fromSecond, resolutionSeconds), newestBucket - buckets.length + 1);
+            long lastBucket = Math.min(Math.floorDiv(toSecond, resolutionSeconds), newestBucket);
+
+            int maxSize = (int) Math.max(0, lastBucket - firstBucket + 1);
+            long[] seconds = new long[maxSize];
+            long[] completed = new long[maxSize];
+            int size = 0;
+            for (long bucket = firstBucket; bucket <= lastBucket; bucket++) {
+                int index = (int) Math.floorMod(bucket, (long) buckets.length);
+                if (bucket == newestBucket) {
+                    // the newest bucket of a coarse level has not been rolled up yet
+                    seconds[size] = bucket * resolutionSeconds;
+                    completed[size++] = lastValue;
+                } else if (buckets[index] == bucket) {
+                    seconds[size] = bucket * resolutionSeconds;
+                    completed[size++] = values[index];
+                }
+            }
+            return new Series(Duration.ofSeconds(resolutionSeconds),
+                    Arrays.copyOf(seconds, size), Arrays.copyOf(completed, size));
+        }
+    }
+
+    /**
+     * A series of recorded values at one resolution. Each value is the amount of work units completed
+     * by the end of the interval starting at its time.
+     */
+    public static final class Series {
+
+        private final Duration resolution;
+        private final long[] epochSeconds;
+        private final long[] completedWorkUnits;
+
+        Series(Duration resolution, long[] epochSeconds, long[] completedWorkUnits) {
+            this.resolution = resolution;
+            this.epochSeconds = epochSeconds;
+            this.completedWorkUnits = completedWorkUnits;
+        }
+
+        /**
+         * Returns the length of the interval of each value.
+         *
+         * @return The resolution of the series
+         */
+        public Duration getResolution() {
+            return resolution;
+        }
+
+        /**
+         * Returns the amount of values.
+         *
+         * @return The amount of values
+         */
+        public int size() {
+            return epochSeconds.length;
+        }
+
+        /**
+         * Returns the start of the interval of the value at the given index.
+         *
+         * @param index The index of the value
+         * @return The time of the value
+         */
+        public Instant getTime(int index) {
+            return Instant.ofEpochSecond(epochSeconds[index]);
+        }
+
+        /**
+         * Returns the amount of work units completed by the end of the interval of the value at the given index.
+         *
+         * @param index The index of the value
+         * @return The amount of completed work units
+         */
+        public long getCompletedWorkUnits(int index) {
+            return completedWorkUnits[index];
+        }
+
+        /**
+         * Returns the throughput between the previous value and the value at the given index.
+         *
+         * @param index The index of the value, at least 1
+         * @return The amount of work units completed per second
+         * @throws IndexOutOfBoundsException if index is less than 1 or not less than {@link #size()}
+         */
+        public double getWorkUnitsPerSecond(int index) {
+            if (index < 1 || index >= size()) {
+                throw new IndexOutOfBoundsException("index must be between 1 and " + (size() - 1));
+            }
+            long seconds = epochSeconds[index] - epochSeconds[index - 1];
+            return (double) (completedWorkUnits[index] - completedWorkUnits[index - 1]) / seconds;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package net.sasu.lib.elapsedtime.estimator;
+
+/**
+ * A listener notified by a {@link BaseEstimator} whenever its progress changes.
+ *
+ * <p>Listeners are invoked synchronously on the thread calling
+ * {@link BaseEstimator#completeWorkUnits(long)} or {@link BaseEstimator#setTotalWorkUnits(long)},
+ * after the estimator state has been updated. Implementations should therefore be cheap and
+ * must not block; anything expensive should be handed off to another thread.</p>
+ *
+ * @see BaseEstimator#addProgressListener(ProgressListener)
+ * @author Sasu
+ */
+@FunctionalInterface
+public interface ProgressListener {
+
+    /**
+     * Called after work units have been completed.
+     *
+     * @param estimator The estimator whose progress changed
+     * @param workUnitsCompleted The amount of work units completed in this update
+     */
+    void workUnitsCompleted(BaseEstimator<?, ?> estimator, long workUnitsCompleted);
+
+    /**
+     * Called after the total amount of work units has been changed.
+     * The default implementation does nothing.
+     *
+     * @param estimator The estimator whose total changed
+     * @param totalWorkUnits The new total amount of work units
+     */
+    default void totalWorkUnitsChanged(BaseEstimator<?, ?> estimator, long totalWorkUnits) {
+    }
+}
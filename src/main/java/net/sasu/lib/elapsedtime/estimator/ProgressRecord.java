@@ -0,0 +1,101 @@
+package net.sasu.lib.elapsedtime.estimator;
+
+import java.time.Instant;
+
+/**
+ * A record read from a {@link ProgressRecordFile}.
+ *
+ * @author Sasu
+ */
+public final class ProgressRecord {
+
+    private final long sequence;
+    private final long epochNanos;
+    private final long completedWorkUnits;
+    private final long totalWorkUnits;
+    private final long elapsedNanos;
+    private final long estimatorId;
+
+    ProgressRecord(long sequence, long epochNanos, long completedWorkUnits, long totalWorkUnits, long elapsedNanos,
+                   long estimatorId) {
+        this.sequence = sequence;
+        this.epochNanos = epochNanos;
+        this.completedWorkUnits = completedWorkUnits;
+        this.totalWorkUnits = totalWorkUnits;
+        this.elapsedNanos = elapsedNanos;
+        this.estimatorId = estimatorId;
+    }
+
+    /**
+     * Returns the position of the record among all records appended to the file.
+     *
+     * @return The sequence of the record
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Returns the time of the record.
+     *
+     * @return The time of the record
+     */
+    public Instant getTime() {
+        return Instant.ofEpochSecond(Math.floorDiv(epochNanos, 1_000_000_000L), Math.floorMod(epochNanos, 1_000_000_000L));
+    }
+
+    /**
+     * Returns the amount of completed work units.
+     *
+     * @return The amount of completed work units
+     */
+    public long getCompletedWorkUnits() {
+        return completedWorkUnits;
+    }
+
+    /**
+     * Returns the amount of total work units.
+     *
+     * @return The amount of total work units
+     */
+    public long getTotalWorkUnits() {
+        return totalWorkUnits;
+    }
+
+    /**
+     * Returns the elapsed time of the estimator in nanoseconds.
+     *
+     * @return The elapsed time in nanoseconds
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Returns a remaining time in nanoseconds derived from the recorded counters, extrapolated from the
+     * average time per completed work unit and saturated to {@link Long#MAX_VALUE}. {@link Long#MAX_VALUE}
+     * if no work units were completed yet. This is not the estimate of the recorded estimator, which
+     * may have used another calculation or a reset rate history.
+     *
+     * @return The derived remaining time in nanoseconds
+     */
+    public long getDerivedRemainingNanos() {
+        return BulkEstimates.remainingNanos(completedWorkUnits, totalWorkUnits, elapsedNanos, 0, 0);
+    }
+
+    /**
+     * Returns the id of the estimator.
+     *
+     * @return The estimator id
+     */
+    public long getEstimatorId() {
+        return estimatorId;
+    }
+
+    @Override
+    public String toString() {
+        return "ProgressRecord{sequence=" + sequence + ", time=" + getTime() + ", completedWorkUnits="
+                + completedWorkUnits + ", totalWorkUnits=" + totalWorkUnits + ", elapsedNanos=" + elapsedNanos
+                + ", estimatorId=" + estimatorId + "}";
+    }
+}
@@ -0,0 +1,287 @@
+package net.sasu.lib.elapsedtime.estimator;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * A size-capped ring file of fixed-width progress records, for seeing afterwards exactly how the
+ * progress of a slow run unfolded.
+ *
+ * <p>Estimators are attached with {@link #attach(BaseEstimator, long)}. At every completion, a record
+ * of the time, the amount of completed and total work units, the elapsed time and the id of the
+ * estimator is written into the memory-mapped file. Only raw counters are recorded, so recording
+ * never computes an estimate; {@link ProgressRecord#getDerivedRemainingNanos()} derives one from the
+ * counters when reading. Once the file is full, the oldest records are overwritten. Writers claim a
+ * record with an atomic increment of the sequence in the header of the file and write the record
+ * directly into the mapped memory, so recording neither locks nor makes system calls. The operating
+ * system writes the mapped memory to the file even if the process crashes; only a crash of the
+ * operating system can lose records not yet {@link #force() forced}.</p>
+ *
+ * <p>The file format is little-endian. The header of {@value #HEADER_SIZE} bytes holds the magic
+ * number, the format version, the record size, the capacity in records and the sequence of the next
+ * record. Each record of {@value #RECORD_SIZE} bytes holds its sequence plus one, which is zero while
+ * the record is being written, the time in nanoseconds since the epoch, the amount of completed work
+ * units, the amount of total work units, the elapsed time in nanoseconds and the estimator id. A file
+ * holds at most {@value #MAX_CAPACITY} records, so that it can be mapped as a single buffer. The file
+ * is read with {@link ProgressRecordReader}.</p>
+ *
+ * <p>Example usage:</p>
+ * <pre>
+ * {@literal
+ * try (ProgressRecordFile records = new ProgressRecordFile(Path.of("progress.bin"), 100_000)) {
+ *     records.attach(estimator, 1);
+ *     ...
+ * }
+ * }
+ * </pre>
+ *
+ * @author Sasu
+ */
+public class ProgressRecordFile implements AutoCloseable {
+
+    /**
+     * The magic number at the start of the file.
+     */
+    public static final int MAGIC = 0x54455052;
+
+    /**
+     * The version of the file format.
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * The size of the header in bytes.
+     */
+    public static final int HEADER_SIZE = 64;
+
+    /**
+     * The size of a record in bytes.
+     */
+    public static final int RECORD_SIZE = 48;
+
+    /**
+     * The largest amount of records a file can keep, limited by the largest buffer which can be mapped.
+     */
+    public static final int MAX_CAPACITY = (Integer.MAX_VALUE - HEADER_SIZE) / RECORD_SIZE;
+
+    static final int MAGIC_OFFSET = 0;
+    static final int VERSION_OFFSET = 4;
+    static final int RECORD_SIZE_OFFSET = 8;
+    static final int CAPACITY_OFFSET = 12;
+    static final int SEQUENCE_OFFSET = 16;
+
+    static final int STAMP_OFFSET = 0;
+    static final int TIME_OFFSET = 8;
+    static final int COMPLETED_OFFSET = 16;
+    static final int TOTAL_OFFSET = 24;
+    static final int ELAPSED_OFFSET = 32;
+    static final int ESTIMATOR_ID_OFFSET = 40;
+
+    static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private final Path file;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+
+    /**
+     * Opens the given ring file, creating it with the given capacity if it does not exist. An
+     * existing file is appended to.
+     *
+     * @param file The file to write to
+     * @param capacity The amount of records kept in the file
+     * @throws IllegalArgumentException if capacity is not positive or exceeds {@link #MAX_CAPACITY},
+     *         or the file exists but is not a ring file of the given capacity
+     * @throws IOException if the file cannot be opened or mapped
+     */
+    public ProgressRecordFile(Path file, int capacity) throws IOException {
+        this.file = Objects.requireNonNull(file);
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be greater than zero");
+        }
+        if (capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("capacity may not exceed " + MAX_CAPACITY + " records, was " + capacity);
+        }
+        this.capacity = capacity;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            long existingSize = channel.size();
+            long size = fileSize(capacity);
+            if (existingSize != 0 && existingSize != size) {
+                throw new IllegalArgumentException("File " + file + " is not a ring file of capacity " + capacity);
+            }
+            this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if (existingSize == 0) {
+                buffer.putInt(VERSION_OFFSET, VERSION);
+                buffer.putInt(RECORD_SIZE_OFFSET, RECORD_SIZE);
+                buffer.putInt(CAPACITY_OFFSET, capacity);
+                LONGS.setRelease(buffer, SEQUENCE_OFFSET, 0L);
+                // the magic number is written last so that a half-initialized file is not valid
+                buffer.putInt(MAGIC_OFFSET, MAGIC);
+            } else {
+                validateHeader(buffer, file);
+                if (buffer.getInt(CAPACITY_OFFSET) != capacity) {
+                    throw new IllegalArgumentException("File " + file + " is not a ring file of capacity " + capacity);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the size of a ring file with the given capacity.
+     *
+     * @param capacity The amount of records kept in the file
+     * @return The size of the file in bytes
+     */
+    public static long fileSize(int capacity) {
+        return HEADER_SIZE + (long) capacity * RECORD_SIZE;
+    }
+
+    static void validateHeader(ByteBuffer buffer, Path file) {
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(MAGIC_OFFSET) != MAGIC) {
+            throw new IllegalArgumentException("File " + file + " is not a ring file");
+        }
+        if (buffer.getInt(VERSION_OFFSET) != VERSION || buffer.getInt(RECORD_SIZE_OFFSET) != RECORD_SIZE) {
+            throw new IllegalArgumentException("File " + file + " has an unsupported format version");
+        }
+        if (buffer.capacity() != fileSize(buffer.getInt(CAPACITY_OFFSET))) {
+            throw new IllegalArgumentException("File " + file + " is truncated");
+        }
+    }
+
+    /**
+     * Starts recording the completions of the given estimator. The recording stops when the
+     * returned attachment is closed.
+     *
+     * @param estimator The estimator whose completions to record
+     * @param estimatorId The id identifying the estimator in the records
+     * @return The attachment of the estimator
+     */
+    public Attachment attach(BaseEstimator<?, ?> estimator, long estimatorId) {
+        return new Attachment(estimator, estimatorId);
+    }
+
+    /**
+     * Appends a record. May be called from any amount of threads concurrently.
+     *
+     * @param time The time of the record
+     * @param completedWorkUnits The amount of completed work units
+     * @param totalWorkUnits The amount of total work units
+     * @param elapsedNanos The elapsed time in nanoseconds
+     * @param estimatorId The id of the estimator
+     */
+    public void append(Instant time, long completedWorkUnits, long totalWorkUnits, long elapsedNanos, long estimatorId) {
+        long epochNanos = Math.addExact(Math.multiplyExact(time.getEpochSecond(), 1_000_000_000L), time.getNano());
+        long sequence = (long) LONGS.getAndAdd(buffer, SEQUENCE_OFFSET, 1L);
+        int offset = HEADER_SIZE + (int) (sequence % capacity) * RECORD_SIZE;
+
+        // a zero stamp marks the record as being written for readers
+        LONGS.setOpaque(buffer, offset + STAMP_OFFSET, 0L);
+        // keeps the data stores below from becoming visible before the zero stamp
+        VarHandle.storeStoreFence();
+        LONGS.set(buffer, offset + TIME_OFFSET, epochNanos);
+        LONGS.set(buffer, offset + COMPLETED_OFFSET, completedWorkUnits);
+        LONGS.set(buffer, offset + TOTAL_OFFSET, totalWorkUnits);
+        LONGS.set(buffer, offset + ELAPSED_OFFSET, elapsedNanos);
+        LONGS.set(buffer, offset + ESTIMATOR_ID_OFFSET, estimatorId);
+        LONGS.setRelease(buffer, offset + STAMP_OFFSET, sequence + 1);
+    }
+
+    /**
+     * Returns the total amount of records appended to the file, including overwritten ones.
+     *
+     * @return The sequence of the next record
+     */
+    public long getRecordCount() {
+        return (long) LONGS.getAcquire(buffer, SEQUENCE_OFFSET);
+    }
+
+    /**
+     * Returns the amount of records kept in the file.
+     *
+     * @return The capacity of the file
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the file written to.
+     *
+     * @return The file
+     */
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Writes the records to the storage device, so that they survive a crash of the operating system.
+     */
+    public void force() {
+        buffer.force();
+    }
+
+    /**
+     * Forces the records to the storage device and closes the file. Attachments must be closed
+     * before closing the file.
+     *
+     * @throws IOException if closing the file fails
+     */
+    @Override
+    public void close() throws IOException {
+        force();
+        channel.close();
+    }
+
+    /**
+     * The recording of the completions of one estimator into a {@link ProgressRecordFile}.
+     */
+    public final class Attachment implements ProgressListener, AutoCloseable {
+
+        private final BaseEstimator<?, ?> estimator;
+        private final long estimatorId;
+
+        private Attachment(BaseEstimator<?, ?> estimator, long estimatorId) {
+            this.estimator = Objects.requireNonNull(estimator);
+            this.estimatorId = estimatorId;
+            estimator.addProgressListener(this);
+        }
+
+        @Override
+        public void workUnitsCompleted(BaseEstimator<?, ?> source, long workUnitsCompleted) {
+            append(estimator.getInstantSource().instant(), estimator.getCompletedWorkUnits(),
+                    estimator.getTotalWorkUnits(), estimator.getElapsedTime().getDuration().toNanos(), estimatorId);
+        }
+
+        /**
+         * Returns the id identifying the estimator in the records.
+         *
+         * @return The estimator id
+         */
+        public long getEstimatorId() {
+            return estimatorId;
+        }
+
+        /**
+         * Stops recording the completions of the estimator.
+         */
+        @Override
+        public void close() {
+            estimator.removeProgressListener(this);
+        }
+    }
+}
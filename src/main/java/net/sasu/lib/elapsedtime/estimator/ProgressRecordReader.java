@@ -0,0 +1,158 @@
+package net.sasu.lib.elapsedtime.estimator;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+import static net.sasu.lib.elapsedtime.estimator.ProgressRecordFile.*;
+
+/**
+ * Reads the records of a {@link ProgressRecordFile}, oldest first, and converts them to CSV or JSON.
+ *
+ * <p>The file may be read while it is being written, or after the writing process has crashed.
+ * Records which are being written or overwritten while reading are skipped.</p>
+ *
+ * <p>The {@code derivedRemainingNanos} column is {@link ProgressRecord#getDerivedRemainingNanos()},
+ * derived from the recorded counters rather than recorded from the estimator.</p>
+ *
+ * <p>Usage from the command line:</p>
+ * <pre>
+ * java net.sasu.lib.elapsedtime.estimator.ProgressRecordReader progress.bin [csv|json]
+ * </pre>
+ *
+ * @author Sasu
+ */
+public class ProgressRecordReader {
+
+    static final String CSV_HEADER =
+            "sequence,time,completedWorkUnits,totalWorkUnits,elapsedNanos,derivedRemainingNanos,estimatorId";
+
+    private final Path file;
+
+    /**
+     * Creates a reader of the given ring file.
+     *
+     * @param file The file to read
+     */
+    public ProgressRecordReader(Path file) {
+        this.file = Objects.requireNonNull(file);
+    }
+
+    /**
+     * Passes the records of the file to the given consumer, oldest first.
+     *
+     * @param consumer The consumer of the records
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if the file is not a ring file
+     */
+    public void forEach(Consumer<? super ProgressRecord> consumer) throws IOException {
+        Objects.requireNonNull(consumer);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            validateHeader(buffer, file);
+
+            int capacity = buffer.getInt(CAPACITY_OFFSET);
+            long next = (long) LONGS.getAcquire(buffer, SEQUENCE_OFFSET);
+            for (long sequence = Math.max(0, next - capacity); sequence < next; sequence++) {
+                int offset = HEADER_SIZE + (int) (sequence % capacity) * RECORD_SIZE;
+                if ((long) LONGS.getAcquire(buffer, offset + STAMP_OFFSET) != sequence + 1) {
+                    continue;
+                }
+                ProgressRecord record = new ProgressRecord(sequence,
+                        (long) LONGS.get(buffer, offset + TIME_OFFSET),
+                        (long) LONGS.get(buffer, offset + COMPLETED_OFFSET),
+                        (long) LONGS.get(buffer, offset + TOTAL_OFFSET),
+                        (long) LONGS.get(buffer, offset + ELAPSED_OFFSET),
+                        (long) LONGS.get(buffer, offset + ESTIMATOR_ID_OFFSET));
+                VarHandle.acquireFence();
+                if ((long) LONGS.getAcquire(buffer, offset + STAMP_OFFSET) == sequence + 1) {
+                    consumer.accept(record);
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the records of the file as CSV with a header line.
+     *
+     * @param out Where to write to
+     * @throws IOException if reading the file or writing fails
+     */
+    public void writeCsv(Appendable out) throws IOException {
+        out.append(CSV_HEADER).append('\n');
+        try {
+            forEach(record -> append(out, record.getSequence() + "," + record.getTime() + ","
+                    + record.getCompletedWorkUnits() + "," + record.getTotalWorkUnits() + ","
+                    + record.getElapsedNanos() + "," + record.getDerivedRemainingNanos() + ","
+                    + record.getEstimatorId() + "\n"));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Writes the records of the file as a JSON array with one object per line.
+     *
+     * @param out Where to write to
+     * @throws IOException if reading the file or writing fails
+     */
+    public void writeJson(Appendable out) throws IOException {
+        out.append('[');
+        boolean[] first = {true};
+        try {
+            forEach(record -> {
+                append(out, (first[0] ? "\n" : ",\n") + "{\"sequence\":" + record.getSequence()
+                        + ",\"time\":\"" + record.getTime() + "\",\"completedWorkUnits\":"
+                        + record.getCompletedWorkUnits() + ",\"totalWorkUnits\":" + record.getTotalWorkUnits()
+                        + ",\"elapsedNanos\":" + record.getElapsedNanos()
+                        + ",\"derivedRemainingNanos\":" + record.getDerivedRemainingNanos()
+                        + ",\"estimatorId\":" + record.getEstimatorId() + "}");
+                first[0] = false;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        out.append("\n]\n");
+    }
+
+    private static void append(Appendable out, String text) {
+        try {
+            out.append(text);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes the records of a ring file to the standard output.
+     *
+     * @param args The file, and optionally the format {@code csv} (default) or {@code json}
+     * @throws IOException if reading the file or writing fails
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || args.length > 2 || (args.length == 2 && !args[1].matches("csv|json"))) {
+            System.err.println("Usage: ProgressRecordReader <file> [csv|json]");
+            System.exit(2);
+        }
+        ProgressRecordReader reader = new ProgressRecordReader(Path.of(args[0]));
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+        if (args.length == 2 && args[1].equals("json")) {
+            reader.writeJson(out);
+        } else {
+            reader.writeCsv(out);
+        }
+        out.flush();
+    }
+}
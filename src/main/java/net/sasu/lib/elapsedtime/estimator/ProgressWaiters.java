@@ -0,0 +1,183 @@
+package net.sasu.lib.elapsedtime.estimator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The threads waiting for an estimator to reach an amount of completed work units.
+ *
+ * <p>Waiters are kept ordered by their target, and the nearest target is published in a volatile
+ * field, so that the completing thread only needs a single comparison to find out whether anyone
+ * has to be woken up. Waiting threads are parked with {@link LockSupport} and the bookkeeping is
+ * guarded by a {@link ReentrantLock}, so waiting is safe on virtual threads.</p>
+ *
+ * <p>Targets given as a fraction of the total are recalculated when the total changes.</p>
+ */
+class ProgressWaiters {
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final PriorityQueue<Waiter> waiters = new PriorityQueue<>();
+    private volatile long nextTarget = Long.MAX_VALUE;
+
+    /**
+     * Returns whether a waiter might have to be woken up at the given amount of completed work units.
+     *
+     * @param completedWorkUnits The current amount of completed work units
+     * @return true if the nearest target has been reached
+     */
+    boolean isTargetReached(long completedWorkUnits) {
+        return completedWorkUnits >= nextTarget;
+    }
+
+    /**
+     * Wakes up all waiters whose target has been reached.
+     *
+     * @param completedWorkUnits The current amount of completed work units
+     */
+    void release(long completedWorkUnits) {
+        List<Waiter> released = new ArrayList<>();
+        lock.lock();
+        try {
+            while (!waiters.isEmpty() && waiters.peek().target <= completedWorkUnits) {
+                Waiter waiter = waiters.poll();
+                // marked under the lock, so that a cancelling waiter cannot miss its release
+                waiter.released = true;
+                released.add(waiter);
+            }
+            updateNextTarget();
+        } finally {
+            lock.unlock();
+        }
+        for (Waiter waiter : released) {
+            LockSupport.unpark(waiter.thread);
+        }
+    }
+
+    /**
+     * Recalculates the targets of waiters given as a fraction and wakes up the waiters whose target
+     * has been reached.
+     *
+     * @param totalWorkUnits The new total amount of work units
+     * @param completedWorkUnits The current amount of completed work units
+     */
+    void totalChanged(long totalWorkUnits, long completedWorkUnits) {
+        lock.lock();
+        try {
+            if (waiters.isEmpty()) {
+                return;
+            }
+            List<Waiter> all = new ArrayList<>(waiters);
+            waiters.clear();
+            for (Waiter waiter : all) {
+                if (!Double.isNaN(waiter.fraction)) {
+                    waiter.target = target(waiter.fraction, totalWorkUnits);
+                }
+                waiters.add(waiter);
+            }
+            updateNextTarget();
+        } finally {
+            lock.unlock();
+        }
+        release(completedWorkUnits);
+    }
+
+    /**
+     * Blocks until the given estimator reaches the target, the timeout passes or the thread is interrupted.
+     *
+     * @param estimator The estimator to wait for
+     * @param units The absolute target, used if fraction is NaN
+     * @param fraction The target as a fraction of the total, or NaN
+     * @param timeoutNanos The maximum time to wait, or a negative value to wait without a timeout
+     * @return true if the target was reached, false if the timeout passed
+     * @throws InterruptedException if the thread was interrupted while waiting
+     */
+    boolean await(BaseEstimator<?, ?> estimator, long units, double fraction, long timeoutNanos)
+            throws InterruptedException {
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+
+        Waiter waiter = new Waiter(Thread.currentThread(), fraction);
+        lock.lock();
+        try {
+            waiter.target = Double.isNaN(fraction) ? units : target(fraction, estimator.getTotalWorkUnits());
+            if (estimator.getCompletedWorkUnits() >= waiter.target) {
+                return true;
+            }
+            waiters.add(waiter);
+            updateNextTarget();
+        } finally {
+            lock.unlock();
+        }
+        // the target may have been reached before it was published
+        release(estimator.getCompletedWorkUnits());
+
+        long deadline = System.nanoTime() + timeoutNanos;
+        while (!waiter.released) {
+            if (timeoutNanos < 0) {
+                LockSupport.park(this);
+            } else {
+                long remainingNanos = deadline - System.nanoTime();
+                if (remainingNanos <= 0) {
+                    return cancel(waiter);
+                }
+                LockSupport.parkNanos(this, remainingNanos);
+            }
+            if (Thread.interrupted()) {
+                if (cancel(waiter)) {
+                    Thread.currentThread().interrupt();
+                    return true;
+                }
+                throw new InterruptedException();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Removes a waiter which stops waiting. A waiter is either still waiting or has been released,
+     * and both are decided under the lock, so the outcome is exact.
+     *
+     * @return true if the waiter had been released in the meantime
+     */
+    private boolean cancel(Waiter waiter) {
+        lock.lock();
+        try {
+            if (waiters.remove(waiter)) {
+                updateNextTarget();
+                return false;
+            }
+            return waiter.released;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void updateNextTarget() {
+        nextTarget = waiters.isEmpty() ? Long.MAX_VALUE : waiters.peek().target;
+    }
+
+    private static long target(double fraction, long totalWorkUnits) {
+        return Math.min(totalWorkUnits, (long) Math.ceil(fraction * totalWorkUnits));
+    }
+
+    private static final class Waiter implements Comparable<Waiter> {
+        final Thread thread;
+        final double fraction;
+        long target;
+        volatile boolean released;
+
+        Waiter(Thread thread, double fraction) {
+            this.thread = thread;
+            this.fraction = fraction;
+        }
+
+        @Override
+        public int compareTo(Waiter other) {
+            return Long.compare(target, other.target);
+        }
+    }
+}
@@ -0,0 +1,319 @@
+package net.sasu.lib.elapsedtime.estimator;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Detects changes in the speed of a process and discards the outdated rate history of the
+ * estimator it monitors, so that the estimate follows a new regime without lagging behind.
+ *
+ * <p>The monitor measures the duration per work unit between consecutive completions and feeds its
+ * logarithm to a {@link PageHinkleyDetector}, so changes are detected by their relative size and
+ * every completion costs O(1). When a change is detected, the estimator's rate history is reset to
+ * the onset of the change with {@link BaseEstimator#resetRateHistory(long, Duration)}, the change is
+ * recorded as a {@link ChangePoint} and the registered callbacks are called.</p>
+ *
+ * <p>Completions reported concurrently are measured one at a time under a lock, each against the
+ * progress measured before it. Callbacks are called after the lock has been released.</p>
+ *
+ * <p>Example usage:</p>
+ * <pre>
+ * {@literal
+ * RateShiftMonitor monitor = new RateShiftMonitor(estimator);
+ * monitor.onChangePoint(changePoint -> log.info("Speed changed: {}", changePoint));
+ * }
+ * </pre>
+ *
+ * @author Sasu
+ */
+public class RateShiftMonitor implements ProgressListener, AutoCloseable {
+
+    /**
+     * The default tolerated change of the logarithm of the duration per work unit.
+     */
+    public static final double DEFAULT_DELTA = 0.1;
+
+    /**
+     * The default detection threshold of the cumulative log deviations.
+     */
+    public static final double DEFAULT_THRESHOLD = 3;
+
+    /**
+     * The default amount of measurements needed in a regime before a change can be detected.
+     */
+    public static final int DEFAULT_MIN_SAMPLES = 5;
+
+    /**
+     * The maximum amount of change points kept by {@link #getChangePoints()}.
+     */
+    public static final int MAX_CHANGE_POINTS = 1024;
+
+    // the onset of a change can be located at most this many measurements back
+    private static final int SNAPSHOT_HISTORY = 64;
+
+    private final BaseEstimator<?, ?> estimator;
+    private final PageHinkleyDetector detector;
+    // guards the detector, the snapshots and the sample and regime state
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final long[] snapshotCompletedWorkUnits = new long[SNAPSHOT_HISTORY];
+    private final long[] snapshotElapsedNanos = new long[SNAPSHOT_HISTORY];
+    private long sampleNumber = -1;
+    private long regimeStartSample;
+    private long baselineCompletedWorkUnits;
+    private long baselineElapsedNanos;
+
+    private final List<ChangePoint> changePoints = new CopyOnWriteArrayList<>();
+    private final List<Consumer<ChangePoint>> callbacks = new CopyOnWriteArrayList<>();
+
+    /**
+     * Creates a monitor for the given estimator with the default detector parameters.
+     *
+     * @param estimator The estimator to monitor
+     */
+    public RateShiftMonitor(BaseEstimator<?, ?> estimator) {
+        this(estimator, new PageHinkleyDetector(DEFAULT_DELTA, DEFAULT_THRESHOLD, DEFAULT_MIN_SAMPLES));
+    }
+
+    /**
+     * Creates a monitor for the given estimator using the given detector. The detector is fed the
+     * natural logarithm of the duration per work unit in nanoseconds.
+     *
+     * @param estimator The estimator to monitor
+     * @param detector The detector to use
+     * @throws NullPointerException if estimator or detector is null
+     */
+    public RateShiftMonitor(BaseEstimator<?, ?> estimator, PageHinkleyDetector detector) {
+        this.estimator = Objects.requireNonNull(estimator);
+        this.detector = Objects.requireNonNull(detector);
+        estimator.addProgressListener(this);
+    }
+
+    /**
+     * Registers a callback which is called with every detected change point.
+     *
+     * @param callback The callback to call
+     * @return This instance
+     */
+    public RateShiftMonitor onChangePoint(Consumer<ChangePoint> callback) {
+        callbacks.add(Objects.requireNonNull(callback));
+        return this;
+    }
+
+    @Override
+    public void workUnitsCompleted(BaseEstimator<?, ?> source, long workUnitsCompleted) {
+        ChangePoint changePoint = null;
+        lock.lock();
+        try {
+            // read under the lock, so that the snapshots are in the order of their progress
+            long completed = estimator.getCompletedWorkUnits();
+            long elapsedNanos = estimator.getElapsedTime().getDuration().toNanos();
+
+            if (sampleNumber < 0) {
+                sampleNumber = 0;
+                regimeStartSample = 0;
+                storeSnapshot(0, completed, elapsedNanos);
+                return;
+            }
+
+            int previous = (int) (sampleNumber % SNAPSHOT_HISTORY);
+            long workUnits = completed - snapshotCompletedWorkUnits[previous];
+            if (workUnits <= 0) {
+                // already measured with a concurrent completion
+                return;
+            }
+            long nanosPerUnit = Math.max(0, elapsedNanos - snapshotElapsedNanos[previous]) / workUnits;
+            sampleNumber++;
+            storeSnapshot(sampleNumber, completed, elapsedNanos);
+
+            PageHinkleyDetector.Shift shift = detector.update(Math.log(Math.max(1, nanosPerUnit)));
+            if (shift != PageHinkleyDetector.Shift.NONE) {
+                changePoint = changeDetected(shift, completed, elapsedNanos);
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (changePoint != null) {
+            for (Consumer<ChangePoint> callback : callbacks) {
+                callback.accept(changePoint);
+            }
+        }
+    }
+
+    /**
+     * Records the change and resets the rate history. Must be called while holding the lock.
+     */
+    private ChangePoint changeDetected(PageHinkleyDetector.Shift shift, long completed, long elapsedNanos) {
+        long onsetSample = regimeStartSample + detector.getOnsetSample(shift);
+        onsetSample = Math.max(onsetSample, sampleNumber - SNAPSHOT_HISTORY + 1);
+        int onset = (int) (onsetSample % SNAPSHOT_HISTORY);
+        long onsetCompleted = snapshotCompletedWorkUnits[onset];
+        long onsetElapsedNanos = snapshotElapsedNanos[onset];
+
+        Instant detectionTime = estimator.getInstantSource().instant();
+        ChangePoint changePoint = new ChangePoint(
+                shift,
+                detectionTime.minusNanos(elapsedNanos - onsetElapsedNanos),
+                detectionTime,
+                onsetCompleted,
+                Duration.ofNanos(onsetElapsedNanos),
+                nanosPerUnit(onsetElapsedNanos - baselineElapsedNanos, onsetCompleted - baselineCompletedWorkUnits),
+                nanosPerUnit(elapsedNanos - onsetElapsedNanos, completed - onsetCompleted));
+
+        estimator.resetRateHistory(onsetCompleted, changePoint.getOnsetElapsed());
+        baselineCompletedWorkUnits = onsetCompleted;
+        baselineElapsedNanos = onsetElapsedNanos;
+        detector.reset();
+        regimeStartSample = sampleNumber;
+
+        changePoints.add(changePoint);
+        if (changePoints.size() > MAX_CHANGE_POINTS) {
+            changePoints.remove(0);
+        }
+        return changePoint;
+    }
+
+    private void storeSnapshot(long sample, long completed, long elapsedNanos) {
+        int index = (int) (sample % SNAPSHOT_HISTORY);
+        snapshotCompletedWorkUnits[index] = completed;
+        snapshotElapsedNanos[index] = elapsedNanos;
+    }
+
+    private static double nanosPerUnit(long nanos, long workUnits) {
+        if (workUnits <= 0) {
+            return Double.NaN;
+        }
+        return (double) nanos / workUnits;
+    }
+
+    /**
+     * Returns the detected change points, oldest first. At most {@link #MAX_CHANGE_POINTS}
+     * of the latest change points are kept.
+     *
+     * @return A copy of the detected change points
+     */
+    public List<ChangePoint> getChangePoints() {
+        return new ArrayList<>(changePoints);
+    }
+
+    /**
+     * Returns the monitored estimator.
+     *
+     * @return The monitored estimator
+     */
+    public BaseEstimator<?, ?> getEstimator() {
+        return estimator;
+    }
+
+    /**
+     * Stops monitoring the estimator.
+     */
+    @Override
+    public void close() {
+        estimator.removeProgressListener(this);
+    }
+
+    /**
+     * A detected change in the speed of a process.
+     */
+    public static final class ChangePoint {
+
+        private final PageHinkleyDetector.Shift shift;
+        private final Instant onsetTime;
+        private final Instant detectionTime;
+        private final long onsetCompletedWorkUnits;
+        private final Duration onsetElapsed;
+        private final double nanosPerUnitBefore;
+        private final double nanosPerUnitAfter;
+
+        ChangePoint(PageHinkleyDetector.Shift shift, Instant onsetTime, Instant detectionTime,
+                    long onsetCompletedWorkUnits, Duration onsetElapsed,
+                    double nanosPerUnitBefore, double nanosPerUnitAfter) {
+            this.shift = shift;
+            this.onsetTime = onsetTime;
+            this.detectionTime = detectionTime;
+            this.onsetCompletedWorkUnits = onsetCompletedWorkUnits;
+            this.onsetElapsed = onsetElapsed;
+            this.nanosPerUnitBefore = nanosPerUnitBefore;
+            this.nanosPerUnitAfter = nanosPerUnitAfter;
+        }
+
+        /**
+         * Returns the direction of the change in the duration per work unit:
+         * {@link PageHinkleyDetector.Shift#INCREASE} means the process slowed down.
+         *
+         * @return The direction of the change
+         */
+        public PageHinkleyDetector.Shift getShift() {
+            return shift;
+        }
+
+        /**
+         * Returns the estimated time at which the change started.
+         *
+         * @return The onset time of the change
+         */
+        public Instant getOnsetTime() {
+            return onsetTime;
+        }
+
+        /**
+         * Returns the time at which the change was detected.
+         *
+         * @return The detection time of the change
+         */
+        public Instant getDetectionTime() {
+            return detectionTime;
+        }
+
+        /**
+         * Returns the amount of work units which had been completed when the change started.
+         *
+         * @return The completed work units at the onset of the change
+         */
+        public long getOnsetCompletedWorkUnits() {
+            return onsetCompletedWorkUnits;
+        }
+
+        /**
+         * Returns the elapsed time of the estimator when the change started.
+         *
+         * @return The elapsed time at the onset of the change
+         */
+        public Duration getOnsetElapsed() {
+            return onsetElapsed;
+        }
+
+        /**
+         * Returns the average duration per work unit between the previous change point
+         * (or the start) and the onset of this change.
+         *
+         * @return The duration per work unit before the change in nanoseconds, or NaN if unknown
+         */
+        public double getNanosPerUnitBefore() {
+            return nanosPerUnitBefore;
+        }
+
+        /**
+         * Returns the average duration per work unit between the onset and the detection of this change.
+         *
+         * @return The duration per work unit after the change in nanoseconds, or NaN if unknown
+         */
+        public double getNanosPerUnitAfter() {
+            return nanosPerUnitAfter;
+        }
+
+        @Override
+        public String toString() {
+            return "ChangePoint{shift=" + shift + ", onsetTime=" + onsetTime + ", detectionTime=" + detectionTime
+                    + ", onsetCompletedWorkUnits=" + onsetCompletedWorkUnits
+                    + ", nanosPerUnitBefore=" + nanosPerUnitBefore + ", nanosPerUnitAfter=" + nanosPerUnitAfter + "}";
+        }
+    }
+}
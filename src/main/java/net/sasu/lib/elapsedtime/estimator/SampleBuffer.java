@@ -0,0 +1,131 @@
+package net.sasu.lib.elapsedtime.estimator;
+
+/**
+ * A fixed-capacity ring buffer of completion samples, shared by the models of an {@link EnsembleEstimator}.
+ * Each sample holds the amount of work units completed and the time it took to complete them.
+ * The samples are stored in primitive arrays, so adding a sample does not allocate.
+ *
+ * <p>Samples are addressed by their age: age 0 is the newest sample and age {@code size() - 1}
+ * the oldest one still in the buffer.</p>
+ *
+ * @author Sasu
+ */
+public final class SampleBuffer {
+
+    private final long[] workUnits;
+    private final long[] durationNanos;
+    private int newestIndex = -1;
+    private int size;
+    private long totalWorkUnits;
+    private long totalDurationNanos;
+
+    /**
+     * Creates an empty buffer.
+     *
+     * @param capacity The maximum amount of samples kept
+     * @throws IllegalArgumentException if capacity is not positive
+     */
+    SampleBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be greater than zero");
+        }
+        this.workUnits = new long[capacity];
+        this.durationNanos = new long[capacity];
+    }
+
+    void add(long sampleWorkUnits, long sampleDurationNanos) {
+        newestIndex = (newestIndex + 1) % workUnits.length;
+        workUnits[newestIndex] = sampleWorkUnits;
+        durationNanos[newestIndex] = sampleDurationNanos;
+        size = Math.min(size + 1, workUnits.length);
+        totalWorkUnits += sampleWorkUnits;
+        totalDurationNanos += sampleDurationNanos;
+    }
+
+    void clear() {
+        newestIndex = -1;
+        size = 0;
+        totalWorkUnits = 0;
+        totalDurationNanos = 0;
+    }
+
+    /**
+     * Returns the maximum amount of samples kept.
+     *
+     * @return The capacity of the buffer
+     */
+    public int capacity() {
+        return workUnits.length;
+    }
+
+    /**
+     * Returns the amount of samples currently in the buffer.
+     *
+     * @return The amount of samples
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the amount of work units completed in the sample of the given age.
+     *
+     * @param age The age of the sample, 0 being the newest
+     * @return The amount of work units of the sample
+     * @throws IndexOutOfBoundsException if age is negative or not less than {@link #size()}
+     */
+    public long getWorkUnits(int age) {
+        return workUnits[index(age)];
+    }
+
+    /**
+     * Returns the time it took to complete the work units of the sample of the given age.
+     *
+     * @param age The age of the sample, 0 being the newest
+     * @return The duration of the sample in nanoseconds
+     * @throws IndexOutOfBoundsException if age is negative or not less than {@link #size()}
+     */
+    public long getDurationNanos(int age) {
+        return durationNanos[index(age)];
+    }
+
+    /**
+     * Returns the duration per work unit of the sample of the given age.
+     *
+     * @param age The age of the sample, 0 being the newest
+     * @return The duration per work unit of the sample in nanoseconds
+     * @throws IndexOutOfBoundsException if age is negative or not less than {@link #size()}
+     */
+    public double getNanosPerUnit(int age) {
+        int index = index(age);
+        return (double) durationNanos[index] / workUnits[index];
+    }
+
+    /**
+     * Returns the sum of the work units of all samples added since the buffer was last cleared,
+     * including samples which have been overwritten since.
+     *
+     * @return The total amount of sampled work units
+     */
+    public long getTotalWorkUnits() {
+        return totalWorkUnits;
+    }
+
+    /**
+     * Returns the sum of the durations of all samples added since the buffer was last cleared,
+     * including samples which have been overwritten since.
+     *
+     * @return The total sampled duration in nanoseconds
+     */
+    public long getTotalDurationNanos() {
+        return totalDurationNanos;
+    }
+
+    private int index(int age) {
+        if (age < 0 || age >= size) {
+            throw new IndexOutOfBoundsException("age must be between 0 and " + (size - 1) + ", was " + age);
+        }
+        int index = newestIndex - age;
+        return index < 0 ? index + workUnits.length : index;
+    }
+}
@@ -0,0 +1,511 @@
+package net.sasu.lib.elapsedtime.estimator;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * An {@link java.util.concurrent.ExecutorService} running the task with the shortest estimated
+ * remaining time first (SRPT), which minimizes the mean completion time of mixed workloads.
+ *
+ * <p>Each task is submitted with the estimator of its work. Queued tasks are ordered by their key
+ * {@code remaining + agingFactor * waited}, where {@code remaining} is the estimated remaining time of
+ * the task and {@code waited} the time since the executor was created until the task was submitted.
+ * The second term ages the tasks, so that long tasks are not starved by a steady stream of short
+ * ones: a task submitted one second later must be estimated {@code agingFactor} seconds shorter to
+ * overtake. Tasks without an estimator or with an unknown estimate are keyed as if their remaining
+ * time was the mean estimate of the queued tasks with an estimate, so they are aged like any other
+ * task rather than waiting behind all estimated ones.</p>
+ *
+ * <p>The queue is an indexed binary heap, so the key of a queued task is updated in O(log n) when its
+ * estimator reports progress, e.g. when a task continues a partially completed job. To keep frequent
+ * completions cheap, a task is re-keyed at most once per tick of the shared {@link TimerWheel}, unless
+ * its remaining work units shrank by at least 1/{@value #REKEY_DIVISOR} since it was last keyed. A
+ * cancelled task is removed from the queue immediately.</p>
+ *
+ * <p>Example usage:</p>
+ * <pre>
+ * {@literal
+ * SrptExecutorService executor = new SrptExecutorService(4);
+ * Future<Report> report = executor.submit(() -> importFile(file, estimator), estimator);
+ * }
+ * </pre>
+ *
+ * @author Sasu
+ */
+public class SrptExecutorService extends AbstractExecutorService {
+
+    /**
+     * The default weight of the waiting time against the estimated remaining time.
+     */
+    public static final double DEFAULT_AGING_FACTOR = 1.0;
+
+    /**
+     * The fraction of its remaining work units, as a divisor, a task must complete to be re-keyed
+     * before the next timer wheel tick.
+     */
+    public static final int REKEY_DIVISOR = 16;
+
+    private static final long UNKNOWN = Long.MAX_VALUE;
+
+    private final double agingFactor;
+    private final TimerWheel timerWheel = TimerWheel.shared();
+    private final long originNanos = System.nanoTime();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition terminated = lock.newCondition();
+    private final List<Thread> workers = new ArrayList<>();
+
+    private SrptTask<?>[] heap = new SrptTask<?>[16];
+    private int size;
+    private long sequence;
+    // the sum and amount of the known estimates in the queue, for keying tasks with unknown estimates
+    private double knownRemainingNanosSum;
+    private int knownCount;
+    private boolean shutdown;
+    private int runningWorkers;
+
+    /**
+     * Creates an executor with the given amount of worker threads and the default aging factor.
+     *
+     * @param threads The amount of worker threads
+     * @throws IllegalArgumentException if threads is not positive
+     */
+    public SrptExecutorService(int threads) {
+        this(threads, DEFAULT_AGING_FACTOR, Executors.defaultThreadFactory());
+    }
+
+    /**
+     * Creates an executor with the given amount of worker threads.
+     *
+     * @param threads The amount of worker threads
+     * @param agingFactor The weight of the waiting time against the estimated remaining time, 0 for pure SRPT
+     * @param threadFactory The factory of the worker threads
+     * @throws IllegalArgumentException if threads is not positive or agingFactor is negative
+     */
+    public SrptExecutorService(int threads, double agingFactor, ThreadFactory threadFactory) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("threads must be greater than zero");
+        }
+        if (!(agingFactor >= 0) || Double.isInfinite(agingFactor)) {
+            throw new IllegalArgumentException("agingFactor must be a finite non-negative number");
+        }
+        Objects.requireNonNull(threadFactory);
+        this.agingFactor = agingFactor;
+        this.runningWorkers = threads;
+        for (int i = 0; i < threads; i++) {
+            workers.add(threadFactory.newThread(this::runWorker));
+        }
+        workers.forEach(Thread::start);
+    }
+
+    /**
+     * Submits a task with the estimator of its work.
+     *
+     * @param task The task to run
+     * @param estimator The estimator of the work of the task
+     * @param <T> The type of the result of the task
+     * @return A future of the result of the task
+     * @throws RejectedExecutionException if the executor has been shut down
+     */
+    public <T> Future<T> submit(Callable<T> task, BaseEstimator<?, ?> estimator) {
+        SrptTask<T> srptTask = new SrptTask<>(task, Objects.requireNonNull(estimator));
+        enqueue(srptTask);
+        return srptTask;
+    }
+
+    /**
+     * Submits a task with the estimator of its work.
+     *
+     * @param task The task to run
+     * @param estimator The estimator of the work of the task
+     * @return A future completing when the task has run
+     * @throws RejectedExecutionException if the executor has been shut down
+     */
+    public Future<?> submit(Runnable task, BaseEstimator<?, ?> estimator) {
+        return submit(Executors.callable(task), estimator);
+    }
+
+    /**
+     * Runs the given command without an estimate, keyed with the mean estimate of the queued tasks.
+     *
+     * @param command The command to run
+     * @throws RejectedExecutionException if the executor has been shut down
+     */
+    @Override
+    public void execute(Runnable command) {
+        Objects.requireNonNull(command);
+        enqueue(command instanceof SrptTask ? (SrptTask<?>) command : new SrptTask<>(command, null, null));
+    }
+
+    @Override
+    protected <T> RunnableFuture<T> newTaskFor(Runnable runnable, T value) {
+        return new SrptTask<>(runnable, value, null);
+    }
+
+    @Override
+    protected <T> RunnableFuture<T> newTaskFor(Callable<T> callable) {
+        return new SrptTask<>(callable, null);
+    }
+
+    /**
+     * Returns the amount of tasks waiting to be run.
+     *
+     * @return The amount of queued tasks
+     */
+    public int getQueueSize() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        lock.lock();
+        try {
+            shutdown = true;
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        List<SrptTask<?>> queued = new ArrayList<>();
+        lock.lock();
+        try {
+            shutdown = true;
+            while (size > 0) {
+                queued.add(poll());
+            }
+            knownRemainingNanosSum = 0;
+            notEmpty.signalAll();
+            workers.forEach(Thread::interrupt);
+        } finally {
+            lock.unlock();
+        }
+        queued.forEach(SrptTask::stopListening);
+        return new ArrayList<>(queued);
+    }
+
+    @Override
+    public boolean isShutdown() {
+        lock.lock();
+        try {
+            return shutdown;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean isTerminated() {
+        lock.lock();
+        try {
+            return shutdown && runningWorkers == 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lock();
+        try {
+            while (!(shutdown && runningWorkers == 0)) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = terminated.awaitNanos(nanos);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void runWorker() {
+        try {
+            while (true) {
+                SrptTask<?> task;
+                lock.lock();
+                try {
+                    while (size == 0 && !shutdown) {
+                        notEmpty.awaitUninterruptibly();
+                    }
+                    if (size == 0) {
+                        return;
+                    }
+                    task = poll();
+                } finally {
+                    lock.unlock();
+                }
+                task.stopListening();
+                // clear an interrupt of shutdownNow() which was meant for the previous task
+                Thread.interrupted();
+                task.run();
+            }
+        } finally {
+            lock.lock();
+            try {
+                runningWorkers--;
+                if (runningWorkers == 0) {
+                    terminated.signalAll();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void enqueue(SrptTask<?> task) {
+        long waitedNanos = System.nanoTime() - originNanos;
+        // listen before queueing, so that a worker taking the task at once stops the listening for good
+        task.startListening();
+        long remainingNanos = task.estimateRemainingNanos();
+        lock.lock();
+        try {
+            if (shutdown) {
+                task.stopListening();
+                throw new RejectedExecutionException("The executor has been shut down");
+            }
+            task.sequence = sequence++;
+            task.agingNanos = saturatedAgingNanos(waitedNanos);
+            task.remainingNanos = remainingNanos;
+            addKnown(task);
+            task.key = key(task);
+            if (size == heap.length) {
+                heap = Arrays.copyOf(heap, size * 2);
+            }
+            task.heapIndex = size;
+            heap[size++] = task;
+            siftUp(task.heapIndex);
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private long saturatedAgingNanos(long waitedNanos) {
+        double aging = agingFactor * waitedNanos;
+        return aging >= Long.MAX_VALUE ? Long.MAX_VALUE : (long) aging;
+    }
+
+    private long key(SrptTask<?> task) {
+        long remainingNanos = task.remainingNanos;
+        if (remainingNanos == UNKNOWN) {
+            // the mean of the known estimates; with none known, tasks are run in submission order
+            double mean = knownCount == 0 ? 0 : knownRemainingNanosSum / knownCount;
+            remainingNanos = mean >= Long.MAX_VALUE ? Long.MAX_VALUE : (long) mean;
+        }
+        long key = remainingNanos + task.agingNanos;
+        // saturate on overflow
+        return ((remainingNanos ^ key) & (task.agingNanos ^ key)) < 0 ? Long.MAX_VALUE : key;
+    }
+
+    private void rekey(SrptTask<?> task) {
+        long remainingNanos = task.estimateRemainingNanos();
+        lock.lock();
+        try {
+            int index = task.heapIndex;
+            if (index < 0) {
+                return;
+            }
+            long oldKey = task.key;
+            removeKnown(task);
+            task.remainingNanos = remainingNanos;
+            addKnown(task);
+            task.key = key(task);
+            if (task.key < oldKey) {
+                siftUp(index);
+            } else {
+                siftDown(index);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void remove(SrptTask<?> task) {
+        lock.lock();
+        try {
+            int index = task.heapIndex;
+            if (index < 0) {
+                return;
+            }
+            task.heapIndex = -1;
+            removeKnown(task);
+            SrptTask<?> last = heap[--size];
+            heap[size] = null;
+            if (index != size) {
+                heap[index] = last;
+                last.heapIndex = index;
+                siftUp(index);
+                siftDown(last.heapIndex);
+            }
+        } finally {
+            lock.unlock();
+        }
+        task.stopListening();
+    }
+
+    private SrptTask<?> poll() {
+        SrptTask<?> first = heap[0];
+        SrptTask<?> last = heap[--size];
+        heap[size] = null;
+        if (size > 0) {
+            heap[0] = last;
+            last.heapIndex = 0;
+            siftDown(0);
+        }
+        first.heapIndex = -1;
+        removeKnown(first);
+        return first;
+    }
+
+    private void addKnown(SrptTask<?> task) {
+        if (task.remainingNanos != UNKNOWN) {
+            knownRemainingNanosSum += task.remainingNanos;
+            knownCount++;
+        }
+    }
+
+    private void removeKnown(SrptTask<?> task) {
+        if (task.remainingNanos != UNKNOWN) {
+            knownCount--;
+            // reset rather than subtract down to zero, so rounding errors do not accumulate
+            knownRemainingNanosSum = knownCount == 0 ? 0 : knownRemainingNanosSum - task.remainingNanos;
+        }
+    }
+
+    private void siftUp(int index) {
+        SrptTask<?> task = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            SrptTask<?> parentTask = heap[parent];
+            if (!precedes(task, parentTask)) {
+                break;
+            }
+            heap[index] = parentTask;
+            parentTask.heapIndex = index;
+            index = parent;
+        }
+        heap[index] = task;
+        task.heapIndex = index;
+    }
+
+    private void siftDown(int index) {
+        SrptTask<?> task = heap[index];
+        int half = size >>> 1;
+        while (index < half) {
+            int child = 2 * index + 1;
+            int right = child + 1;
+            if (right < size && precedes(heap[right], heap[child])) {
+                child = right;
+            }
+            if (!precedes(heap[child], task)) {
+                break;
+            }
+            heap[index] = heap[child];
+            heap[index].heapIndex = index;
+            index = child;
+        }
+        heap[index] = task;
+        task.heapIndex = index;
+    }
+
+    private static boolean precedes(SrptTask<?> a, SrptTask<?> b) {
+        return a.key < b.key || (a.key == b.key && a.sequence < b.sequence);
+    }
+
+    /**
+     * A queued task, ordered by the estimated remaining time of its work.
+     */
+    private final class SrptTask<T> extends FutureTask<T> implements ProgressListener {
+
+        private final BaseEstimator<?, ?> estimator;
+        private long sequence;
+        private long agingNanos;
+        private long remainingNanos = UNKNOWN;
+        private long key;
+        private int heapIndex = -1;
+        // the progress when the task was last keyed, read by completing threads to throttle re-keying
+        private volatile long keyedTick;
+        private volatile long keyedCompletedWorkUnits;
+        private volatile long keyedRemainingWorkUnits;
+
+        SrptTask(Callable<T> callable, BaseEstimator<?, ?> estimator) {
+            super(callable);
+            this.estimator = estimator;
+        }
+
+        SrptTask(Runnable runnable, T result, BaseEstimator<?, ?> estimator) {
+            super(runnable, result);
+            this.estimator = estimator;
+        }
+
+        long estimateRemainingNanos() {
+            if (estimator == null) {
+                return UNKNOWN;
+            }
+            keyedTick = timerWheel.getCurrentTick();
+            keyedCompletedWorkUnits = estimator.getCompletedWorkUnits();
+            keyedRemainingWorkUnits = estimator.getRemainingWorkUnits();
+            Duration remaining = estimator.remainingDuration();
+            return remaining.equals(Estimator.MAX_DURATION) ? UNKNOWN : BaseEstimator.toNanosSaturated(remaining);
+        }
+
+        void startListening() {
+            if (estimator != null) {
+                estimator.addProgressListener(this);
+            }
+        }
+
+        void stopListening() {
+            if (estimator != null) {
+                estimator.removeProgressListener(this);
+            }
+        }
+
+        @Override
+        public void workUnitsCompleted(BaseEstimator<?, ?> source, long workUnitsCompleted) {
+            if (keyedTick == timerWheel.getCurrentTick()
+                    && estimator.getCompletedWorkUnits() - keyedCompletedWorkUnits < keyedRemainingWorkUnits / REKEY_DIVISOR) {
+                return;
+            }
+            rekey(this);
+        }
+
+        @Override
+        public void totalWorkUnitsChanged(BaseEstimator<?, ?> source, long totalWorkUnits) {
+            rekey(this);
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            if (cancelled) {
+                remove(this);
+            }
+            return cancelled;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package net.sasu.lib.elapsedtime.estimator;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Encodes text as UTF-8 into a reusable byte buffer, so that repeatedly encoded output creates
+ * no garbage once the buffer has grown to fit it.
+ *
+ * <p>Not thread-safe; each instance is used by one thread at a time.</p>
+ */
+final class TextEncoder {
+
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+    private ByteBuffer buffer;
+
+    /**
+     * Creates an encoder.
+     *
+     * @param initialCapacity The initial capacity of the buffer in bytes
+     */
+    TextEncoder(int initialCapacity) {
+        this.buffer = ByteBuffer.allocate(initialCapacity);
+    }
+
+    /**
+     * Encodes the given text, growing the buffer if it does not fit.
+     *
+     * @param text The text to encode
+     * @return The buffer holding the encoded text, flipped for reading and valid until the next call
+     */
+    ByteBuffer encode(CharSequence text) {
+        CharBuffer chars = CharBuffer.wrap(text);
+        buffer.clear();
+        encoder.reset();
+        while (true) {
+            CoderResult result = encoder.encode(chars, buffer, true);
+            if (result.isOverflow()) {
+                ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() * 2);
+                buffer.flip();
+                larger.put(buffer);
+                buffer = larger;
+            } else {
+                break;
+            }
+        }
+        encoder.flush(buffer);
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Returns the current capacity of the buffer.
+     *
+     * @return The capacity in bytes
+     */
+    int capacity() {
+        return buffer.capacity();
+    }
+}
@@ -0,0 +1,275 @@
+package net.sasu.lib.elapsedtime.estimator;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.InstantSource;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A hashed timer wheel for scheduling large amounts of cheap, coarse-grained timeouts.
+ *
+ * <p>Time is divided into ticks of a fixed duration and timeouts are hashed into a ring of
+ * slots by the tick in which they expire. Scheduling and cancelling are O(1), and advancing
+ * the wheel only visits the slots of the ticks that have passed, so the cost scales with the
+ * amount of expiring timeouts rather than with the amount of scheduled ones.</p>
+ *
+ * <p>The wheel does not own a thread unless {@link #start()} is called. This makes it possible to
+ * drive it manually with {@link #advance()}, e.g. from a test using a mock clock. The
+ * {@link #shared()} instance is started on a daemon thread and uses the system clock.</p>
+ *
+ * <p>Timeout tasks are run on the thread advancing the wheel and should return quickly.</p>
+ *
+ * @author Sasu
+ */
+public class TimerWheel implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TimerWheel.class);
+
+    /**
+     * Tick duration of the shared timer wheel.
+     */
+    public static final Duration DEFAULT_TICK_DURATION = Duration.ofMillis(100);
+
+    /**
+     * Amount of slots in the shared timer wheel.
+     */
+    public static final int DEFAULT_WHEEL_SIZE = 512;
+
+    private static final class SharedInstanceHolder {
+        static final TimerWheel INSTANCE =
+                new TimerWheel(InstantSource.system(), DEFAULT_TICK_DURATION, DEFAULT_WHEEL_SIZE).start();
+    }
+
+    private final InstantSource instantSource;
+    private final long tickNanos;
+    private final List<Timeout>[] slots;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final long startNanos;
+    private volatile long lastProcessedTick;
+    private volatile Thread thread;
+
+    /**
+     * Creates a new, unstarted timer wheel.
+     *
+     * @param instantSource The source of the current time
+     * @param tickDuration The resolution of the wheel
+     * @param wheelSize The amount of slots in the wheel
+     * @throws NullPointerException if instantSource or tickDuration is null
+     * @throws IllegalArgumentException if tickDuration is not positive or wheelSize is less than 1
+     */
+    @SuppressWarnings("unchecked")
+    public TimerWheel(InstantSource instantSource, Duration tickDuration, int wheelSize) {
+        Objects.requireNonNull(instantSource);
+        Objects.requireNonNull(tickDuration);
+        if (tickDuration.isNegative() || tickDuration.isZero()) {
+            throw new IllegalArgumentException("tickDuration must be positive");
+        }
+        if (wheelSize < 1) {
+            throw new IllegalArgumentException("wheelSize must be at least 1");
+        }
+        this.instantSource = instantSource;
+        this.tickNanos = tickDuration.toNanos();
+        this.slots = new List[wheelSize];
+        for (int i = 0; i < wheelSize; i++) {
+            this.slots[i] = new LinkedList<>();
+        }
+        this.startNanos = toEpochNanos(instantSource.instant());
+        this.lastProcessedTick = 0;
+    }
+
+    /**
+     * Returns the shared timer wheel, which runs on a daemon thread and uses the system clock.
+     *
+     * @return The shared timer wheel
+     */
+    public static TimerWheel shared() {
+        return SharedInstanceHolder.INSTANCE;
+    }
+
+    /**
+     * Starts a daemon thread which advances this wheel once per tick.
+     *
+     * @return This timer wheel
+     * @throws IllegalStateException if the wheel has already been started
+     */
+    public TimerWheel start() {
+        lock.lock();
+        try {
+            if (thread != null) {
+                throw new IllegalStateException("Timer wheel has already been started");
+            }
+            Thread wheelThread = new Thread(this::run, "time-estimator-timer-wheel");
+            wheelThread.setDaemon(true);
+            thread = wheelThread;
+            wheelThread.start();
+        } finally {
+            lock.unlock();
+        }
+        return this;
+    }
+
+    private void run() {
+        Duration tick = Duration.ofNanos(tickNanos);
+        while (thread == Thread.currentThread()) {
+            try {
+                Thread.sleep(tick.toMillis(), tick.toNanosPart() % 1_000_000);
+            } catch (InterruptedException e) {
+                return;
+            }
+            advance();
+        }
+    }
+
+    /**
+     * Schedules a task to be run once the given deadline has passed.
+     * Deadlines in the past expire on the next advance of the wheel.
+     *
+     * @param deadline The instant after which the task should be run
+     * @param task The task to run
+     * @return A handle which can be used to cancel the timeout
+     * @throws NullPointerException if deadline or task is null
+     */
+    public Timeout schedule(Instant deadline, Runnable task) {
+        Objects.requireNonNull(deadline);
+        Objects.requireNonNull(task);
+
+        long deadlineTick = Math.floorDiv(toEpochNanos(deadline) - startNanos + tickNanos - 1, tickNanos);
+        lock.lock();
+        try {
+            Timeout timeout = new Timeout(Math.max(deadlineTick, lastProcessedTick + 1), task);
+            slots[(int) Math.floorMod(timeout.deadlineTick, (long) slots.length)].add(timeout);
+            return timeout;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Runs all tasks whose deadline has passed according to the instant source of this wheel.
+     * This is called automatically by the wheel thread if the wheel has been started. Exceptions
+     * thrown by a task are logged and do not prevent the other tasks from running.
+     */
+    public void advance() {
+        long currentTick = Math.floorDiv(toEpochNanos(instantSource.instant()) - startNanos, tickNanos);
+        List<Timeout> expired = new ArrayList<>();
+
+        lock.lock();
+        try {
+            if (currentTick <= lastProcessedTick) {
+                return;
+            }
+            // every slot needs to be visited at most once, however long the jump
+            long firstTick = Math.max(lastProcessedTick + 1, currentTick - slots.length + 1);
+            for (long tick = firstTick; tick <= currentTick; tick++) {
+                Iterator<Timeout> iterator = slots[(int) Math.floorMod(tick, (long) slots.length)].iterator();
+                while (iterator.hasNext()) {
+                    Timeout timeout = iterator.next();
+                    if (timeout.cancelled) {
+                        iterator.remove();
+                    } else if (timeout.deadlineTick <= currentTick) {
+                        iterator.remove();
+                        expired.add(timeout);
+                    }
+                }
+            }
+            lastProcessedTick = currentTick;
+        } finally {
+            lock.unlock();
+        }
+
+        for (Timeout timeout : expired) {
+            if (!timeout.cancelled) {
+                try {
+                    timeout.task.run();
+                } catch (RuntimeException e) {
+                    // a failing task may not stop the wheel or the other expired tasks
+                    LOGGER.error("Timer wheel task failed", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the last tick processed by {@link #advance()}, counted from the creation of the wheel.
+     * The tick only moves when the wheel advances, which makes it a coarse clock that can be read
+     * with a single volatile load.
+     *
+     * @return The current tick of this wheel
+     */
+    public long getCurrentTick() {
+        return lastProcessedTick;
+    }
+
+    /**
+     * Returns the duration of one tick of this wheel.
+     *
+     * @return The tick duration
+     */
+    public Duration getTickDuration() {
+        return Duration.ofNanos(tickNanos);
+    }
+
+    /**
+     * Returns the instant source used by this wheel.
+     *
+     * @return The instant source of this wheel
+     */
+    public InstantSource getInstantSource() {
+        return instantSource;
+    }
+
+    /**
+     * Stops the wheel thread, if one has been started. Scheduled timeouts are not run.
+     */
+    @Override
+    public void close() {
+        Thread wheelThread = thread;
+        thread = null;
+        if (wheelThread != null) {
+            wheelThread.interrupt();
+        }
+    }
+
+    static long toEpochNanos(Instant instant) {
+        return instant.getEpochSecond() * 1_000_000_000L + instant.getNano();
+    }
+
+    /**
+     * A handle to a task scheduled on a {@link TimerWheel}.
+     */
+    public static final class Timeout {
+
+        private final long deadlineTick;
+        private final Runnable task;
+        private volatile boolean cancelled;
+
+        private Timeout(long deadlineTick, Runnable task) {
+            this.deadlineTick = deadlineTick;
+            this.task = task;
+        }
+
+        /**
+         * Cancels the timeout. Cancelled timeouts are removed lazily when their slot is visited.
+         */
+        public void cancel() {
+            this.cancelled = true;
+        }
+
+        /**
+         * Returns whether the timeout has been cancelled.
+         *
+         * @return true if the timeout has been cancelled
+         */
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package net.sasu.lib.elapsedtime.estimator;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records the duration per work unit of an estimator into a {@link LatencyHistogram}, keeping the
+ * whole distribution of the durations instead of only their average, e.g. to spot slow tenants.
+ *
+ * <p>At every completion, the time since the previous completion is divided evenly between the
+ * completed work units. Completions may be reported from any amount of threads; the recorder does not
+ * lock, and the histogram uses a fixed amount of memory regardless of how long the process runs.</p>
+ *
+ * <p>Example usage:</p>
+ * <pre>
+ * {@literal
+ * UnitLatencyRecorder recorder = new UnitLatencyRecorder(estimator);
+ * ...
+ * LatencyHistogram.Snapshot current = recorder.getHistogram().snapshot();
+ * long p99 = current.minus(previous).getValueAtPercentile(99);
+ * }
+ * </pre>
+ *
+ * @author Sasu
+ */
+public class UnitLatencyRecorder implements ProgressListener, AutoCloseable {
+
+    private final BaseEstimator<?, ?> estimator;
+    private final LatencyHistogram histogram;
+    private final AtomicLong lastCompletionElapsedNanos;
+
+    /**
+     * Creates a recorder for the given estimator using a histogram with the default precision.
+     *
+     * @param estimator The estimator whose completions to record
+     */
+    public UnitLatencyRecorder(BaseEstimator<?, ?> estimator) {
+        this(estimator, new LatencyHistogram());
+    }
+
+    /**
+     * Creates a recorder for the given estimator using the given histogram.
+     *
+     * @param estimator The estimator whose completions to record
+     * @param histogram The histogram to record into
+     * @throws NullPointerException if estimator or histogram is null
+     */
+    public UnitLatencyRecorder(BaseEstimator<?, ?> estimator, LatencyHistogram histogram) {
+        this.estimator = Objects.requireNonNull(estimator);
+        this.histogram = Objects.requireNonNull(histogram);
+        this.lastCompletionElapsedNanos = new AtomicLong(estimator.getElapsedTime().getDuration().toNanos());
+        estimator.addProgressListener(this);
+    }
+
+    @Override
+    public void workUnitsCompleted(BaseEstimator<?, ?> source, long workUnitsCompleted) {
+        if (workUnitsCompleted == 0) {
+            return;
+        }
+        long elapsedNanos = estimator.getElapsedTime().getDuration().toNanos();
+        long previousElapsedNanos = lastCompletionElapsedNanos.getAndSet(elapsedNanos);
+        histogram.record((elapsedNanos - previousElapsedNanos) / workUnitsCompleted, workUnitsCompleted);
+    }
+
+    /**
+     * Returns the histogram the durations are recorded into.
+     *
+     * @return The histogram
+     */
+    public LatencyHistogram getHistogram() {
+        return histogram;
+    }
+
+    /**
+     * Returns the monitored estimator.
+     *
+     * @return The monitored estimator
+     */
+    public BaseEstimator<?, ?> getEstimator() {
+        return estimator;
+    }
+
+    /**
+     * Stops recording.
+     */
+    @Override
+    public void close() {
+        estimator.removeProgressListener(this);
+    }
+}
@@ -6,6 +6,9 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -159,4 +162,196 @@ class BaseEstimatorTest {
 		mockEstimator.completeWorkUnits(50);
 		assertEquals(Duration.ofSeconds(1), mockEstimator.remaining().getDuration());
 	}
+
+	@Test
+	void resetRateHistory_ShouldEstimateFromProgressSinceReset() {
+		mockEstimator.initAndStart(100);
+		mockStopwatch.incrementSecond();
+		mockEstimator.completeWorkUnits(50);
+		mockEstimator.resetRateHistory();
+
+		// until work is completed after the reset, the whole history is used
+		assertEquals(Duration.ofSeconds(1), mockEstimator.remainingDuration());
+
+		for (int i = 0; i < 10; i++) {
+			mockStopwatch.incrementSecond();
+		}
+		mockEstimator.completeWorkUnits(10);
+		assertEquals(Duration.ofSeconds(40), mockEstimator.remainingDuration());
+	}
+
+	@Test
+	void resetRateHistory_WithInvalidArguments_ShouldThrowException() {
+		mockEstimator.initAndStart(100);
+		mockEstimator.completeWorkUnits(10);
+		assertThrows(IllegalArgumentException.class, () -> mockEstimator.resetRateHistory(11, Duration.ZERO));
+		assertThrows(IllegalArgumentException.class, () -> mockEstimator.resetRateHistory(-1, Duration.ZERO));
+		assertThrows(IllegalArgumentException.class, () -> mockEstimator.resetRateHistory(5, Duration.ofSeconds(-1)));
+	}
+
+	@Test
+	void awaitUnits_WhenAlreadyReached_ShouldReturnImmediately() throws InterruptedException {
+		defaultEstimator.initAndStart(100);
+		defaultEstimator.completeWorkUnits(10);
+		defaultEstimator.awaitUnits(10);
+		assertTrue(defaultEstimator.awaitUnits(5, Duration.ZERO));
+		assertTrue(defaultEstimator.awaitFraction(0.1, Duration.ZERO));
+	}
+
+	@Test
+	void awaitUnits_WhenNotReached_ShouldTimeOut() throws InterruptedException {
+		defaultEstimator.initAndStart(100);
+		defaultEstimator.completeWorkUnits(10);
+		assertFalse(defaultEstimator.awaitUnits(11, Duration.ofMillis(10)));
+		assertFalse(defaultEstimator.awaitCompletion(Duration.ZERO));
+	}
+
+	@Test
+	void awaitUnits_ShouldWakeUpWhenReached() throws Exception {
+		defaultEstimator.initAndStart(100);
+		CompletableFuture<Boolean> waiter = CompletableFuture.supplyAsync(() -> awaitUnits(50));
+		CompletableFuture<Boolean> completionWaiter = CompletableFuture.supplyAsync(() -> awaitCompletion());
+
+		defaultEstimator.completeWorkUnits(49);
+		assertFalse(waiter.isDone());
+		defaultEstimator.completeWorkUnits(1);
+		assertTrue(waiter.get(10, TimeUnit.SECONDS));
+
+		assertFalse(completionWaiter.isDone());
+		defaultEstimator.completeWorkUnits(50);
+		assertTrue(completionWaiter.get(10, TimeUnit.SECONDS));
+	}
+
+	@Test
+	void awaitFraction_WhenTotalChanges_ShouldFollowNewTotal() throws Exception {
+		defaultEstimator.initAndStart(100);
+		defaultEstimator.completeWorkUnits(40);
+		CompletableFuture<Boolean> waiter = CompletableFuture.supplyAsync(() -> awaitFraction(0.5));
+
+		defaultEstimator.setTotalWorkUnits(200);
+		defaultEstimator.completeWorkUnits(20);
+		assertFalse(waiter.isDone());
+
+		defaultEstimator.setTotalWorkUnits(120);
+		assertTrue(waiter.get(10, TimeUnit.SECONDS));
+	}
+
+	@Test
+	void awaitCompletion_WhenInterrupted_ShouldThrowInterruptedException() throws Exception {
+		defaultEstimator.initAndStart(100);
+		CountDownLatch interrupted = new CountDownLatch(1);
+		Thread thread = new Thread(() -> {
+			try {
+				defaultEstimator.awaitCompletion();
+			} catch (InterruptedException e) {
+				interrupted.countDown();
+			}
+		});
+		thread.start();
+		thread.interrupt();
+
+		assertTrue(interrupted.await(10, TimeUnit.SECONDS));
+		// the cancelled waiter no longer needs to be woken up
+		defaultEstimator.completeWorkUnits(100);
+	}
+
+	@Test
+	void awaitFraction_WithInvalidArguments_ShouldThrowException() {
+		assertThrows(IllegalArgumentException.class, () -> defaultEstimator.awaitFraction(1.5));
+		assertThrows(IllegalArgumentException.class, () -> defaultEstimator.awaitFraction(Double.NaN));
+		assertThrows(IllegalArgumentException.class, () -> defaultEstimator.awaitUnits(-1));
+	}
+
+	@Test
+	void remainingDuration_WithCache_ShouldReturnCachedEstimateWithinQuantum() {
+		TimerWheel timerWheel = new TimerWheel(mockStopwatch.getInstantSource(), Duration.ofMillis(100), 8);
+		defaultEstimator.enableEstimateCache(Duration.ofMillis(500), timerWheel);
+		defaultEstimator.initAndStart(100);
+		mockStopwatch.incrementSecond();
+		defaultEstimator.completeWorkUnits(50);
+		assertEquals(Duration.ofSeconds(1), defaultEstimator.remainingDuration());
+
+		// the elapsed time changed, but the wheel has not ticked
+		mockStopwatch.incrementSecond();
+		assertEquals(Duration.ofSeconds(1), defaultEstimator.remainingDuration());
+
+		timerWheel.advance();
+		assertEquals(Duration.ofSeconds(2), defaultEstimator.remainingDuration());
+	}
+
+	@Test
+	void remainingDuration_WithCache_ShouldBeInvalidatedByStateChanges() {
+		TimerWheel timerWheel = new TimerWheel(mockStopwatch.getInstantSource(), Duration.ofMillis(100), 8);
+		defaultEstimator.enableEstimateCache(Duration.ofHours(1), timerWheel);
+		defaultEstimator.initAndStart(100);
+		assertEquals(Estimator.MAX_DURATION, defaultEstimator.remainingDuration());
+
+		mockStopwatch.incrementSecond();
+		defaultEstimator.completeWorkUnits(50);
+		assertEquals(Duration.ofSeconds(1), defaultEstimator.remainingDuration());
+
+		defaultEstimator.setTotalWorkUnits(150);
+		assertEquals(Duration.ofSeconds(2), defaultEstimator.remainingDuration());
+
+		mockStopwatch.incrementSecond();
+		defaultEstimator.resetRateHistory(0, Duration.ZERO);
+		assertEquals(Duration.ofSeconds(4), defaultEstimator.remainingDuration());
+	}
+
+	@Test
+	void disableEstimateCache_ShouldRecomputeEveryTime() {
+		TimerWheel timerWheel = new TimerWheel(mockStopwatch.getInstantSource(), Duration.ofMillis(100), 8);
+		defaultEstimator.enableEstimateCache(Duration.ofHours(1), timerWheel);
+		assertTrue(defaultEstimator.isEstimateCacheEnabled());
+		defaultEstimator.initAndStart(100);
+		mockStopwatch.incrementSecond();
+		defaultEstimator.completeWorkUnits(50);
+		assertEquals(Duration.ofSeconds(1), defaultEstimator.remainingDuration());
+
+		defaultEstimator.disableEstimateCache();
+		assertFalse(defaultEstimator.isEstimateCacheEnabled());
+		mockStopwatch.incrementSecond();
+		assertEquals(Duration.ofSeconds(2), defaultEstimator.remainingDuration());
+		assertThrows(IllegalArgumentException.class, () -> defaultEstimator.enableEstimateCache(Duration.ZERO));
+	}
+
+	@Test
+	void enableEstimateCache_AfterChangesWhileDisabled_ShouldNotReturnStaleEstimate() {
+		TimerWheel timerWheel = new TimerWheel(mockStopwatch.getInstantSource(), Duration.ofMillis(100), 8);
+		defaultEstimator.enableEstimateCache(Duration.ofHours(1), timerWheel);
+		defaultEstimator.initAndStart(100);
+		mockStopwatch.incrementSecond();
+		defaultEstimator.completeWorkUnits(50);
+		assertEquals(Duration.ofSeconds(1), defaultEstimator.remainingDuration());
+
+		// changes while the cache is disabled do not invalidate anything
+		defaultEstimator.disableEstimateCache();
+		defaultEstimator.completeWorkUnits(25);
+		defaultEstimator.enableEstimateCache(Duration.ofHours(1), timerWheel);
+		assertEquals(Duration.ofNanos(333_333_333), defaultEstimator.remainingDuration());
+	}
+
+	private boolean awaitUnits(long workUnits) {
+		try {
+			return defaultEstimator.awaitUnits(workUnits, Duration.ofSeconds(10));
+		} catch (InterruptedException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private boolean awaitFraction(double fraction) {
+		try {
+			return defaultEstimator.awaitFraction(fraction, Duration.ofSeconds(10));
+		} catch (InterruptedException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private boolean awaitCompletion() {
+		try {
+			return defaultEstimator.awaitCompletion(Duration.ofSeconds(10));
+		} catch (InterruptedException e) {
+			throw new IllegalStateException(e);
+		}
+	}
 }
@@ -73,6 +73,22 @@ class BasicEstimatorTest {
         assertEquals(2, estimator.getCurrentMeasurementCount());
     }
 
+    @Test
+    void completeWorkUnits_WithRejectedOrZeroUnits_ShouldNotUpdateMeasurements() {
+        BasicEstimator estimator = new BasicEstimator(3, 100);
+        estimator.start();
+        estimator.completeWorkUnits(20);
+
+        assertThrows(IllegalArgumentException.class, () -> estimator.completeWorkUnits(-1));
+        assertThrows(IllegalStateException.class, () -> estimator.completeWorkUnits(81));
+        estimator.completeWorkUnits(0);
+        assertEquals(0, estimator.getCurrentMeasurementCount());
+
+        estimator.completeWorkUnits(20);
+        assertEquals(1, estimator.getCurrentMeasurementCount());
+        assertTrue(estimator.getAverageNanosPerUnit() >= 0);
+    }
+
     @Test
     void completeWorkUnits_ShouldMaintainWindowSize() {
         BasicEstimator estimator = new BasicEstimator(2, 100);
@@ -111,4 +127,80 @@ class BasicEstimatorTest {
                 "Actual seconds: " + remainingTime.getSeconds());
     }
 
-}
\ No newline at end of file
+    @Test
+    void getAverageNanosPerUnit_ShouldAverageOverWindow() {
+        BasicEstimator estimator = new BasicEstimator(3, 100);
+        assertEquals(0.0, estimator.getAverageNanosPerUnit());
+
+        estimator.addMeasurement(1000);
+        estimator.addMeasurement(1100);
+        estimator.addMeasurement(900);
+        assertEquals(1000.0, estimator.getAverageNanosPerUnit(), 1e-9);
+
+        estimator.addMeasurement(1050);
+        assertEquals(3, estimator.getCurrentMeasurementCount());
+        assertEquals(1016.666, estimator.getAverageNanosPerUnit(), 1e-3);
+    }
+
+    @Test
+    void adaptive_WithStableRate_ShouldGrowWindowToMaximum() {
+        BasicEstimator estimator = BasicEstimator.adaptive(8);
+        assertTrue(estimator.isAdaptive());
+        assertEquals(8, estimator.getWindowSize());
+        assertEquals(BasicEstimator.MIN_ADAPTIVE_WINDOW_SIZE, estimator.getEffectiveWindowSize());
+
+        for (int i = 0; i < 20; i++) {
+            estimator.addMeasurement(1000 + (i % 2) * 50);
+        }
+        assertEquals(8, estimator.getEffectiveWindowSize());
+        assertEquals(8, estimator.getCurrentMeasurementCount());
+        assertEquals(1025.0, estimator.getAverageNanosPerUnit(), 1e-9);
+    }
+
+    @Test
+    void adaptive_WithRateShift_ShouldShrinkWindowAndFollowNewRate() {
+        BasicEstimator estimator = BasicEstimator.adaptive(8);
+        for (int i = 0; i < 20; i++) {
+            estimator.addMeasurement(1000);
+        }
+
+        estimator.addMeasurement(5000);
+        // a single outlier is tolerated
+        assertEquals(8, estimator.getCurrentMeasurementCount());
+
+        estimator.addMeasurement(5000);
+        assertEquals(BasicEstimator.MIN_ADAPTIVE_WINDOW_SIZE, estimator.getEffectiveWindowSize());
+        assertEquals(2, estimator.getCurrentMeasurementCount());
+        assertEquals(5000.0, estimator.getAverageNanosPerUnit(), 1e-9);
+
+        for (int i = 0; i < 10; i++) {
+            estimator.addMeasurement(5000);
+        }
+        assertEquals(8, estimator.getEffectiveWindowSize());
+    }
+
+    @Test
+    void adaptive_WithSingleOutlier_ShouldKeepHistory() {
+        BasicEstimator estimator = BasicEstimator.adaptive(4);
+        for (int i = 0; i < 10; i++) {
+            estimator.addMeasurement(1000);
+        }
+        estimator.addMeasurement(100);
+        estimator.addMeasurement(1000);
+
+        assertEquals(4, estimator.getCurrentMeasurementCount());
+        assertEquals(775.0, estimator.getAverageNanosPerUnit(), 1e-9);
+    }
+
+    @Test
+    void adaptive_WithInvalidWindowSize_ShouldThrowException() {
+        assertThrows(IllegalArgumentException.class, () -> BasicEstimator.adaptive(1));
+    }
+
+    @Test
+    void constructor_ShouldNotBeAdaptive() {
+        BasicEstimator estimator = new BasicEstimator(4);
+        assertFalse(estimator.isAdaptive());
+        assertEquals(4, estimator.getEffectiveWindowSize());
+    }
+}
@@ -0,0 +1,97 @@
+package net.sasu.lib.elapsedtime.estimator;
+
+import net.sasu.lib.time.stopwatch.mock.MockStopwatch;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests BulkEstimates
+ */
+class BulkEstimatesTest {
+
+    @Test
+    void remainingNanos_ShouldMatchEstimators() {
+        Random random = new Random(42);
+        int count = 500;
+        long[] completed = new long[count];
+        long[] total = new long[count];
+        long[] elapsed = new long[count];
+        long[] baselineCompleted = new long[count];
+        long[] baselineElapsed = new long[count];
+        long[] expected = new long[count];
+
+        for (int i = 0; i < count; i++) {
+            MockStopwatch mockStopwatch = new MockStopwatch();
+            DefaultEstimator<MockStopwatch> estimator = new DefaultEstimator<>(mockStopwatch);
+            estimator.initAndStart(1 + random.nextInt(1_000_000));
+            mockStopwatch.incrementMilliseconds(random.nextInt(100_000));
+            estimator.completeWorkUnits(random.nextInt(4) == 0 ? 0 : random.nextInt((int) estimator.getTotalWorkUnits() + 1));
+            if (random.nextBoolean()) {
+                estimator.resetRateHistory();
+                baselineCompleted[i] = estimator.getCompletedWorkUnits();
+                baselineElapsed[i] = estimator.getElapsedTime().getDuration().toNanos();
+                mockStopwatch.incrementMilliseconds(random.nextInt(100_000));
+                estimator.completeWorkUnits(Math.min(random.nextInt(10), estimator.getRemainingWorkUnits()));
+            }
+            completed[i] = estimator.getCompletedWorkUnits();
+            total[i] = estimator.getTotalWorkUnits();
+            elapsed[i] = estimator.getElapsedTime().getDuration().toNanos();
+            expected[i] = BaseEstimator.toNanosSaturated(estimator.remainingDuration());
+        }
+
+        long[] actual = new long[count];
+        BulkEstimates.remainingNanos(completed, total, elapsed, baselineCompleted, baselineElapsed, actual);
+        assertArrayEquals(expected, actual);
+    }
+
+    @Test
+    void remainingNanos_WithBaselines_ShouldMatchEstimator() {
+        MockStopwatch mockStopwatch = new MockStopwatch();
+        DefaultEstimator<MockStopwatch> estimator = new DefaultEstimator<>(mockStopwatch);
+        estimator.initAndStart(1000);
+        mockStopwatch.incrementMilliseconds(1234);
+        estimator.completeWorkUnits(100);
+        estimator.resetRateHistory();
+        mockStopwatch.incrementMilliseconds(777);
+        estimator.completeWorkUnits(3);
+
+        long[] remaining = new long[2];
+        BulkEstimates.remainingNanos(new long[]{103, 100}, new long[]{1000, 1000}, new long[]{2_011_000_000L, 1_234_000_000L},
+                new long[]{100, 100}, new long[]{1_234_000_000L, 1_234_000_000L}, remaining);
+
+        assertEquals(estimator.remainingDuration().toNanos(), remaining[0]);
+        // no work completed since the reset, so the whole history is used
+        assertEquals(Duration.ofMillis(1234).multipliedBy(9).toNanos(), remaining[1]);
+    }
+
+    @Test
+    void remainingNanos_WithSpecialCases_ShouldFollowEstimatorSemantics() {
+        long[] remaining = new long[5];
+        BulkEstimates.remainingNanos(
+                new long[]{0, 5, 0, 1, 3},
+                new long[]{0, 5, 10, Long.MAX_VALUE, 10},
+                new long[]{100, 100, 100, Long.MAX_VALUE, 1},
+                remaining);
+
+        assertArrayEquals(new long[]{0, 0, BulkEstimates.UNKNOWN, Long.MAX_VALUE, 2}, remaining);
+    }
+
+    @Test
+    void remainingNanos_WithOverflowingProduct_ShouldBeExact() {
+        long[] remaining = new long[1];
+        BulkEstimates.remainingNanos(new long[]{1L << 40}, new long[]{(1L << 40) + (1L << 30)},
+                new long[]{1L << 50}, remaining);
+
+        assertEquals(1L << 40, remaining[0]);
+    }
+
+    @Test
+    void remainingNanos_WithDifferentLengths_ShouldThrowException() {
+        assertThrows(IllegalArgumentException.class,
+                () -> BulkEstimates.remainingNanos(new long[1], new long[2], new long[1], new long[1]));
+    }
+}
@@ -0,0 +1,155 @@
+package net.sasu.lib.elapsedtime.estimator;
+
+import net.sasu.lib.time.stopwatch.mock.MockStopwatch;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests ConsoleProgressRenderer
+ */
+class ConsoleProgressRendererTest {
+
+    MockStopwatch mockStopwatch;
+    DefaultEstimator<MockStopwatch> estimator;
+    ByteArrayOutputStream out;
+
+    @BeforeEach
+    void initTest() {
+        this.mockStopwatch = new MockStopwatch();
+        this.estimator = new DefaultEstimator<>(mockStopwatch);
+        this.estimator.initAndStart(100);
+        this.out = new ByteArrayOutputStream();
+    }
+
+    private ConsoleProgressRenderer renderer(boolean ansi) {
+        return new ConsoleProgressRenderer(Channels.newChannel(out), ansi, 80, 10, Duration.ofSeconds(1));
+    }
+
+    private String takeOutput() {
+        String output = out.toString(StandardCharsets.UTF_8);
+        out.reset();
+        return output;
+    }
+
+    @Test
+    void render_WhenNotAnsi_ShouldPrintPlainLines() {
+        ConsoleProgressRenderer renderer = renderer(false);
+        renderer.addBar("first", estimator);
+        renderer.addBar("second", new DefaultEstimator<>(new MockStopwatch()));
+
+        for (int i = 0; i < 10; i++) {
+            mockStopwatch.incrementSecond();
+        }
+        estimator.completeWorkUnits(25);
+        renderer.render();
+
+        String[] lines = takeOutput().split("\n");
+        assertEquals(2, lines.length);
+        assertEquals("first  [#######------------------------]  25.0%      2.5/s 00:00:10 ETA 00:00:30",
+                lines[0]);
+        assertTrue(lines[1].startsWith("second [---"));
+        assertTrue(lines[1].endsWith("ETA 00:00:00"));
+        assertEquals(80, lines[0].length());
+    }
+
+    @Test
+    void render_WhenEstimateUnknown_ShouldShowInfinity() {
+        ConsoleProgressRenderer renderer = renderer(false);
+        renderer.addBar("job", estimator);
+        renderer.render();
+
+        assertTrue(takeOutput().endsWith("ETA " + Estimator.INFINITY_STRING + "\n"));
+    }
+
+    @Test
+    void render_WhenAnsi_ShouldRedrawOnlyChangedCells() {
+        ConsoleProgressRenderer renderer = renderer(true);
+        renderer.addBar("job", estimator);
+
+        renderer.render();
+        String first = takeOutput();
+        assertTrue(first.startsWith("job [---"));
+        assertTrue(first.endsWith("\n"));
+
+        // nothing changed, nothing is written
+        renderer.render();
+        assertEquals("", takeOutput());
+
+        mockStopwatch.incrementSecond();
+        estimator.completeWorkUnits(50);
+        renderer.render();
+        String update = takeOutput();
+        assertTrue(update.startsWith("\u001b[1A"));
+        assertTrue(update.contains("#"));
+        assertTrue(update.contains("50.0%"));
+        assertFalse(update.contains("job"));
+        assertTrue(update.length() < first.length());
+    }
+
+    @Test
+    void render_WhenBarAddedAndRemoved_ShouldKeepScreenConsistent() {
+        ConsoleProgressRenderer renderer = renderer(true);
+        renderer.addBar("job", estimator);
+        renderer.render();
+        takeOutput();
+
+        DefaultEstimator<MockStopwatch> other = new DefaultEstimator<>(new MockStopwatch());
+        renderer.addBar("other", other);
+        renderer.render();
+        String added = takeOutput();
+        assertTrue(added.contains("other ["));
+        assertTrue(added.endsWith("\n"));
+
+        assertTrue(renderer.removeBar(other));
+        renderer.render();
+        String removed = takeOutput();
+        // the labels are narrowed, the second line is blanked and the cursor returns below the bars
+        assertTrue(removed.startsWith("\u001b[2A\u001b[4C[--"));
+        assertTrue(removed.contains("      "));
+        assertTrue(removed.endsWith("\u001b[1B\r"));
+        assertFalse(removed.contains("other"));
+    }
+
+    @Test
+    void close_ShouldRenderFinalFrame() {
+        ConsoleProgressRenderer renderer = renderer(false);
+        renderer.addBar("job", estimator);
+        renderer.start();
+        renderer.close();
+
+        assertTrue(takeOutput().startsWith("job ["));
+    }
+
+    @Test
+    void close_WhileRendering_ShouldKeepChannelOpen() throws InterruptedException {
+        WritableByteChannel channel = Channels.newChannel(out);
+        ConsoleProgressRenderer renderer = new ConsoleProgressRenderer(channel, true, 80, 1000, Duration.ofSeconds(1));
+        renderer.addBar("job", estimator);
+        renderer.start();
+        for (int i = 0; i < 20; i++) {
+            estimator.completeWorkUnits(1);
+            Thread.sleep(1);
+        }
+
+        assertDoesNotThrow(renderer::close);
+        assertTrue(channel.isOpen());
+    }
+
+    @Test
+    void constructor_WithInvalidArguments_ShouldThrowException() {
+        assertThrows(IllegalArgumentException.class, () -> new ConsoleProgressRenderer(
+                Channels.newChannel(out), true, 10, 10, Duration.ofSeconds(1)));
+        assertThrows(IllegalArgumentException.class, () -> new ConsoleProgressRenderer(
+                Channels.newChannel(out), true, 80, 0, Duration.ofSeconds(1)));
+        assertThrows(IllegalArgumentException.class, () -> new ConsoleProgressRenderer(
+                Channels.newChannel(out), false, 80, 10, Duration.ZERO));
+    }
+}
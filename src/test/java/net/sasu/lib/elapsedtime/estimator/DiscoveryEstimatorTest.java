@@ -0,0 +1,167 @@
+package net.sasu.lib.elapsedtime.estimator;
+
+import net.sasu.lib.time.stopwatch.mock.MockStopwatch;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.OptionalLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests DiscoveryEstimator
+ */
+class DiscoveryEstimatorTest {
+
+    MockStopwatch mockStopwatch;
+    DiscoveryEstimator<MockStopwatch> estimator;
+
+    @BeforeEach
+    void initTest() {
+        this.mockStopwatch = new MockStopwatch();
+        this.estimator = new DiscoveryEstimator<>(mockStopwatch, Duration.ofSeconds(30));
+        this.estimator.initAndStart(100);
+    }
+
+    @Test
+    void remainingDuration_WithoutDiscovery_ShouldMatchCompletionRate() {
+        for (int i = 0; i < 10; i++) {
+            mockStopwatch.incrementSecond();
+            estimator.completeWorkUnits(5);
+        }
+
+        assertFalse(estimator.isUnbounded());
+        assertEquals(0, estimator.getDiscoveryRatio(), 1e-9);
+        assertEquals(5, estimator.getCompletionRatePerSecond(), 1e-6);
+        assertEquals(Duration.ofSeconds(10).toMillis(), estimator.remainingDuration().toMillis(), 1);
+        assertEquals(OptionalLong.of(100), estimator.predictedTotalWorkUnits());
+    }
+
+    @Test
+    void remainingDuration_WithDiscovery_ShouldDrainAtNetRate() {
+        // 10 completed and 5 discovered per second: the backlog drains by 5 per second
+        for (int i = 0; i < 10; i++) {
+            mockStopwatch.incrementSecond();
+            estimator.completeWorkUnits(10);
+            estimator.discoverWorkUnits(5);
+        }
+
+        assertEquals(150, estimator.getTotalWorkUnits());
+        assertEquals(50, estimator.getRemainingWorkUnits());
+        assertEquals(0.5, estimator.getDiscoveryRatio(), 1e-9);
+        assertEquals(10, estimator.remainingDuration().toSeconds(), 1);
+        // every remaining unit discovers half a unit, which discovers a quarter and so on
+        assertEquals(OptionalLong.of(200), estimator.predictedTotalWorkUnits());
+    }
+
+    @Test
+    void isUnbounded_WithDiscoveryOutpacingCompletion_ShouldReturnTrue() {
+        for (int i = 0; i < 5; i++) {
+            mockStopwatch.incrementSecond();
+            estimator.completeWorkUnits(10);
+            estimator.setTotalWorkUnits(estimator.getTotalWorkUnits() + 20);
+        }
+
+        assertTrue(estimator.isUnbounded());
+        assertEquals(Estimator.MAX_DURATION, estimator.remainingDuration());
+        assertEquals(Estimator.INFINITY_STRING, estimator.getRemainingTimeAsString());
+        assertTrue(estimator.predictedTotalWorkUnits().isEmpty());
+    }
+
+    @Test
+    void isUnbounded_WhenDiscoverySlowsDown_ShouldBecomeBounded() {
+        for (int i = 0; i < 5; i++) {
+            mockStopwatch.incrementSecond();
+            estimator.completeWorkUnits(10);
+            estimator.discoverWorkUnits(20);
+        }
+        assertTrue(estimator.isUnbounded());
+
+        for (int i = 0; i < 60; i++) {
+            mockStopwatch.incrementSecond();
+            estimator.completeWorkUnits(1);
+        }
+        assertFalse(estimator.isUnbounded());
+        assertTrue(estimator.predictedTotalWorkUnits().isPresent());
+        assertNotEquals(Estimator.MAX_DURATION, estimator.remainingDuration());
+    }
+
+    @Test
+    void remainingDuration_WithNoWorkCompleted_ShouldReturnMaxDuration() {
+        mockStopwatch.incrementSecond();
+        estimator.discoverWorkUnits(10);
+        assertEquals(Estimator.MAX_DURATION, estimator.remainingDuration());
+        assertFalse(estimator.isUnbounded());
+        assertTrue(Double.isNaN(estimator.getDiscoveryRatio()));
+    }
+
+    @Test
+    void remainingDuration_WithAllWorkCompleted_ShouldReturnZero() {
+        mockStopwatch.incrementSecond();
+        estimator.completeWorkUnits(100);
+        assertEquals(Duration.ZERO, estimator.remainingDuration());
+        assertEquals(OptionalLong.of(100), estimator.predictedTotalWorkUnits());
+    }
+
+    @Test
+    void listeners_ShouldSeeUpdatedRates() {
+        double[] seen = new double[2];
+        estimator.addProgressListener(new ProgressListener() {
+            @Override
+            public void workUnitsCompleted(BaseEstimator<?, ?> source, long workUnitsCompleted) {
+                seen[0] = estimator.getCompletionRatePerSecond();
+            }
+
+            @Override
+            public void totalWorkUnitsChanged(BaseEstimator<?, ?> source, long totalWorkUnits) {
+                seen[1] = estimator.getDiscoveryRatePerSecond();
+            }
+        });
+        mockStopwatch.incrementSecond();
+        estimator.completeWorkUnits(5);
+        estimator.discoverWorkUnits(3);
+
+        assertEquals(5, seen[0], 1e-6);
+        assertEquals(3, seen[1], 1e-6);
+    }
+
+    @Test
+    void discoverWorkUnits_FromManyThreads_ShouldNotLoseWorkUnits() throws InterruptedException {
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    estimator.discoverWorkUnits(1);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(4100, estimator.getTotalWorkUnits());
+    }
+
+    @Test
+    void completeWorkUnits_WithTooManyUnits_ShouldNotChangeCompletionRate() {
+        mockStopwatch.incrementSecond();
+        estimator.completeWorkUnits(5);
+        double rate = estimator.getCompletionRatePerSecond();
+
+        assertThrows(IllegalStateException.class, () -> estimator.completeWorkUnits(1000));
+        assertEquals(rate, estimator.getCompletionRatePerSecond(), 1e-9);
+    }
+
+    @Test
+    void discoverWorkUnits_WithNegativeUnits_ShouldThrowException() {
+        assertThrows(IllegalArgumentException.class, () -> estimator.discoverWorkUnits(-1));
+    }
+
+    @Test
+    void constructor_WithInvalidHalfLife_ShouldThrowException() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new DiscoveryEstimator<>(new MockStopwatch(), Duration.ZERO));
+    }
+}
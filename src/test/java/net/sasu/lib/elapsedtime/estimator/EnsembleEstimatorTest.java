@@ -0,0 +1,203 @@
+package net.sasu.lib.elapsedtime.estimator;
+
+import net.sasu.lib.time.stopwatch.mock.MockStopwatch;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests EnsembleEstimator
+ */
+class EnsembleEstimatorTest {
+
+    static final double NANOS_PER_SECOND = 1e9;
+
+    MockStopwatch mockStopwatch;
+    EstimationModel globalAverage;
+    EstimationModel movingAverage;
+
+    @BeforeEach
+    void initTest() {
+        this.mockStopwatch = new MockStopwatch();
+        this.globalAverage = EstimationModel.globalAverage();
+        this.movingAverage = EstimationModel.movingAverage(2);
+    }
+
+    private EnsembleEstimator<MockStopwatch> createEstimator(EnsembleEstimator.Combination combination) {
+        EnsembleEstimator<MockStopwatch> estimator = new EnsembleEstimator<>(mockStopwatch, combination, 8)
+                .addModel(globalAverage)
+                .addModel(movingAverage);
+        estimator.initAndStart(100);
+        return estimator;
+    }
+
+    private void completeAfterSeconds(EnsembleEstimator<MockStopwatch> estimator, int seconds) {
+        for (int i = 0; i < seconds; i++) {
+            mockStopwatch.incrementSecond();
+        }
+        estimator.completeWorkUnits(1);
+    }
+
+    @Test
+    void remainingDuration_WithWeightedCombination_ShouldAverageModels() {
+        EnsembleEstimator<MockStopwatch> estimator = createEstimator(EnsembleEstimator.Combination.WEIGHTED);
+        for (int i = 0; i < 4; i++) {
+            completeAfterSeconds(estimator, 1);
+        }
+        completeAfterSeconds(estimator, 3);
+        completeAfterSeconds(estimator, 3);
+
+        assertEquals(94 * 10.0 / 6, estimator.remainingDuration(globalAverage).toNanos() / NANOS_PER_SECOND, 1e-6);
+        assertEquals(Duration.ofSeconds(3), estimator.remainingDuration(movingAverage).dividedBy(94));
+        assertEquals((10.0 / 6 + 3) / 2, estimator.getNanosPerUnit() / NANOS_PER_SECOND, 1e-9);
+        assertEquals(94 * estimator.getNanosPerUnit(), estimator.remainingDuration().toNanos(), 1);
+    }
+
+    @Test
+    void remainingDuration_WithBestRecentAccuracy_ShouldFollowMostAccurateModel() {
+        EnsembleEstimator<MockStopwatch> estimator =
+                createEstimator(EnsembleEstimator.Combination.BEST_RECENT_ACCURACY);
+        for (int i = 0; i < 10; i++) {
+            completeAfterSeconds(estimator, 1);
+        }
+        for (int i = 0; i < 10; i++) {
+            completeAfterSeconds(estimator, 3);
+        }
+
+        assertEquals(Optional.of(movingAverage), estimator.getBestModel());
+        assertTrue(estimator.getRecentError(movingAverage) < estimator.getRecentError(globalAverage));
+        assertEquals(Duration.ofSeconds(80 * 3), estimator.remainingDuration());
+    }
+
+    @Test
+    void remainingDuration_WithoutPredictions_ShouldUseBaseEstimate() {
+        EnsembleEstimator<MockStopwatch> estimator = new EnsembleEstimator<>(
+                mockStopwatch, EnsembleEstimator.Combination.WEIGHTED);
+        estimator.initAndStart(10);
+        assertEquals(Estimator.MAX_DURATION, estimator.remainingDuration());
+
+        mockStopwatch.incrementSecond();
+        estimator.completeWorkUnits(5);
+        assertEquals(Duration.ofSeconds(1), estimator.remainingDuration());
+        assertTrue(Double.isNaN(estimator.getNanosPerUnit()));
+        assertEquals(Optional.empty(), estimator.getBestModel());
+    }
+
+    @Test
+    void completeWorkUnits_ShouldScoreModelsBeforeUpdatingThem() {
+        EnsembleEstimator<MockStopwatch> estimator = createEstimator(EnsembleEstimator.Combination.WEIGHTED);
+        completeAfterSeconds(estimator, 1);
+        assertTrue(Double.isNaN(estimator.getRecentError(globalAverage)));
+
+        // predicted 1 second, took 2 seconds
+        completeAfterSeconds(estimator, 2);
+        assertEquals(0.5, estimator.getRecentError(globalAverage), 1e-9);
+        assertEquals(0.5, estimator.getRecentError(movingAverage), 1e-9);
+    }
+
+    @Test
+    void resetRateHistory_ShouldResetModels() {
+        EnsembleEstimator<MockStopwatch> estimator = createEstimator(EnsembleEstimator.Combination.WEIGHTED);
+        completeAfterSeconds(estimator, 1);
+        completeAfterSeconds(estimator, 1);
+        estimator.resetRateHistory();
+
+        assertEquals(Estimator.MAX_DURATION, estimator.remainingDuration(globalAverage));
+        assertTrue(Double.isNaN(estimator.getNanosPerUnit()));
+
+        completeAfterSeconds(estimator, 4);
+        assertEquals(4, estimator.getNanosPerUnit() / NANOS_PER_SECOND, 1e-9);
+    }
+
+    @Test
+    void completeWorkUnits_WithTooManyUnits_ShouldNotRecordSample() {
+        CountingModel counting = new CountingModel();
+        EnsembleEstimator<MockStopwatch> estimator = createEstimator(EnsembleEstimator.Combination.WEIGHTED)
+                .addModel(counting);
+
+        assertThrows(IllegalStateException.class, () -> estimator.completeWorkUnits(101));
+        assertEquals(0, counting.workUnits);
+    }
+
+    @Test
+    void completeWorkUnits_FromManyThreads_ShouldSampleEveryCompletion() throws InterruptedException {
+        CountingModel counting = new CountingModel();
+        EnsembleEstimator<MockStopwatch> estimator = new EnsembleEstimator<>(
+                mockStopwatch, EnsembleEstimator.Combination.WEIGHTED, 8).addModel(counting);
+        estimator.initAndStart(4000);
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    estimator.completeWorkUnits(1);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(4000, estimator.getCompletedWorkUnits());
+        assertEquals(4000, counting.workUnits);
+    }
+
+    @Test
+    void addModel_WithInvalidArguments_ShouldThrowException() {
+        EnsembleEstimator<MockStopwatch> estimator = new EnsembleEstimator<>(
+                mockStopwatch, EnsembleEstimator.Combination.WEIGHTED, 4);
+        assertThrows(IllegalArgumentException.class, () -> estimator.addModel(EstimationModel.movingAverage(4)));
+        assertThrows(IllegalArgumentException.class, () -> estimator.addModel(globalAverage, 0));
+        assertThrows(IllegalArgumentException.class, () -> estimator.getRecentError(globalAverage));
+        assertThrows(IllegalArgumentException.class, () -> EstimationModel.exponentialAverage(0));
+        assertEquals(List.of(), estimator.getModels());
+    }
+
+    @Test
+    void sampleBuffer_ShouldOverwriteOldestSamples() {
+        SampleBuffer samples = new SampleBuffer(3);
+        for (int i = 1; i <= 5; i++) {
+            samples.add(i, i * 10L);
+        }
+
+        assertEquals(3, samples.size());
+        assertEquals(5, samples.getWorkUnits(0));
+        assertEquals(3, samples.getWorkUnits(2));
+        assertEquals(10, samples.getNanosPerUnit(1));
+        assertEquals(15, samples.getTotalWorkUnits());
+        assertEquals(150, samples.getTotalDurationNanos());
+        assertThrows(IndexOutOfBoundsException.class, () -> samples.getWorkUnits(3));
+    }
+
+    /**
+     * Counts the work units of the samples it has been updated with.
+     */
+    static class CountingModel implements EstimationModel {
+        long workUnits;
+
+        @Override
+        public String getName() {
+            return "counting";
+        }
+
+        @Override
+        public void sampleAdded(SampleBuffer samples) {
+            workUnits += samples.getWorkUnits(0);
+        }
+
+        @Override
+        public double nanosPerUnit(SampleBuffer samples) {
+            return Double.NaN;
+        }
+
+        @Override
+        public void reset() {
+            workUnits = 0;
+        }
+    }
+}
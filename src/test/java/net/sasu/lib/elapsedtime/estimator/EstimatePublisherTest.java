@@ -0,0 +1,277 @@
+package net.sasu.lib.elapsedtime.estimator;
+
+import net.sasu.lib.time.stopwatch.mock.MockStopwatch;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests EstimatePublisher
+ */
+class EstimatePublisherTest {
+
+    MockStopwatch mockStopwatch;
+    DefaultEstimator<MockStopwatch> estimator;
+    Queue<Runnable> pendingTasks;
+    EstimatePublisher publisher;
+
+    @BeforeEach
+    void initTest() {
+        this.mockStopwatch = new MockStopwatch();
+        this.estimator = new DefaultEstimator<>(mockStopwatch);
+        this.estimator.initAndStart(1000);
+        this.pendingTasks = new ArrayDeque<>();
+        this.publisher = new EstimatePublisher(estimator, 0.1, Duration.ofSeconds(10), pendingTasks::add);
+    }
+
+    private void runPendingTasks() {
+        while (!pendingTasks.isEmpty()) {
+            pendingTasks.poll().run();
+        }
+    }
+
+    @Test
+    void subscribe_ShouldReceiveCurrentSnapshot() {
+        RecordingSubscriber subscriber = new RecordingSubscriber(Long.MAX_VALUE);
+        publisher.subscribe(subscriber);
+        runPendingTasks();
+
+        assertEquals(1, subscriber.received.size());
+        assertEquals(0, subscriber.received.get(0).getCompletedWorkUnits());
+        assertEquals(1, publisher.getSubscriberCount());
+    }
+
+    @Test
+    void workUnitsCompleted_ShouldPublishOnlyMeaningfulChanges() {
+        RecordingSubscriber subscriber = new RecordingSubscriber(Long.MAX_VALUE);
+        publisher.subscribe(subscriber);
+
+        runPendingTasks();
+        for (int i = 0; i < 250; i++) {
+            mockStopwatch.incrementMilliseconds(10);
+            estimator.completeWorkUnits(1);
+            runPendingTasks();
+        }
+
+        // the initial snapshot and one snapshot per 10% of progress
+        List<Long> completed = subscriber.received.stream().map(EstimateSnapshot::getCompletedWorkUnits).toList();
+        assertEquals(List.of(0L, 100L, 200L), completed);
+    }
+
+    @Test
+    void workUnitsCompleted_AfterInterval_ShouldPublish() {
+        RecordingSubscriber subscriber = new RecordingSubscriber(Long.MAX_VALUE);
+        publisher.subscribe(subscriber);
+        runPendingTasks();
+
+        for (int i = 0; i < 10; i++) {
+            mockStopwatch.incrementSecond();
+        }
+        estimator.completeWorkUnits(1);
+        runPendingTasks();
+
+        assertEquals(2, subscriber.received.size());
+        assertEquals(1, subscriber.received.get(1).getCompletedWorkUnits());
+    }
+
+    @Test
+    void workUnitsCompleted_WhenAllWorkCompleted_ShouldPublish() {
+        RecordingSubscriber subscriber = new RecordingSubscriber(Long.MAX_VALUE);
+        publisher.subscribe(subscriber);
+        estimator.completeWorkUnits(950);
+        estimator.completeWorkUnits(50);
+        runPendingTasks();
+
+        EstimateSnapshot last = subscriber.received.get(subscriber.received.size() - 1);
+        assertEquals(1000, last.getCompletedWorkUnits());
+        assertEquals(Duration.ZERO, last.getRemaining());
+    }
+
+    @Test
+    void workUnitsCompleted_ShouldTakeSnapshotOnExecutor() {
+        RecordingSubscriber subscriber = new RecordingSubscriber(Long.MAX_VALUE);
+        publisher.subscribe(subscriber);
+        runPendingTasks();
+
+        estimator.completeWorkUnits(100);
+        estimator.completeWorkUnits(50);
+        assertEquals(1, subscriber.received.size());
+        runPendingTasks();
+
+        // a single snapshot is taken when the executor runs, including the progress made meanwhile
+        assertEquals(2, subscriber.received.size());
+        assertEquals(150, subscriber.received.get(1).getCompletedWorkUnits());
+    }
+
+    @Test
+    void subscribe_ShouldCallOnSubscribeBeforeRegistering() {
+        int[] subscribersDuringOnSubscribe = {-1};
+        publisher.subscribe(new RecordingSubscriber(Long.MAX_VALUE) {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscribersDuringOnSubscribe[0] = publisher.getSubscriberCount();
+                super.onSubscribe(subscription);
+            }
+        });
+
+        assertEquals(0, subscribersDuringOnSubscribe[0]);
+        assertEquals(1, publisher.getSubscriberCount());
+    }
+
+    @Test
+    void slowSubscriber_ShouldReceiveOnlyLatestSnapshot() {
+        RecordingSubscriber subscriber = new RecordingSubscriber(0);
+        publisher.subscribe(subscriber);
+
+        for (int i = 0; i < 5; i++) {
+            estimator.completeWorkUnits(100);
+        }
+        runPendingTasks();
+        assertTrue(subscriber.received.isEmpty());
+        // delivery is deferred to the executor, never done by the completing thread
+        estimator.completeWorkUnits(150);
+        assertTrue(subscriber.received.isEmpty());
+
+        subscriber.subscription.request(1);
+        runPendingTasks();
+        assertEquals(1, subscriber.received.size());
+        assertEquals(650, subscriber.received.get(0).getCompletedWorkUnits());
+
+        subscriber.subscription.request(5);
+        runPendingTasks();
+        assertEquals(1, subscriber.received.size());
+    }
+
+    @Test
+    void close_ShouldCompleteSubscribers() {
+        RecordingSubscriber subscriber = new RecordingSubscriber(Long.MAX_VALUE);
+        publisher.subscribe(subscriber);
+        publisher.close();
+        runPendingTasks();
+
+        assertTrue(subscriber.completed);
+        assertEquals(0, publisher.getSubscriberCount());
+
+        estimator.completeWorkUnits(500);
+        runPendingTasks();
+        assertEquals(1, subscriber.received.size());
+    }
+
+    @Test
+    void request_WithNonPositiveAmount_ShouldSignalError() {
+        RecordingSubscriber subscriber = new RecordingSubscriber(0);
+        publisher.subscribe(subscriber);
+        subscriber.subscription.request(0);
+        runPendingTasks();
+
+        assertInstanceOf(IllegalArgumentException.class, subscriber.error);
+    }
+
+    @Test
+    void cancel_ShouldStopDelivery() {
+        RecordingSubscriber subscriber = new RecordingSubscriber(Long.MAX_VALUE);
+        publisher.subscribe(subscriber);
+        runPendingTasks();
+        subscriber.subscription.cancel();
+
+        estimator.completeWorkUnits(500);
+        runPendingTasks();
+        assertEquals(1, subscriber.received.size());
+        assertEquals(0, publisher.getSubscriberCount());
+    }
+
+    @Test
+    void totalWorkUnitsChanged_ShouldPublishMeaningfulChanges() {
+        RecordingSubscriber subscriber = new RecordingSubscriber(Long.MAX_VALUE);
+        publisher.subscribe(subscriber);
+        estimator.completeWorkUnits(500);
+        runPendingTasks();
+
+        estimator.setTotalWorkUnits(1010);
+        runPendingTasks();
+        assertEquals(2, subscriber.received.size());
+
+        estimator.setTotalWorkUnits(2000);
+        runPendingTasks();
+        assertEquals(3, subscriber.received.size());
+        assertEquals(0.25, subscriber.received.get(2).getFractionCompleted(), 1e-9);
+    }
+
+    @Test
+    void onNext_WhenThrowing_ShouldCancelOnlyThatSubscriber() {
+        RecordingSubscriber failing = new RecordingSubscriber(Long.MAX_VALUE) {
+            @Override
+            public void onNext(EstimateSnapshot item) {
+                super.onNext(item);
+                throw new IllegalStateException("failing subscriber");
+            }
+        };
+        RecordingSubscriber subscriber = new RecordingSubscriber(Long.MAX_VALUE);
+        publisher.subscribe(failing);
+        publisher.subscribe(subscriber);
+        runPendingTasks();
+
+        estimator.completeWorkUnits(500);
+        runPendingTasks();
+        assertEquals(1, failing.received.size());
+        assertEquals(2, subscriber.received.size());
+        assertEquals(1, publisher.getSubscriberCount());
+    }
+
+    @Test
+    void subscribe_WhenExecutorRejects_ShouldSignalError() {
+        EstimatePublisher rejecting = new EstimatePublisher(estimator, 0.1, Duration.ofSeconds(10), task -> {
+            throw new RejectedExecutionException("shut down");
+        });
+        RecordingSubscriber subscriber = new RecordingSubscriber(Long.MAX_VALUE);
+        rejecting.subscribe(subscriber);
+        estimator.completeWorkUnits(500);
+
+        assertInstanceOf(RejectedExecutionException.class, subscriber.error);
+        assertEquals(0, rejecting.getSubscriberCount());
+    }
+
+    static class RecordingSubscriber implements Flow.Subscriber<EstimateSnapshot> {
+        final long initialRequest;
+        final List<EstimateSnapshot> received = new ArrayList<>();
+        Flow.Subscription subscription;
+        boolean completed;
+        Throwable error;
+
+        RecordingSubscriber(long initialRequest) {
+            this.initialRequest = initialRequest;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (initialRequest > 0) {
+                subscription.request(initialRequest);
+            }
+        }
+
+        @Override
+        public void onNext(EstimateSnapshot item) {
+            received.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+}
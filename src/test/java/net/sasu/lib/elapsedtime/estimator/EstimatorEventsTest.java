@@ -0,0 +1,147 @@
+package net.sasu.lib.elapsedtime.estimator;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import net.sasu.lib.time.stopwatch.mock.MockStopwatch;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the JFR events recorded by BaseEstimator
+ */
+class EstimatorEventsTest {
+
+    MockStopwatch mockStopwatch;
+    DefaultEstimator<MockStopwatch> estimator;
+    Recording recording;
+
+    @BeforeEach
+    void initTest() {
+        this.mockStopwatch = new MockStopwatch();
+        this.estimator = new DefaultEstimator<>(mockStopwatch);
+        this.estimator.initAndStart(100);
+        this.recording = new Recording();
+    }
+
+    @AfterEach
+    void closeRecording() {
+        recording.close();
+    }
+
+    private List<RecordedEvent> stopAndRead() throws IOException {
+        recording.stop();
+        Path file = Files.createTempFile("estimator-events", ".jfr");
+        try {
+            recording.dump(file);
+            return RecordingFile.readAllEvents(file);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private List<RecordedEvent> stopAndRead(String eventName) throws IOException {
+        return ofType(stopAndRead(), eventName);
+    }
+
+    private static List<RecordedEvent> ofType(List<RecordedEvent> events, String eventName) {
+        return events.stream()
+                .filter(event -> event.getEventType().getName().equals(eventName))
+                .toList();
+    }
+
+    @Test
+    void events_ShouldBeDisabledByDefault() throws IOException {
+        recording.start();
+        estimator.completeWorkUnits(10);
+        estimator.remainingDuration();
+
+        List<RecordedEvent> events = stopAndRead();
+        assertTrue(ofType(events, EstimatorCheckpointEvent.NAME).isEmpty());
+        assertTrue(ofType(events, EstimateRecomputedEvent.NAME).isEmpty());
+        assertTrue(ofType(events, EstimatorStallEvent.NAME).isEmpty());
+    }
+
+    @Test
+    void completeWorkUnits_WhenEnabled_ShouldRecordCheckpoint() throws IOException {
+        recording.enable(EstimatorCheckpointEvent.NAME);
+        recording.start();
+        estimator.completeWorkUnits(10);
+        mockStopwatch.incrementSecond();
+        mockStopwatch.incrementSecond();
+        estimator.completeWorkUnits(5);
+
+        List<RecordedEvent> events = stopAndRead(EstimatorCheckpointEvent.NAME);
+        assertEquals(2, events.size());
+        RecordedEvent last = events.get(1);
+        assertEquals(5, last.getLong("workUnitsCompleted"));
+        assertEquals(15, last.getLong("completedWorkUnits"));
+        assertEquals(100, last.getLong("totalWorkUnits"));
+        assertEquals(7.5, last.getDouble("workUnitsPerSecond"), 1e-9);
+        assertTrue(last.getString("estimator").startsWith("DefaultEstimator@"));
+    }
+
+    @Test
+    void remainingDuration_WhenEnabled_ShouldRecordResult() throws IOException {
+        recording.enable(EstimateRecomputedEvent.NAME).withThreshold(Duration.ZERO);
+        recording.start();
+        estimator.remainingDuration();
+        mockStopwatch.incrementSecond();
+        estimator.completeWorkUnits(50);
+        Duration remaining = estimator.remainingDuration();
+
+        List<RecordedEvent> events = stopAndRead(EstimateRecomputedEvent.NAME);
+        assertEquals(2, events.size());
+        assertEquals(Long.MAX_VALUE, events.get(0).getLong("remaining"));
+        assertEquals(remaining.toNanos(), events.get(1).getLong("remaining"));
+        assertEquals(50, events.get(1).getLong("completedWorkUnits"));
+    }
+
+    @Test
+    void completeWorkUnits_WhenStallExceedsThreshold_ShouldRecordStall() throws IOException {
+        recording.enable(EstimatorStallEvent.NAME).withThreshold(Duration.ZERO);
+        recording.start();
+        estimator.completeWorkUnits(10);
+        estimator.completeWorkUnits(10);
+        estimator.completeWorkUnits(80);
+
+        List<RecordedEvent> events = stopAndRead(EstimatorStallEvent.NAME);
+        assertEquals(2, events.size());
+        assertEquals(20, events.get(0).getLong("completedWorkUnits"));
+        assertFalse(events.get(0).getBoolean("ongoing"));
+        assertEquals(100, events.get(1).getLong("completedWorkUnits"));
+    }
+
+    @Test
+    void completeWorkUnits_WhileStalled_ShouldRecordOngoingStallOnce() throws IOException, InterruptedException {
+        recording.enable(EstimatorStallEvent.NAME).withThreshold(Duration.ofMillis(50));
+        recording.start();
+        estimator.completeWorkUnits(10);
+        Thread.sleep(500);
+
+        List<RecordedEvent> events = stopAndRead(EstimatorStallEvent.NAME);
+        assertEquals(1, events.size());
+        assertTrue(events.get(0).getBoolean("ongoing"));
+        assertEquals(10, events.get(0).getLong("completedWorkUnits"));
+        assertTrue(events.get(0).getDuration().compareTo(Duration.ofMillis(50)) >= 0);
+    }
+
+    @Test
+    void completeWorkUnits_WhenStallBelowThreshold_ShouldNotRecordStall() throws IOException {
+        recording.enable(EstimatorStallEvent.NAME).withThreshold(Duration.ofHours(1));
+        recording.start();
+        estimator.completeWorkUnits(10);
+        estimator.completeWorkUnits(10);
+
+        assertTrue(stopAndRead(EstimatorStallEvent.NAME).isEmpty());
+    }
+}
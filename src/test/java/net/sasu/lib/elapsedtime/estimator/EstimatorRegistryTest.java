@@ -0,0 +1,41 @@
+package net.sasu.lib.elapsedtime.estimator;
+
+import net.sasu.lib.time.stopwatch.mock.MockStopwatch;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests EstimatorRegistry
+ */
+class EstimatorRegistryTest {
+
+    @Test
+    void snapshot_ShouldReturnSnapshotsInNameOrder() {
+        EstimatorRegistry registry = new EstimatorRegistry();
+        DefaultEstimator<MockStopwatch> second = new DefaultEstimator<>(new MockStopwatch());
+        second.initAndStart(10);
+        second.completeWorkUnits(4);
+        registry.register("b", second);
+        registry.register("a", new DefaultEstimator<>(new MockStopwatch()));
+
+        Map<String, EstimateSnapshot> snapshots = registry.snapshot();
+        assertEquals(List.of("a", "b"), List.copyOf(snapshots.keySet()));
+        assertEquals(4, snapshots.get("b").getCompletedWorkUnits());
+    }
+
+    @Test
+    void register_WithRegisteredName_ShouldThrowException() {
+        EstimatorRegistry registry = new EstimatorRegistry();
+        registry.register("a", new DefaultEstimator<>(new MockStopwatch()));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> registry.register("a", new DefaultEstimator<>(new MockStopwatch())));
+        assertTrue(registry.unregister("a"));
+        assertFalse(registry.unregister("a"));
+        assertTrue(registry.getEstimators().isEmpty());
+    }
+}
@@ -0,0 +1,104 @@
+package net.sasu.lib.elapsedtime.estimator;
+
+import net.sasu.lib.time.stopwatch.mock.MockStopwatch;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests EstimatorStatusServer
+ */
+class EstimatorStatusServerTest {
+
+    MockStopwatch mockStopwatch;
+    DefaultEstimator<MockStopwatch> estimator;
+    EstimatorRegistry registry;
+    EstimatorStatusServer server;
+
+    @BeforeEach
+    void initTest() throws IOException {
+        this.mockStopwatch = new MockStopwatch();
+        this.estimator = new DefaultEstimator<>(mockStopwatch);
+        this.estimator.initAndStart(100);
+        mockStopwatch.incrementSecond();
+        mockStopwatch.incrementSecond();
+        estimator.completeWorkUnits(25);
+
+        this.registry = new EstimatorRegistry();
+        registry.register("import \"users\"", estimator);
+        this.server = new EstimatorStatusServer(registry, 0);
+        server.start();
+    }
+
+    @AfterEach
+    void closeServer() {
+        server.close();
+    }
+
+    @Test
+    void get_ShouldServeJson() throws Exception {
+        HttpResponse<String> response = get(EstimatorStatusServer.PATH);
+
+        assertEquals(200, response.statusCode());
+        assertEquals("application/json; charset=utf-8", response.headers().firstValue("Content-Type").orElseThrow());
+        assertEquals("{\"estimators\":[{\"name\":\"import \\\"users\\\"\",\"timestamp\":\"2025-01-01T00:00:02Z\","
+                + "\"totalWorkUnits\":100,\"completedWorkUnits\":25,\"fractionCompleted\":0.25,"
+                + "\"workUnitsPerSecond\":12.5,\"elapsedMillis\":2000,\"remainingMillis\":6000}]}\n", response.body());
+    }
+
+    @Test
+    void get_WithTextFormat_ShouldServeTable() throws Exception {
+        registry.register("x", new DefaultEstimator<>(new MockStopwatch()));
+        HttpResponse<String> response = get(EstimatorStatusServer.PATH + "?format=text");
+
+        assertEquals(200, response.statusCode());
+        assertEquals(""
+                + "NAME               COMPLETED         TOTAL       PERCENT        RATE/S       ELAPSED           ETA\n"
+                + "import \"users\"            25           100         25.0%          12.5      00:00:02      00:00:06\n"
+                + "x                          0             0          0.0%           0.0      00:00:00      00:00:00\n",
+                response.body());
+    }
+
+    @Test
+    void get_WithOtherPathOrMethod_ShouldFail() throws Exception {
+        assertEquals(404, get(EstimatorStatusServer.PATH + "/other").statusCode());
+
+        HttpRequest post = HttpRequest.newBuilder(uri(EstimatorStatusServer.PATH))
+                .POST(HttpRequest.BodyPublishers.noBody()).build();
+        assertEquals(405, HttpClient.newHttpClient().send(post, HttpResponse.BodyHandlers.discarding()).statusCode());
+    }
+
+    @Test
+    void writeJson_ShouldReuseBuffer() {
+        EstimatorStatusServer.ResponseWriter writer = new EstimatorStatusServer.ResponseWriter();
+        Map<String, EstimateSnapshot> snapshots = new LinkedHashMap<>();
+        for (int i = 0; i < 100; i++) {
+            snapshots.put("estimator-ä-" + i, estimator.snapshot());
+        }
+
+        String first = StandardCharsets.UTF_8.decode(writer.writeJson(snapshots)).toString();
+        assertTrue(first.contains("\"estimator-ä-99\""));
+        assertSame(writer.writeJson(snapshots), writer.writeJson(snapshots));
+        assertEquals(first, StandardCharsets.UTF_8.decode(writer.writeJson(snapshots)).toString());
+    }
+
+    HttpResponse<String> get(String path) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(uri(path)).GET().build();
+        return HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    URI uri(String path) {
+        return URI.create("http://localhost:" + server.getAddress().getPort() + path);
+    }
+}
@@ -0,0 +1,197 @@
+package net.sasu.lib.elapsedtime.estimator;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A multi-threaded checker hammering an estimator with concurrent completions, total updates,
+ * snapshots and estimate reads, for validating and comparing thread-safe estimators.
+ *
+ * <p>Completer threads each complete a fixed amount of single work units, retrying while the total
+ * has not grown far enough. An optional grower thread raises the total step by step from half of
+ * the work to all of it. Reader threads continuously check that:</p>
+ * <ul>
+ *   <li>the completed work units never exceed the total, also within snapshots,</li>
+ *   <li>the completed work units never decrease,</li>
+ *   <li>the remaining work units and the remaining time are never negative.</li>
+ * </ul>
+ * <p>Afterwards, the completed work units and the work units reported to listeners must equal the
+ * work of all completers, i.e. no work units are lost.</p>
+ *
+ * <p>Example usage:</p>
+ * <pre>
+ * EstimatorStressHarness.Result result = new EstimatorStressHarness(4, 100_000, 2, true).run(estimator);
+ * assertTrue(result.getViolations().isEmpty(), result.getViolations().toString());
+ * </pre>
+ */
+class EstimatorStressHarness {
+
+    private static final int MAX_REPORTED_VIOLATIONS = 10;
+    private static final int TOTAL_GROWTH_STEPS = 100;
+
+    private final int completers;
+    private final long unitsPerCompleter;
+    private final int readers;
+    private final boolean growTotal;
+
+    /**
+     * Creates a harness.
+     *
+     * @param completers The amount of threads completing work units
+     * @param unitsPerCompleter The amount of work units each completer completes one by one
+     * @param readers The amount of threads checking the invariants
+     * @param growTotal Whether the total grows while work is being completed
+     */
+    EstimatorStressHarness(int completers, long unitsPerCompleter, int readers, boolean growTotal) {
+        this.completers = completers;
+        this.unitsPerCompleter = unitsPerCompleter;
+        this.readers = readers;
+        this.growTotal = growTotal;
+    }
+
+    /**
+     * Runs the harness against a fresh, not yet started estimator.
+     *
+     * @param estimator The estimator to hammer
+     * @return The observed violations and throughput
+     * @throws InterruptedException if interrupted while waiting for the threads
+     */
+    Result run(BaseEstimator<?, ?> estimator) throws InterruptedException {
+        long work = completers * unitsPerCompleter;
+        estimator.initAndStart(growTotal ? Math.max(1, work / 2) : work);
+
+        Queue<String> violations = new ConcurrentLinkedQueue<>();
+        LongAdder notifiedUnits = new LongAdder();
+        LongAdder reads = new LongAdder();
+        estimator.addProgressListener((source, units) -> notifiedUnits.add(units));
+
+        AtomicBoolean completing = new AtomicBoolean(true);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        List<Thread> observers = new ArrayList<>();
+
+        for (int i = 0; i < completers; i++) {
+            workers.add(new Thread(() -> {
+                await(start);
+                for (long done = 0; done < unitsPerCompleter; ) {
+                    try {
+                        estimator.completeWorkUnits(1);
+                        done++;
+                    } catch (IllegalStateException e) {
+                        // the total has not grown far enough yet
+                        Thread.onSpinWait();
+                    }
+                }
+            }, "stress-completer-" + i));
+        }
+        if (growTotal) {
+            workers.add(new Thread(() -> {
+                await(start);
+                long initial = estimator.getTotalWorkUnits();
+                for (int step = 1; step <= TOTAL_GROWTH_STEPS; step++) {
+                    estimator.setTotalWorkUnits(initial + (work - initial) * step / TOTAL_GROWTH_STEPS);
+                    Thread.yield();
+                }
+            }, "stress-grower"));
+        }
+        for (int i = 0; i < readers; i++) {
+            observers.add(new Thread(() -> {
+                await(start);
+                long lastCompleted = 0;
+                while (completing.get()) {
+                    long completed = estimator.getCompletedWorkUnits();
+                    long total = estimator.getTotalWorkUnits();
+                    check(violations, completed <= total, "completed " + completed + " > total " + total);
+                    check(violations, completed >= lastCompleted,
+                            "completed decreased from " + lastCompleted + " to " + completed);
+                    lastCompleted = completed;
+
+                    check(violations, estimator.getRemainingWorkUnits() >= 0, "negative remaining work units");
+                    EstimateSnapshot snapshot = estimator.snapshot();
+                    check(violations, snapshot.getCompletedWorkUnits() <= snapshot.getTotalWorkUnits(),
+                            "snapshot completed " + snapshot.getCompletedWorkUnits() + " > total "
+                                    + snapshot.getTotalWorkUnits());
+                    check(violations, snapshot.getCompletedWorkUnits() >= lastCompleted,
+                            "snapshot older than an earlier read");
+                    check(violations, !snapshot.getRemaining().isNegative(), "negative remaining time");
+                    reads.increment();
+                }
+            }, "stress-reader-" + i));
+        }
+
+        workers.forEach(Thread::start);
+        observers.forEach(Thread::start);
+        long startNanos = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long elapsedNanos = System.nanoTime() - startNanos;
+        completing.set(false);
+        for (Thread observer : observers) {
+            observer.join();
+        }
+
+        check(violations, estimator.getCompletedWorkUnits() == work,
+                "lost work units: completed " + estimator.getCompletedWorkUnits() + " of " + work);
+        check(violations, notifiedUnits.sum() == work,
+                "listeners notified of " + notifiedUnits.sum() + " of " + work + " work units");
+        return new Result(estimator.getClass().getSimpleName(), new ArrayList<>(violations), work,
+                reads.sum(), Duration.ofNanos(elapsedNanos));
+    }
+
+    private static void check(Queue<String> violations, boolean condition, String violation) {
+        if (!condition && violations.size() < MAX_REPORTED_VIOLATIONS) {
+            violations.add(violation);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * The outcome of a run.
+     */
+    static final class Result {
+
+        private final String estimatorName;
+        private final List<String> violations;
+        private final long completions;
+        private final long reads;
+        private final Duration elapsed;
+
+        Result(String estimatorName, List<String> violations, long completions, long reads, Duration elapsed) {
+            this.estimatorName = estimatorName;
+            this.violations = violations;
+            this.completions = completions;
+            this.reads = reads;
+            this.elapsed = elapsed;
+        }
+
+        List<String> getViolations() {
+            return violations;
+        }
+
+        double getCompletionsPerSecond() {
+            return completions * 1e9 / Math.max(1, elapsed.toNanos());
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %,d completions in %d ms (%,.0f/s), %,d invariant checks, %d violations",
+                    estimatorName, completions, elapsed.toMillis(), getCompletionsPerSecond(), reads,
+                    violations.size());
+        }
+    }
+}
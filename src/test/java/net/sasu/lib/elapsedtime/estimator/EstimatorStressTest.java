@@ -0,0 +1,114 @@
+package net.sasu.lib.elapsedtime.estimator;
+
+import net.sasu.lib.time.stopwatch.Stopwatch;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the thread-safe estimators and monitors under concurrent completions, total updates and reads
+ */
+class EstimatorStressTest {
+
+    static final int COMPLETERS = 4;
+    static final long UNITS_PER_COMPLETER = 50_000;
+    static final int READERS = 2;
+
+    @Test
+    void completeWorkUnits_FromManyThreads_DefaultEstimator_ShouldHoldInvariants() throws InterruptedException {
+        assertNoViolations(new EstimatorStressHarness(COMPLETERS, UNITS_PER_COMPLETER, READERS, false)
+                .run(new DefaultEstimator<>(new Stopwatch())));
+    }
+
+    @Test
+    void completeWorkUnits_WithGrowingTotal_DefaultEstimator_ShouldHoldInvariants() throws InterruptedException {
+        assertNoViolations(new EstimatorStressHarness(COMPLETERS, UNITS_PER_COMPLETER, READERS, true)
+                .run(new DefaultEstimator<>(new Stopwatch())));
+    }
+
+    @Test
+    void completeWorkUnits_FromManyThreads_BasicEstimator_ShouldHoldInvariants() throws InterruptedException {
+        assertNoViolations(new EstimatorStressHarness(COMPLETERS, UNITS_PER_COMPLETER, READERS, false)
+                .run(new BasicEstimator(10)));
+        assertNoViolations(new EstimatorStressHarness(COMPLETERS, UNITS_PER_COMPLETER, READERS, true)
+                .run(BasicEstimator.adaptive(100)));
+    }
+
+    @Test
+    void completeWorkUnits_FromManyThreads_DiscoveryEstimator_ShouldHoldInvariants() throws InterruptedException {
+        assertNoViolations(new EstimatorStressHarness(COMPLETERS, UNITS_PER_COMPLETER, READERS, false)
+                .run(new DiscoveryEstimator<>(new Stopwatch())));
+        assertNoViolations(new EstimatorStressHarness(COMPLETERS, UNITS_PER_COMPLETER, READERS, true)
+                .run(new DiscoveryEstimator<>(new Stopwatch())));
+    }
+
+    @Test
+    void completeWorkUnits_FromManyThreads_EnsembleEstimator_ShouldHoldInvariants() throws InterruptedException {
+        for (EnsembleEstimator.Combination combination : EnsembleEstimator.Combination.values()) {
+            assertNoViolations(new EstimatorStressHarness(COMPLETERS, UNITS_PER_COMPLETER, READERS, true)
+                    .run(new EnsembleEstimator<>(new Stopwatch(), combination)
+                            .addModel(EstimationModel.globalAverage())
+                            .addModel(EstimationModel.movingAverage(16))));
+        }
+    }
+
+    @Test
+    void completeWorkUnits_FromManyThreads_PipelineEstimator_ShouldHoldInvariants() throws InterruptedException {
+        assertNoViolations(new EstimatorStressHarness(COMPLETERS, UNITS_PER_COMPLETER, READERS, false)
+                .run(new PipelineEstimator<>(new Stopwatch(), "read", "write")));
+        assertNoViolations(new EstimatorStressHarness(COMPLETERS, UNITS_PER_COMPLETER, READERS, true)
+                .run(new PipelineEstimator<>(new Stopwatch(), "write")));
+    }
+
+    @Test
+    void completeWorkUnits_WithRateShiftMonitor_ShouldHoldInvariants() throws InterruptedException {
+        DefaultEstimator<Stopwatch> estimator = new DefaultEstimator<>(new Stopwatch());
+        // a sensitive detector, so that the rate history is reset concurrently with completions and reads
+        try (RateShiftMonitor monitor = new RateShiftMonitor(estimator, new PageHinkleyDetector(0, 0.5, 2))) {
+            monitor.onChangePoint(changePoint -> estimator.resetRateHistory(
+                    changePoint.getOnsetCompletedWorkUnits(), changePoint.getOnsetElapsed()));
+            assertNoViolations(new EstimatorStressHarness(COMPLETERS, UNITS_PER_COMPLETER, READERS, true)
+                    .run(estimator));
+            for (RateShiftMonitor.ChangePoint changePoint : monitor.getChangePoints()) {
+                assertTrue(changePoint.getOnsetCompletedWorkUnits() <= estimator.getCompletedWorkUnits());
+            }
+        }
+    }
+
+    @Test
+    void completeWorkUnits_RacingForLastUnits_ShouldNotOvershoot() throws InterruptedException {
+        DefaultEstimator<Stopwatch> estimator = new DefaultEstimator<>(new Stopwatch());
+        estimator.initAndStart(100_000);
+        LongAdder succeeded = new LongAdder();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            threads.add(new Thread(() -> {
+                while (true) {
+                    try {
+                        estimator.completeWorkUnits(3);
+                        succeeded.add(3);
+                    } catch (IllegalStateException e) {
+                        return;
+                    }
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(99_999, succeeded.sum());
+        assertEquals(99_999, estimator.getCompletedWorkUnits());
+        assertEquals(1, estimator.getRemainingWorkUnits());
+    }
+
+    static void assertNoViolations(EstimatorStressHarness.Result result) {
+        System.out.println(result);
+        assertTrue(result.getViolations().isEmpty(), result.getViolations().toString());
+    }
+}
@@ -0,0 +1,115 @@
+package net.sasu.lib.elapsedtime.estimator;
+
+import net.sasu.lib.time.stopwatch.mock.MockStopwatch;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests ForkJoinProgress
+ */
+class ForkJoinProgressTest {
+
+    DefaultEstimator<MockStopwatch> estimator;
+
+    @BeforeEach
+    void initTest() {
+        this.estimator = new DefaultEstimator<>(new MockStopwatch());
+    }
+
+    @Test
+    void root_WithRecursiveTask_ShouldPublishAllWork() {
+        int length = 1_000_000;
+        estimator.initAndStart(length);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            ForkJoinProgress progress = new ForkJoinProgress(estimator, pool, 4096);
+            long sum = pool.invoke(new SumTask(0, length, progress.root()));
+            progress.flush();
+
+            assertEquals((long) length * (length - 1) / 2, sum);
+            assertEquals(length, estimator.getCompletedWorkUnits());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void complete_ShouldPublishInBatches() {
+        estimator.initAndStart(100);
+        ForkJoinProgress progress = new ForkJoinProgress(estimator, ForkJoinPool.commonPool(), 10);
+        ForkJoinProgress.Share share = progress.root();
+
+        share.complete(9);
+        assertEquals(0, estimator.getCompletedWorkUnits());
+        share.complete(1);
+        assertEquals(10, estimator.getCompletedWorkUnits());
+        share.complete(5);
+        progress.flush();
+        assertEquals(15, estimator.getCompletedWorkUnits());
+        assertEquals(85, share.getRemaining());
+    }
+
+    @Test
+    void complete_BeyondBudget_ShouldBeCapped() {
+        estimator.initAndStart(10);
+        ForkJoinProgress progress = new ForkJoinProgress(estimator, ForkJoinPool.commonPool(), 1);
+        ForkJoinProgress.Share share = progress.root();
+        ForkJoinProgress.Share child = share.split(4L);
+
+        child.complete(7);
+        assertEquals(4, estimator.getCompletedWorkUnits());
+        share.completeRemaining();
+        share.complete(1);
+        assertEquals(10, estimator.getCompletedWorkUnits());
+    }
+
+    @Test
+    void split_ShouldDivideBudgetEvenly() {
+        ForkJoinProgress progress = new ForkJoinProgress(estimator, ForkJoinPool.commonPool());
+        ForkJoinProgress.Share[] shares = progress.share(10).split(3);
+
+        assertEquals(4, shares[0].getRemaining());
+        assertEquals(3, shares[1].getRemaining());
+        assertEquals(3, shares[2].getRemaining());
+        assertThrows(IllegalArgumentException.class, () -> shares[0].split(0));
+        assertThrows(IllegalArgumentException.class, () -> shares[0].split(5L));
+        assertThrows(IllegalArgumentException.class, () -> shares[0].complete(-1));
+        assertThrows(IllegalArgumentException.class,
+                () -> new ForkJoinProgress(estimator, ForkJoinPool.commonPool(), 0));
+    }
+
+    static final class SumTask extends RecursiveTask<Long> {
+
+        final int from;
+        final int to;
+        final ForkJoinProgress.Share share;
+
+        SumTask(int from, int to, ForkJoinProgress.Share share) {
+            this.from = from;
+            this.to = to;
+            this.share = share;
+        }
+
+        @Override
+        protected Long compute() {
+            if (to - from <= 1000) {
+                long sum = 0;
+                for (int i = from; i < to; i++) {
+                    sum += i;
+                    share.complete(1);
+                }
+                return sum;
+            }
+            int middle = (from + to) >>> 1;
+            SumTask left = new SumTask(from, middle, share.split((long) (middle - from)));
+            left.fork();
+            long right = new SumTask(middle, to, share).compute();
+            return right + left.join();
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package net.sasu.lib.elapsedtime.estimator;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests LatencyHistogram
+ */
+class LatencyHistogramTest {
+
+    @Test
+    void bucketIndex_ShouldStayWithinRelativeError() {
+        Random random = new Random(42);
+        for (int precisionBits : new int[]{1, 7, 12}) {
+            double relativeError = Math.pow(2, -precisionBits);
+            for (int i = 0; i < 10_000; i++) {
+                long value = random.nextLong() >>> (1 + random.nextInt(63));
+                int index = LatencyHistogram.bucketIndex(value, precisionBits);
+                assertTrue(index >= 0 && index < LatencyHistogram.bucketCount(precisionBits));
+
+                long lowest = LatencyHistogram.lowestValue(index, precisionBits);
+                long highest = LatencyHistogram.highestValue(index, precisionBits);
+                assertTrue(lowest <= value && value <= highest, value + " not in [" + lowest + ", " + highest + "]");
+                assertTrue(highest - lowest <= Math.max(0, value * relativeError));
+            }
+            assertEquals(LatencyHistogram.bucketCount(precisionBits) - 1,
+                    LatencyHistogram.bucketIndex(Long.MAX_VALUE, precisionBits));
+        }
+    }
+
+    @Test
+    void bucketIndex_ShouldBeExactForSmallValues() {
+        for (long value = 0; value < 128; value++) {
+            int index = LatencyHistogram.bucketIndex(value, 7);
+            assertEquals(value, LatencyHistogram.lowestValue(index, 7));
+            assertEquals(value, LatencyHistogram.highestValue(index, 7));
+        }
+    }
+
+    @Test
+    void snapshot_ShouldAnswerPercentileQueries() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i * 1_000_000L);
+        }
+        histogram.record(-5);
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(101, snapshot.getTotalCount());
+        assertEquals(0, snapshot.getMin());
+        assertEquals(0, snapshot.getValueAtPercentile(0));
+        assertEquals(50_000_000, snapshot.getValueAtPercentile(50), 50_000_000 / 128.0);
+        assertEquals(99_000_000, snapshot.getValueAtPercentile(99), 99_000_000 / 128.0);
+        assertEquals(100_000_000, snapshot.getMax(), 100_000_000 / 128.0);
+        assertEquals(50_000_000, snapshot.getMean(), 1_000_000);
+    }
+
+    @Test
+    void minus_ShouldReturnValuesOfInterval() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1000, 10);
+        LatencyHistogram.Snapshot first = histogram.snapshot();
+        histogram.record(5000, 3);
+        LatencyHistogram.Snapshot second = histogram.snapshot();
+
+        LatencyHistogram.Snapshot interval = second.minus(first);
+        assertEquals(3, interval.getTotalCount());
+        assertEquals(5000, interval.getMin(), 5000 / 128.0);
+        assertEquals(13, second.getTotalCount());
+        assertThrows(IllegalArgumentException.class, () -> second.minus(new LatencyHistogram(3).snapshot()));
+    }
+
+    @Test
+    void snapshot_WhenEmpty_ShouldReturnDefaults() {
+        LatencyHistogram.Snapshot snapshot = new LatencyHistogram().snapshot();
+        assertEquals(0, snapshot.getTotalCount());
+        assertEquals(0, snapshot.getValueAtPercentile(99));
+        assertTrue(Double.isNaN(snapshot.getMean()));
+        assertThrows(IllegalArgumentException.class, () -> snapshot.getValueAtPercentile(101));
+    }
+
+    @Test
+    void record_FromManyThreads_ShouldNotLoseValues() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (int thread = 0; thread < 4; thread++) {
+            executor.execute(() -> {
+                for (int i = 0; i < 100_000; i++) {
+                    histogram.record(i % 2000);
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertEquals(400_000, histogram.snapshot().getTotalCount());
+    }
+
+    @Test
+    void constructor_WithInvalidPrecision_ShouldThrowException() {
+        assertThrows(IllegalArgumentException.class, () -> new LatencyHistogram(0));
+        assertThrows(IllegalArgumentException.class, () -> new LatencyHistogram(17));
+        assertThrows(IllegalArgumentException.class, () -> new LatencyHistogram().record(1, -1));
+    }
+}
@@ -0,0 +1,172 @@
+package net.sasu.lib.elapsedtime.estimator;
+
+import net.sasu.lib.time.stopwatch.mock.MockStopwatch;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests MergedEstimatorState and EstimatorState using in-process shards
+ */
+class MergedEstimatorStateTest {
+
+    List<MockStopwatch> stopwatches;
+    List<DefaultEstimator<MockStopwatch>> shards;
+
+    @BeforeEach
+    void initTest() {
+        this.stopwatches = new ArrayList<>();
+        this.shards = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            MockStopwatch mockStopwatch = new MockStopwatch();
+            DefaultEstimator<MockStopwatch> shard = new DefaultEstimator<>(mockStopwatch);
+            shard.initAndStart(100);
+            stopwatches.add(mockStopwatch);
+            shards.add(shard);
+        }
+    }
+
+    private void runShards(int seconds) {
+        for (int s = 0; s < seconds; s++) {
+            for (int i = 0; i < shards.size(); i++) {
+                stopwatches.get(i).incrementSecond();
+                // shard i completes i + 1 work units per second
+                shards.get(i).completeWorkUnits(i + 1);
+            }
+        }
+    }
+
+    private EstimatorState state(int shard, long sequence) {
+        return EstimatorState.of(shard, sequence, shards.get(shard));
+    }
+
+    @Test
+    void merge_ShouldBeOrderIndependent() {
+        runShards(10);
+        EstimatorState a = state(0, 1);
+        EstimatorState b = state(1, 1);
+        EstimatorState c = state(2, 1);
+
+        MergedEstimatorState abc = MergedEstimatorState.EMPTY.merge(a).merge(b).merge(c);
+        MergedEstimatorState cba = MergedEstimatorState.of(c).merge(b).merge(a);
+        MergedEstimatorState grouped = MergedEstimatorState.of(a)
+                .merge(MergedEstimatorState.of(b).merge(c));
+
+        assertEquals(abc, cba);
+        assertEquals(abc, grouped);
+        assertArrayEquals(abc.toBytes(), cba.toBytes());
+    }
+
+    @Test
+    void merge_ShouldBeIdempotentAndKeepNewestStatePerShard() {
+        runShards(10);
+        EstimatorState old = state(0, 1);
+        runShards(10);
+        EstimatorState newer = state(0, 2);
+
+        MergedEstimatorState merged = MergedEstimatorState.of(newer).merge(old).merge(newer).merge(old);
+
+        assertEquals(1, merged.getStates().size());
+        assertSame(newer, merged.getStates().get(0));
+        assertEquals(merged, merged.merge(merged));
+    }
+
+    @Test
+    void remainingDuration_ShouldBeLimitedBySlowestShard() {
+        runShards(10);
+        MergedEstimatorState merged = MergedEstimatorState.EMPTY;
+        for (int i = 0; i < shards.size(); i++) {
+            merged = merged.merge(state(i, 1));
+        }
+
+        assertEquals(300, merged.getTotalWorkUnits());
+        assertEquals(60, merged.getCompletedWorkUnits());
+        assertEquals(240, merged.getRemainingWorkUnits());
+        // shard 0 completes 1 unit per second and has 90 units left
+        assertEquals(Duration.ofSeconds(90), merged.remainingDuration());
+        assertEquals(shards.get(0).remainingDuration(), merged.getStates().get(0).remainingDuration());
+        // combined the shards complete 6 units per second
+        assertEquals(Duration.ofSeconds(40), merged.pooledRemainingDuration());
+    }
+
+    @Test
+    void remainingDuration_WithUnknownRate_ShouldReturnMaxDuration() {
+        MergedEstimatorState merged = MergedEstimatorState.of(state(0, 1));
+        assertEquals(Estimator.MAX_DURATION, merged.remainingDuration());
+        assertEquals(Estimator.MAX_DURATION, merged.pooledRemainingDuration());
+        assertEquals(Duration.ZERO, MergedEstimatorState.EMPTY.remainingDuration());
+    }
+
+    @Test
+    void of_WithBasicEstimator_ShouldUseMovingAverage() {
+        BasicEstimator basicEstimator = new BasicEstimator(3, 100);
+        basicEstimator.start();
+        basicEstimator.completeWorkUnits(10);
+        basicEstimator.completeWorkUnits(10);
+
+        EstimatorState state = EstimatorState.of(7, 1, basicEstimator);
+        assertEquals(basicEstimator.getAverageNanosPerUnit(), state.getNanosPerUnit());
+        assertEquals(20, state.getCompletedWorkUnits());
+    }
+
+    @Test
+    void toBytes_ShouldRoundTrip() {
+        runShards(5);
+        MergedEstimatorState merged = MergedEstimatorState.of(state(2, 5)).merge(state(0, 3))
+                .merge(new EstimatorState(9, 1, 10, 0, 0, Double.NaN));
+
+        byte[] bytes = merged.toBytes();
+        assertEquals(9 + 3 * 48, bytes.length);
+        assertEquals(merged, MergedEstimatorState.fromBytes(bytes));
+    }
+
+    @Test
+    void fromBytes_WithInvalidBytes_ShouldThrowException() {
+        byte[] bytes = MergedEstimatorState.of(state(0, 1)).toBytes();
+
+        assertThrows(IllegalArgumentException.class,
+                () -> MergedEstimatorState.fromBytes(Arrays.copyOf(bytes, bytes.length - 1)));
+        assertThrows(IllegalArgumentException.class, () -> MergedEstimatorState.fromBytes(new byte[3]));
+
+        byte[] wrongMagic = bytes.clone();
+        wrongMagic[0] ^= 1;
+        assertThrows(IllegalArgumentException.class, () -> MergedEstimatorState.fromBytes(wrongMagic));
+
+        byte[] wrongVersion = bytes.clone();
+        wrongVersion[4] = 99;
+        assertThrows(IllegalArgumentException.class, () -> MergedEstimatorState.fromBytes(wrongVersion));
+    }
+
+    @Test
+    void toBytes_ShouldStartWithMagicAndVersion() {
+        ByteBuffer header = ByteBuffer.wrap(MergedEstimatorState.of(state(0, 1)).toBytes());
+
+        assertEquals(MergedEstimatorState.MAGIC, header.getInt());
+        assertEquals(MergedEstimatorState.FORMAT_VERSION, header.get());
+        assertEquals(1, header.getInt());
+    }
+
+    @Test
+    void constructor_WithInvalidCounts_ShouldThrowException() {
+        assertThrows(IllegalArgumentException.class, () -> new EstimatorState(0, 0, 10, 11, 0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new EstimatorState(0, 0, 10, 1, -1, 1));
+    }
+
+    @Test
+    void compareTo_WithDifferentShards_ShouldBeConsistentWithEquals() {
+        EstimatorState first = new EstimatorState(1, 3, 10, 5, 100, 20);
+        EstimatorState second = new EstimatorState(2, 3, 10, 5, 100, 20);
+
+        assertNotEquals(first, second);
+        assertTrue(first.compareTo(second) < 0);
+        assertTrue(second.compareTo(first) > 0);
+        assertEquals(0, first.compareTo(new EstimatorState(1, 3, 10, 5, 100, 20)));
+    }
+}
@@ -0,0 +1,82 @@
+package net.sasu.lib.elapsedtime.estimator;
+
+import org.junit.jupiter.api.Test;
+
+import static net.sasu.lib.elapsedtime.estimator.PageHinkleyDetector.Shift;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests PageHinkleyDetector
+ */
+class PageHinkleyDetectorTest {
+
+    @Test
+    void update_WithStableValues_ShouldNotDetectChange() {
+        PageHinkleyDetector detector = new PageHinkleyDetector(0.1, 3, 5);
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(Shift.NONE, detector.update(10 + (i % 3) * 0.1));
+        }
+        assertEquals(1000, detector.getSampleCount());
+        assertEquals(10.1, detector.getMean(), 0.01);
+    }
+
+    @Test
+    void update_WithIncrease_ShouldDetectChangeAndOnset() {
+        PageHinkleyDetector detector = new PageHinkleyDetector(0.1, 3, 5);
+        for (int i = 0; i < 20; i++) {
+            assertEquals(Shift.NONE, detector.update(1));
+        }
+
+        Shift shift = Shift.NONE;
+        int samplesAfterChange = 0;
+        while (shift == Shift.NONE) {
+            shift = detector.update(2);
+            samplesAfterChange++;
+        }
+        assertEquals(Shift.INCREASE, shift);
+        assertTrue(samplesAfterChange <= 6, "Samples needed: " + samplesAfterChange);
+        assertEquals(20, detector.getOnsetSample(Shift.INCREASE));
+    }
+
+    @Test
+    void update_WithDecrease_ShouldDetectChange() {
+        PageHinkleyDetector detector = new PageHinkleyDetector(0.1, 3, 5);
+        for (int i = 0; i < 20; i++) {
+            detector.update(5);
+        }
+        Shift shift = Shift.NONE;
+        for (int i = 0; i < 10 && shift == Shift.NONE; i++) {
+            shift = detector.update(4);
+        }
+        assertEquals(Shift.DECREASE, shift);
+        assertEquals(20, detector.getOnsetSample(Shift.DECREASE));
+    }
+
+    @Test
+    void update_BeforeMinSamples_ShouldNotDetectChange() {
+        PageHinkleyDetector detector = new PageHinkleyDetector(0, 0.5, 10);
+        detector.update(1);
+        for (int i = 0; i < 8; i++) {
+            assertEquals(Shift.NONE, detector.update(100));
+        }
+    }
+
+    @Test
+    void reset_ShouldForgetSamples() {
+        PageHinkleyDetector detector = new PageHinkleyDetector(0.1, 3, 5);
+        for (int i = 0; i < 10; i++) {
+            detector.update(7);
+        }
+        detector.reset();
+        assertEquals(0, detector.getSampleCount());
+        assertEquals(0, detector.getMean());
+        assertThrows(IllegalArgumentException.class, () -> detector.getOnsetSample(Shift.NONE));
+    }
+
+    @Test
+    void constructor_WithInvalidArguments_ShouldThrowException() {
+        assertThrows(IllegalArgumentException.class, () -> new PageHinkleyDetector(-1, 3, 5));
+        assertThrows(IllegalArgumentException.class, () -> new PageHinkleyDetector(0.1, 0, 5));
+        assertThrows(IllegalArgumentException.class, () -> new PageHinkleyDetector(0.1, 3, -1));
+    }
+}
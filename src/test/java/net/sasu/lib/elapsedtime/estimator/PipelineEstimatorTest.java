@@ -0,0 +1,208 @@
+package net.sasu.lib.elapsedtime.estimator;
+
+import net.sasu.lib.time.stopwatch.mock.MockStopwatch;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests PipelineEstimator
+ */
+class PipelineEstimatorTest {
+
+    MockStopwatch mockStopwatch;
+    PipelineEstimator<MockStopwatch> estimator;
+    PipelineEstimator<MockStopwatch>.Stage read;
+    PipelineEstimator<MockStopwatch>.Stage transform;
+    PipelineEstimator<MockStopwatch>.Stage write;
+
+    @BeforeEach
+    void initTest() {
+        this.mockStopwatch = new MockStopwatch();
+        this.estimator = new PipelineEstimator<>(mockStopwatch, "read", "transform", "write");
+        this.estimator.initAndStart(100);
+        this.read = estimator.getStage("read");
+        this.transform = estimator.getStage(1);
+        this.write = estimator.getStage("write");
+    }
+
+    @Test
+    void remainingDuration_ShouldBeLimitedByBottleneckStage() {
+        for (int i = 0; i < 10; i++) {
+            mockStopwatch.incrementSecond();
+            read.completeWorkUnits(5);
+            transform.completeWorkUnits(2);
+            write.completeWorkUnits(2);
+            estimator.remainingDuration();
+        }
+
+        assertEquals(20, estimator.getCompletedWorkUnits());
+        assertEquals(80, estimator.getRemainingWorkUnits());
+        assertEquals(30, transform.getQueueDepth());
+        assertEquals(0, write.getQueueDepth());
+        assertEquals(0, read.getQueueDepth());
+        assertEquals(2, transform.getThroughputPerSecond(), 1e-9);
+
+        // write is starved by transform, which needs 40 seconds for its remaining 80 units, read only 10 seconds
+        assertSame(transform, estimator.getLimitingStage());
+        assertEquals(Duration.ofSeconds(40), estimator.remainingDuration());
+        assertEquals(Duration.ofSeconds(10), read.remainingDuration());
+    }
+
+    @Test
+    void getLimitingStage_WithUpstreamBottleneck_ShouldNotReportStarvedStage() {
+        mockStopwatch.incrementSecond();
+        read.completeWorkUnits(10);
+        transform.completeWorkUnits(2);
+        write.completeWorkUnits(1);
+        estimator.remainingDuration();
+        for (int i = 1; i < 10; i++) {
+            mockStopwatch.incrementSecond();
+            read.completeWorkUnits(10);
+            transform.completeWorkUnits(2);
+            write.completeWorkUnits(2);
+            estimator.remainingDuration();
+        }
+
+        // write has completed the fewest units and has the most work left, but only ever waits for transform
+        assertEquals(1, write.getQueueDepth());
+        assertSame(transform, estimator.getLimitingStage());
+        assertEquals(Duration.ofSeconds(40), transform.remainingDuration());
+        // write keeps up with transform and needs half a second for the unit queued in front of it
+        assertEquals(Duration.ofMillis(40_500), estimator.remainingDuration());
+    }
+
+    @Test
+    void getLimitingStage_ShouldMeasureCapacityWhileBusy() {
+        // write is starved at first, then its queue grows as it slows down to one unit per second
+        for (int i = 0; i < 5; i++) {
+            mockStopwatch.incrementSecond();
+            read.completeWorkUnits(4);
+            transform.completeWorkUnits(4);
+            write.completeWorkUnits(4);
+            estimator.remainingDuration();
+        }
+        for (int i = 0; i < 5; i++) {
+            mockStopwatch.incrementSecond();
+            read.completeWorkUnits(4);
+            transform.completeWorkUnits(4);
+            write.completeWorkUnits(1);
+            estimator.remainingDuration();
+        }
+
+        // write averaged 2.5 units per second, but its capacity is 1 unit per second
+        assertEquals(2.5, write.getThroughputPerSecond(), 1e-9);
+        assertSame(write, estimator.getLimitingStage());
+        assertEquals(Duration.ofSeconds(75), estimator.remainingDuration());
+    }
+
+    @Test
+    void remainingDuration_WithDeepQueue_ShouldBeLimitedByDrainingStage() {
+        for (int i = 0; i < 10; i++) {
+            mockStopwatch.incrementSecond();
+            read.completeWorkUnits(8);
+            transform.completeWorkUnits(8);
+            write.completeWorkUnits(5);
+        }
+
+        // write is behind a queue of 30 units and needs 10 seconds for its 50 remaining units, the others 2.5 seconds
+        assertEquals(30, write.getQueueDepth());
+        assertSame(write, estimator.getLimitingStage());
+        assertEquals(Duration.ofSeconds(10), estimator.remainingDuration());
+    }
+
+    @Test
+    void remainingDuration_WithIdleStage_ShouldReturnMaxDuration() {
+        mockStopwatch.incrementSecond();
+        read.completeWorkUnits(10);
+        transform.completeWorkUnits(10);
+
+        assertSame(write, estimator.getLimitingStage());
+        assertEquals(Estimator.MAX_DURATION, estimator.remainingDuration());
+    }
+
+    @Test
+    void remainingDuration_WithAllStagesDone_ShouldReturnZero() {
+        mockStopwatch.incrementSecond();
+        for (PipelineEstimator<MockStopwatch>.Stage stage : estimator.getStages()) {
+            stage.completeWorkUnits(100);
+        }
+
+        assertNull(estimator.getLimitingStage());
+        assertEquals(Duration.ZERO, estimator.remainingDuration());
+        assertEquals(0, estimator.getRemainingWorkUnits());
+    }
+
+    @Test
+    void stageCompleteWorkUnits_FromManyThreads_ShouldNotLoseUnits() throws InterruptedException {
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    read.completeWorkUnits(1);
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(80_000, read.getCompletedWorkUnits());
+    }
+
+    @Test
+    void lastStageCompleteWorkUnits_ShouldNotifyListeners() {
+        List<Long> completed = new ArrayList<>();
+        estimator.addProgressListener((source, workUnitsCompleted) -> completed.add(workUnitsCompleted));
+        read.completeWorkUnits(10);
+        transform.completeWorkUnits(10);
+        write.completeWorkUnits(3);
+        write.completeWorkUnits(1);
+        // the completions of the last stage are applied in a batch once read
+        assertEquals(List.of(), completed);
+        assertEquals(4, estimator.getCompletedWorkUnits());
+        assertEquals(List.of(4L), completed);
+
+        estimator.completeWorkUnits(2);
+        assertEquals(List.of(4L, 2L), completed);
+        assertEquals(6, write.getCompletedWorkUnits());
+        assertEquals(6, estimator.getCompletedWorkUnits());
+    }
+
+    @Test
+    void completeWorkUnits_WithInvalidUnits_ShouldThrowException() {
+        assertThrows(IllegalArgumentException.class, () -> read.completeWorkUnits(-1));
+        assertThrows(IllegalArgumentException.class, () -> write.completeWorkUnits(-1));
+        assertThrows(IllegalStateException.class, () -> write.completeWorkUnits(101));
+    }
+
+    @Test
+    void stageRemainingDuration_ShouldIncludeQueueAndWaitForPreviousStages() {
+        for (int i = 0; i < 10; i++) {
+            mockStopwatch.incrementSecond();
+            read.completeWorkUnits(2);
+            transform.completeWorkUnits(2);
+            write.completeWorkUnits(1);
+        }
+        mockStopwatch.incrementSecond();
+        transform.completeWorkUnits(0);
+
+        // transform drains its 80 remaining units at 20 / 11 units per second, write cannot finish
+        // before it and drains its queue of 10 and the 80 units still to arrive at 10 / 11 units per second
+        assertEquals(10, write.getQueueDepth());
+        assertEquals(Duration.ofSeconds(44), transform.remainingDuration());
+        assertEquals(Duration.ofSeconds(99), write.remainingDuration());
+        assertEquals(Duration.ofSeconds(99), estimator.remainingDuration());
+    }
+
+    @Test
+    void constructor_WithoutStages_ShouldThrowException() {
+        assertThrows(IllegalArgumentException.class, () -> new PipelineEstimator<>(new MockStopwatch()));
+        assertThrows(IllegalArgumentException.class, () -> estimator.getStage("missing"));
+    }
+}
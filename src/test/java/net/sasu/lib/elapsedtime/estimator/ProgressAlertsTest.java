@@ -0,0 +1,238 @@
+package net.sasu.lib.elapsedtime.estimator;
+
+import net.sasu.lib.time.stopwatch.mock.MockStopwatch;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.InstantSource;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests ProgressAlerts
+ */
+class ProgressAlertsTest {
+
+    MockStopwatch mockStopwatch;
+    DefaultEstimator<MockStopwatch> estimator;
+    TimerWheel timerWheel;
+    ProgressAlerts<DefaultEstimator<MockStopwatch>> alerts;
+
+    @BeforeEach
+    void initTest() {
+        this.mockStopwatch = new MockStopwatch();
+        this.estimator = new DefaultEstimator<>(mockStopwatch);
+        this.estimator.initAndStart(100);
+        this.timerWheel = new TimerWheel(mockStopwatch.getInstantSource(), Duration.ofMillis(100), 64);
+        this.alerts = new ProgressAlerts<>(estimator, timerWheel);
+    }
+
+    @Test
+    void onFractionReached_ShouldFireOnceWhenFractionIsReached() {
+        AtomicInteger calls = new AtomicInteger();
+        alerts.onFractionReached(0.5, e -> calls.incrementAndGet());
+
+        estimator.completeWorkUnits(49);
+        assertEquals(0, calls.get());
+
+        estimator.completeWorkUnits(1);
+        assertEquals(1, calls.get());
+
+        estimator.completeWorkUnits(10);
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void onFractionReached_WithFractionAlreadyReached_ShouldFireImmediately() {
+        estimator.completeWorkUnits(80);
+        AtomicInteger calls = new AtomicInteger();
+        alerts.onFractionReached(0.25, e -> calls.incrementAndGet());
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void onFractionReached_WithGrowingTotal_ShouldUseCurrentTotal() {
+        AtomicInteger calls = new AtomicInteger();
+        alerts.onFractionReached(0.5, e -> calls.incrementAndGet());
+
+        estimator.setTotalWorkUnits(200);
+        estimator.completeWorkUnits(50);
+        assertEquals(0, calls.get());
+
+        estimator.setTotalWorkUnits(100);
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void onFractionReached_WithInvalidFraction_ShouldThrowException() {
+        assertThrows(IllegalArgumentException.class, () -> alerts.onFractionReached(1.5, e -> { }));
+        assertThrows(IllegalArgumentException.class, () -> alerts.onFractionReached(Double.NaN, e -> { }));
+    }
+
+    @Test
+    void onPredictedFinishAfter_ShouldFireWhenPredictionMissesDeadline() {
+        Instant deadline = mockStopwatch.getInstantSource().instant().plusSeconds(150);
+        AtomicInteger calls = new AtomicInteger();
+        alerts.onPredictedFinishAfter(deadline, e -> calls.incrementAndGet());
+
+        // 10 units per second predicts a finish after 10 seconds
+        mockStopwatch.incrementSecond();
+        timerWheel.advance();
+        estimator.completeWorkUnits(10);
+        assertEquals(0, calls.get());
+
+        // 10 more units in 19 seconds predicts a finish after 20 + 80 seconds
+        for (int i = 0; i < 19; i++) {
+            mockStopwatch.incrementSecond();
+        }
+        timerWheel.advance();
+        estimator.completeWorkUnits(10);
+        assertEquals(0, calls.get());
+
+        // 1 unit in 100 seconds predicts a finish far after the deadline
+        for (int i = 0; i < 100; i++) {
+            mockStopwatch.incrementSecond();
+        }
+        timerWheel.advance();
+        estimator.completeWorkUnits(1);
+        assertEquals(1, calls.get());
+
+        estimator.completeWorkUnits(1);
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void onPredictedFinishAfter_ShouldEvaluateAtMostOncePerTick() {
+        Instant deadline = mockStopwatch.getInstantSource().instant().plusSeconds(150);
+        AtomicInteger calls = new AtomicInteger();
+        alerts.onPredictedFinishAfter(deadline, e -> calls.incrementAndGet());
+
+        // the prediction misses the deadline, but the wheel has not ticked since the last evaluation
+        for (int i = 0; i < 100; i++) {
+            mockStopwatch.incrementSecond();
+        }
+        estimator.completeWorkUnits(1);
+        assertEquals(0, calls.get());
+
+        timerWheel.advance();
+        estimator.completeWorkUnits(1);
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void onPredictedFinishAfter_ShouldFireWhenDeadlinePassesWithoutProgress() {
+        Instant deadline = mockStopwatch.getInstantSource().instant().plusSeconds(2);
+        AtomicInteger calls = new AtomicInteger();
+        alerts.onPredictedFinishAfter(deadline, e -> calls.incrementAndGet());
+
+        mockStopwatch.incrementSecond();
+        timerWheel.advance();
+        assertEquals(0, calls.get());
+
+        mockStopwatch.incrementSecond();
+        timerWheel.advance();
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void onPredictedFinishAfter_WithPassedDeadlineOnRunningWheel_ShouldFireOnce() throws InterruptedException {
+        try (TimerWheel runningWheel = new TimerWheel(InstantSource.system(), Duration.ofMillis(1), 8).start()) {
+            ProgressAlerts<DefaultEstimator<MockStopwatch>> runningAlerts = new ProgressAlerts<>(estimator, runningWheel);
+            int alertCount = 100;
+            CountDownLatch fired = new CountDownLatch(alertCount);
+            AtomicInteger calls = new AtomicInteger();
+            for (int i = 0; i < alertCount; i++) {
+                runningAlerts.onPredictedFinishAfter(Instant.now().minusSeconds(1), e -> {
+                    calls.incrementAndGet();
+                    fired.countDown();
+                });
+            }
+
+            assertTrue(fired.await(5, TimeUnit.SECONDS));
+            Thread.sleep(20);
+            assertEquals(alertCount, calls.get());
+        }
+    }
+
+    @Test
+    void onNoProgressFor_ShouldFireOncePerStall() {
+        AtomicInteger calls = new AtomicInteger();
+        alerts.onNoProgressFor(Duration.ofSeconds(2), e -> calls.incrementAndGet());
+
+        mockStopwatch.incrementSecond();
+        estimator.completeWorkUnits(1);
+        mockStopwatch.incrementSecond();
+        timerWheel.advance();
+        assertEquals(0, calls.get());
+
+        mockStopwatch.incrementSecond();
+        timerWheel.advance();
+        assertEquals(1, calls.get());
+
+        mockStopwatch.incrementSecond();
+        mockStopwatch.incrementSecond();
+        mockStopwatch.incrementSecond();
+        timerWheel.advance();
+        assertEquals(1, calls.get());
+
+        estimator.completeWorkUnits(1);
+        for (int i = 0; i < 3; i++) {
+            mockStopwatch.incrementSecond();
+            timerWheel.advance();
+        }
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void onNoProgressFor_WithAllWorkCompleted_ShouldNotFire() {
+        AtomicInteger calls = new AtomicInteger();
+        alerts.onNoProgressFor(Duration.ofSeconds(1), e -> calls.incrementAndGet());
+
+        estimator.completeWorkUnits(100);
+        for (int i = 0; i < 5; i++) {
+            mockStopwatch.incrementSecond();
+            timerWheel.advance();
+        }
+        assertEquals(0, calls.get());
+    }
+
+    @Test
+    void onNoProgressFor_WhenTotalGrowsAfterCompletion_ShouldRearm() {
+        AtomicInteger calls = new AtomicInteger();
+        alerts.onNoProgressFor(Duration.ofSeconds(1), e -> calls.incrementAndGet());
+
+        estimator.completeWorkUnits(100);
+        for (int i = 0; i < 3; i++) {
+            mockStopwatch.incrementSecond();
+            timerWheel.advance();
+        }
+        assertEquals(0, calls.get());
+
+        estimator.setTotalWorkUnits(110);
+        timerWheel.advance();
+        assertEquals(0, calls.get());
+        mockStopwatch.incrementSecond();
+        timerWheel.advance();
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void close_ShouldStopAlerts() {
+        AtomicInteger calls = new AtomicInteger();
+        alerts.onFractionReached(0.5, e -> calls.incrementAndGet());
+        alerts.onNoProgressFor(Duration.ofSeconds(1), e -> calls.incrementAndGet());
+        alerts.close();
+
+        estimator.completeWorkUnits(60);
+        for (int i = 0; i < 5; i++) {
+            mockStopwatch.incrementSecond();
+            timerWheel.advance();
+        }
+        assertEquals(0, calls.get());
+    }
+}
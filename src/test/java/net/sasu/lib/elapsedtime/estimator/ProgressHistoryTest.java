@@ -0,0 +1,116 @@
+package net.sasu.lib.elapsedtime.estimator;
+
+import net.sasu.lib.time.stopwatch.mock.MockStopwatch;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests ProgressHistory
+ */
+class ProgressHistoryTest {
+
+    static final Instant START = Instant.parse("2025-01-01T00:00:00Z");
+
+    MockStopwatch mockStopwatch;
+    DefaultEstimator<MockStopwatch> estimator;
+    ProgressHistory history;
+
+    @BeforeEach
+    void initTest() {
+        this.mockStopwatch = new MockStopwatch();
+        this.estimator = new DefaultEstimator<>(mockStopwatch);
+        this.estimator.initAndStart(1_000_000);
+        this.history = new ProgressHistory(estimator);
+    }
+
+    @Test
+    void workUnitsCompleted_ShouldRecordPerSecond() {
+        for (int i = 0; i < 10; i++) {
+            mockStopwatch.incrementSecond();
+            estimator.completeWorkUnits(5);
+        }
+
+        Instant now = estimator.getInstantSource().instant();
+        ProgressHistory.Series series = history.query(now.minusSeconds(4), now);
+        assertEquals(Duration.ofSeconds(1), series.getResolution());
+        assertEquals(5, series.size());
+        assertEquals(now.minusSeconds(4), series.getTime(0));
+        assertEquals(30, series.getCompletedWorkUnits(0));
+        assertEquals(50, series.getCompletedWorkUnits(4));
+        assertEquals(5.0, series.getWorkUnitsPerSecond(4));
+    }
+
+    @Test
+    void query_BeyondRetainedSeconds_ShouldUseMinutes() {
+        history.close();
+        ProgressHistory manual = new ProgressHistory(estimator);
+        for (int second = 1; second <= 3 * 3600; second++) {
+            manual.record(START.plusSeconds(second), second);
+        }
+
+        Instant now = START.plusSeconds(3 * 3600);
+        ProgressHistory.Series lastHour = manual.query(now.minusSeconds(3599), now);
+        assertEquals(Duration.ofSeconds(1), lastHour.getResolution());
+        assertEquals(3600, lastHour.size());
+
+        ProgressHistory.Series lastTwoHours = manual.query(now.minus(Duration.ofHours(2)), now);
+        assertEquals(Duration.ofMinutes(1), lastTwoHours.getResolution());
+        assertEquals(121, lastTwoHours.size());
+        assertEquals(START.plus(Duration.ofHours(1)), lastTwoHours.getTime(0));
+        // the value of a minute is the progress at its end
+        assertEquals(3600 + 59, lastTwoHours.getCompletedWorkUnits(0));
+        assertEquals(60.0, lastTwoHours.getWorkUnitsPerSecond(1) * 60);
+        assertEquals(3 * 3600, lastTwoHours.getCompletedWorkUnits(120));
+    }
+
+    @Test
+    void query_BeyondRetainedMinutes_ShouldUseHours() {
+        history.close();
+        ProgressHistory manual = new ProgressHistory(estimator, 48);
+        for (int minute = 1; minute <= 3 * 24 * 60; minute++) {
+            manual.record(START.plus(Duration.ofMinutes(minute)), minute);
+        }
+
+        Instant now = START.plus(Duration.ofDays(3));
+        ProgressHistory.Series all = manual.query(START, now);
+        assertEquals(Duration.ofHours(1), all.getResolution());
+        assertEquals(48, all.size());
+        assertEquals(now.minus(Duration.ofHours(47)), all.getTime(0));
+        assertEquals(3 * 24 * 60, all.getCompletedWorkUnits(47));
+        assertEquals(60, all.getCompletedWorkUnits(46) - all.getCompletedWorkUnits(45));
+    }
+
+    @Test
+    void record_WithGap_ShouldOnlyReturnRecordedValues() {
+        history.record(START.plusSeconds(10), 1);
+        history.record(START.plusSeconds(20), 2);
+
+        ProgressHistory.Series series = history.query(START, START.plusSeconds(20));
+        assertEquals(3, series.size());
+        assertEquals(START.plusSeconds(10), series.getTime(1));
+        assertEquals(0.1, series.getWorkUnitsPerSecond(2));
+    }
+
+    @Test
+    void record_WithEarlierTime_ShouldRecordAsLatestTime() {
+        history.record(START.plusSeconds(10), 1);
+        history.record(START.plusSeconds(5), 2);
+
+        ProgressHistory.Series series = history.query(START, START.plusSeconds(10));
+        assertEquals(2, series.size());
+        assertEquals(2, series.getCompletedWorkUnits(1));
+    }
+
+    @Test
+    void query_WithInvalidArguments_ShouldThrowException() {
+        assertThrows(IllegalArgumentException.class, () -> history.query(START.plusSeconds(1), START));
+        assertThrows(IllegalArgumentException.class, () -> new ProgressHistory(estimator, 0));
+        ProgressHistory.Series series = history.query(START, START);
+        assertThrows(IndexOutOfBoundsException.class, () -> series.getWorkUnitsPerSecond(0));
+    }
+}
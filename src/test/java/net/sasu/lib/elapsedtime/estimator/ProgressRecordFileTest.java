@@ -0,0 +1,128 @@
+package net.sasu.lib.elapsedtime.estimator;
+
+import net.sasu.lib.time.stopwatch.mock.MockStopwatch;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests ProgressRecordFile
+ */
+class ProgressRecordFileTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void attach_ShouldRecordCompletions() throws IOException {
+        Path file = directory.resolve("progress.bin");
+        MockStopwatch mockStopwatch = new MockStopwatch();
+        DefaultEstimator<MockStopwatch> estimator = new DefaultEstimator<>(mockStopwatch);
+        estimator.initAndStart(10);
+
+        try (ProgressRecordFile records = new ProgressRecordFile(file, 16);
+             ProgressRecordFile.Attachment attachment = records.attach(estimator, 7)) {
+            mockStopwatch.incrementSecond();
+            estimator.completeWorkUnits(2);
+            mockStopwatch.incrementSecond();
+            estimator.completeWorkUnits(3);
+            assertEquals(2, records.getRecordCount());
+        }
+        assertEquals(ProgressRecordFile.fileSize(16), Files.size(file));
+
+        List<ProgressRecord> read = readAll(file);
+        assertEquals(2, read.size());
+        ProgressRecord last = read.get(1);
+        assertEquals(1, last.getSequence());
+        assertEquals(estimator.getInstantSource().instant(), last.getTime());
+        assertEquals(5, last.getCompletedWorkUnits());
+        assertEquals(10, last.getTotalWorkUnits());
+        assertEquals(Duration.ofSeconds(2).toNanos(), last.getElapsedNanos());
+        assertEquals(Duration.ofSeconds(2).toNanos(), last.getDerivedRemainingNanos());
+        assertEquals(7, last.getEstimatorId());
+    }
+
+    @Test
+    void append_WhenFull_ShouldOverwriteOldest() throws IOException {
+        Path file = directory.resolve("progress.bin");
+        try (ProgressRecordFile records = new ProgressRecordFile(file, 4)) {
+            for (int i = 0; i < 10; i++) {
+                records.append(Instant.EPOCH.plusMillis(i), i, 100, 0, 1);
+            }
+        }
+
+        List<ProgressRecord> read = readAll(file);
+        assertEquals(4, read.size());
+        assertEquals(6, read.get(0).getSequence());
+        assertEquals(6, read.get(0).getCompletedWorkUnits());
+        assertEquals(Instant.EPOCH.plusMillis(9), read.get(3).getTime());
+    }
+
+    @Test
+    void constructor_WithExistingFile_ShouldAppend() throws IOException {
+        Path file = directory.resolve("progress.bin");
+        try (ProgressRecordFile records = new ProgressRecordFile(file, 4)) {
+            records.append(Instant.EPOCH, 1, 100, 0, 1);
+        }
+        try (ProgressRecordFile records = new ProgressRecordFile(file, 4)) {
+            records.append(Instant.EPOCH, 2, 100, 0, 1);
+            assertEquals(2, records.getRecordCount());
+        }
+        assertEquals(2, readAll(file).size());
+        assertThrows(IllegalArgumentException.class, () -> new ProgressRecordFile(file, 8));
+
+        Path other = directory.resolve("other.bin");
+        Files.write(other, new byte[(int) ProgressRecordFile.fileSize(4)]);
+        assertThrows(IllegalArgumentException.class, () -> new ProgressRecordFile(other, 4));
+        assertThrows(IllegalArgumentException.class, () -> new ProgressRecordFile(file, 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> new ProgressRecordFile(file, ProgressRecordFile.MAX_CAPACITY + 1));
+        assertTrue(ProgressRecordFile.fileSize(ProgressRecordFile.MAX_CAPACITY) <= Integer.MAX_VALUE);
+    }
+
+    @Test
+    void append_FromManyThreads_ShouldNotLoseRecords() throws Exception {
+        Path file = directory.resolve("progress.bin");
+        try (ProgressRecordFile records = new ProgressRecordFile(file, 40_000)) {
+            ExecutorService executor = Executors.newFixedThreadPool(4);
+            for (int thread = 0; thread < 4; thread++) {
+                long estimatorId = thread;
+                executor.execute(() -> {
+                    for (int i = 0; i < 10_000; i++) {
+                        records.append(Instant.EPOCH, i, 100, 0, estimatorId);
+                    }
+                });
+            }
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        }
+
+        long[] completedPerEstimator = new long[4];
+        List<ProgressRecord> read = readAll(file);
+        assertEquals(40_000, read.size());
+        for (ProgressRecord record : read) {
+            completedPerEstimator[(int) record.getEstimatorId()] += record.getCompletedWorkUnits();
+        }
+        for (long completed : completedPerEstimator) {
+            assertEquals(10_000L * 9_999 / 2, completed);
+        }
+    }
+
+    static List<ProgressRecord> readAll(Path file) throws IOException {
+        List<ProgressRecord> read = new ArrayList<>();
+        new ProgressRecordReader(file).forEach(read::add);
+        return read;
+    }
+}
@@ -0,0 +1,73 @@
+package net.sasu.lib.elapsedtime.estimator;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests ProgressRecordReader
+ */
+class ProgressRecordReaderTest {
+
+    @TempDir
+    Path directory;
+
+    Path file;
+
+    @BeforeEach
+    void initTest() throws IOException {
+        this.file = directory.resolve("progress.bin");
+        try (ProgressRecordFile records = new ProgressRecordFile(file, 8)) {
+            records.append(Instant.parse("2025-01-01T00:00:00Z"), 0, 4, 0, 5);
+            records.append(Instant.parse("2025-01-01T00:00:01.5Z"), 2, 4, 1_500_000_000L, 5);
+        }
+    }
+
+    @Test
+    void writeCsv_ShouldWriteHeaderAndRecords() throws IOException {
+        StringBuilder out = new StringBuilder();
+        new ProgressRecordReader(file).writeCsv(out);
+
+        assertEquals("sequence,time,completedWorkUnits,totalWorkUnits,elapsedNanos,derivedRemainingNanos,estimatorId\n"
+                + "0,2025-01-01T00:00:00Z,0,4,0,9223372036854775807,5\n"
+                + "1,2025-01-01T00:00:01.500Z,2,4,1500000000,1500000000,5\n", out.toString());
+    }
+
+    @Test
+    void writeJson_ShouldWriteArrayOfRecords() throws IOException {
+        StringBuilder out = new StringBuilder();
+        new ProgressRecordReader(file).writeJson(out);
+
+        assertEquals("[\n"
+                + "{\"sequence\":0,\"time\":\"2025-01-01T00:00:00Z\",\"completedWorkUnits\":0,\"totalWorkUnits\":4,"
+                + "\"elapsedNanos\":0,\"derivedRemainingNanos\":9223372036854775807,\"estimatorId\":5},\n"
+                + "{\"sequence\":1,\"time\":\"2025-01-01T00:00:01.500Z\",\"completedWorkUnits\":2,\"totalWorkUnits\":4,"
+                + "\"elapsedNanos\":1500000000,\"derivedRemainingNanos\":1500000000,\"estimatorId\":5}\n"
+                + "]\n", out.toString());
+    }
+
+    @Test
+    void writeJson_WithEmptyFile_ShouldWriteEmptyArray() throws IOException {
+        Path empty = directory.resolve("empty.bin");
+        new ProgressRecordFile(empty, 8).close();
+        StringBuilder out = new StringBuilder();
+        new ProgressRecordReader(empty).writeJson(out);
+
+        assertEquals("[\n]\n", out.toString());
+    }
+
+    @Test
+    void forEach_WithInvalidFile_ShouldThrowException() throws IOException {
+        Path invalid = directory.resolve("invalid.bin");
+        Files.write(invalid, new byte[100]);
+
+        assertThrows(IllegalArgumentException.class, () -> new ProgressRecordReader(invalid).forEach(record -> { }));
+    }
+}
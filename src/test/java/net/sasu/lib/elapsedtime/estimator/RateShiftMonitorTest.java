@@ -0,0 +1,104 @@
+package net.sasu.lib.elapsedtime.estimator;
+
+import net.sasu.lib.time.stopwatch.mock.MockStopwatch;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests RateShiftMonitor
+ */
+class RateShiftMonitorTest {
+
+    MockStopwatch mockStopwatch;
+    DefaultEstimator<MockStopwatch> estimator;
+    RateShiftMonitor monitor;
+
+    @BeforeEach
+    void initTest() {
+        this.mockStopwatch = new MockStopwatch();
+        this.estimator = new DefaultEstimator<>(mockStopwatch);
+        this.estimator.initAndStart(1000);
+        this.monitor = new RateShiftMonitor(estimator);
+    }
+
+    private void completeUnits(int count, int secondsPerUnit) {
+        for (int i = 0; i < count; i++) {
+            for (int s = 0; s < secondsPerUnit; s++) {
+                mockStopwatch.incrementSecond();
+            }
+            estimator.completeWorkUnits(1);
+        }
+    }
+
+    @Test
+    void workUnitsCompleted_WithSlowdown_ShouldResetEstimatorToOnset() {
+        List<RateShiftMonitor.ChangePoint> notified = new ArrayList<>();
+        monitor.onChangePoint(notified::add);
+
+        completeUnits(50, 1);
+        assertTrue(monitor.getChangePoints().isEmpty());
+
+        completeUnits(10, 4);
+        List<RateShiftMonitor.ChangePoint> changePoints = monitor.getChangePoints();
+        assertEquals(1, changePoints.size());
+        assertEquals(changePoints, notified);
+
+        RateShiftMonitor.ChangePoint changePoint = changePoints.get(0);
+        assertEquals(PageHinkleyDetector.Shift.INCREASE, changePoint.getShift());
+        assertEquals(50, changePoint.getOnsetCompletedWorkUnits());
+        assertEquals(Duration.ofSeconds(50), changePoint.getOnsetElapsed());
+        assertEquals(1e9, changePoint.getNanosPerUnitBefore(), 1);
+        assertEquals(4e9, changePoint.getNanosPerUnitAfter(), 1);
+        assertTrue(changePoint.getOnsetTime().isBefore(changePoint.getDetectionTime()));
+
+        // only the slow units are used: 940 remaining units at 4 seconds each
+        assertEquals(Duration.ofSeconds(940 * 4), estimator.remainingDuration());
+    }
+
+    @Test
+    void workUnitsCompleted_WithSpeedup_ShouldDetectDecrease() {
+        completeUnits(30, 4);
+        completeUnits(20, 1);
+
+        List<RateShiftMonitor.ChangePoint> changePoints = monitor.getChangePoints();
+        assertEquals(1, changePoints.size());
+        assertEquals(PageHinkleyDetector.Shift.DECREASE, changePoints.get(0).getShift());
+        assertEquals(30, changePoints.get(0).getOnsetCompletedWorkUnits());
+        assertEquals(Duration.ofSeconds(950), estimator.remainingDuration());
+    }
+
+    @Test
+    void workUnitsCompleted_WithStableRate_ShouldNotDetectChange() {
+        for (int i = 0; i < 100; i++) {
+            completeUnits(1, 1 + i % 2);
+        }
+        assertTrue(monitor.getChangePoints().isEmpty());
+    }
+
+    @Test
+    void workUnitsCompleted_WithBasicEstimator_ShouldDiscardWindow() {
+        BasicEstimator basicEstimator = new BasicEstimator(5, 100);
+        basicEstimator.start();
+        for (int i = 0; i < 3; i++) {
+            basicEstimator.addMeasurement(1000);
+        }
+        basicEstimator.completeWorkUnits(10);
+
+        basicEstimator.resetRateHistory();
+        assertEquals(0, basicEstimator.getCurrentMeasurementCount());
+    }
+
+    @Test
+    void close_ShouldStopMonitoring() {
+        monitor.close();
+        completeUnits(30, 1);
+        completeUnits(30, 5);
+        assertTrue(monitor.getChangePoints().isEmpty());
+    }
+}
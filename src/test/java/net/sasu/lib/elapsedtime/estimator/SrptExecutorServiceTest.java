@@ -0,0 +1,170 @@
+package net.sasu.lib.elapsedtime.estimator;
+
+import net.sasu.lib.time.stopwatch.mock.MockStopwatch;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests SrptExecutorService
+ */
+class SrptExecutorServiceTest {
+
+    SrptExecutorService executor;
+    final CountDownLatch release = new CountDownLatch(1);
+    final List<String> order = new CopyOnWriteArrayList<>();
+
+    @AfterEach
+    void shutdownExecutor() throws InterruptedException {
+        release.countDown();
+        executor.shutdownNow();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void submit_ShouldRunShortestRemainingFirst() throws Exception {
+        executor = new SrptExecutorService(1, 0, Executors.defaultThreadFactory());
+        blockWorker();
+
+        submit("long", estimator(100, 1));
+        executor.execute(() -> order.add("unknown"));
+        submit("short", estimator(100, 50));
+        Future<?> last = submit("medium", estimator(100, 10));
+        release.countDown();
+        last.get(10, TimeUnit.SECONDS);
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(List.of("short", "medium", "long", "unknown"), order);
+    }
+
+    @Test
+    void execute_WithoutEstimate_ShouldBeKeyedWithMeanEstimate() throws Exception {
+        executor = new SrptExecutorService(1, 0, Executors.defaultThreadFactory());
+        blockWorker();
+
+        // 99 and 1 seconds remaining, so the task without an estimate is keyed at 50 seconds
+        submit("long", estimator(100, 1));
+        submit("short", estimator(100, 50));
+        executor.execute(() -> order.add("unknown"));
+        release.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(List.of("short", "unknown", "long"), order);
+    }
+
+    @Test
+    void submit_WithLargeAgingFactor_ShouldRunInSubmissionOrder() throws Exception {
+        executor = new SrptExecutorService(1, 1e12, Executors.defaultThreadFactory());
+        blockWorker();
+
+        submit("long", estimator(100, 1));
+        submit("short", estimator(100, 50));
+        release.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(List.of("long", "short"), order);
+    }
+
+    @Test
+    void workUnitsCompleted_WhileQueued_ShouldReorder() throws Exception {
+        executor = new SrptExecutorService(1, 0, Executors.defaultThreadFactory());
+        blockWorker();
+
+        DefaultEstimator<MockStopwatch> resumed = estimator(100, 1);
+        submit("short", estimator(100, 50));
+        submit("resumed", resumed);
+        resumed.completeWorkUnits(98);
+        release.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(List.of("resumed", "short"), order);
+    }
+
+    @Test
+    void cancel_ShouldRemoveFromQueue() throws Exception {
+        executor = new SrptExecutorService(1);
+        blockWorker();
+
+        Future<?> cancelled = submit("cancelled", estimator(100, 50));
+        submit("kept", estimator(100, 1));
+        assertEquals(2, executor.getQueueSize());
+        assertTrue(cancelled.cancel(false));
+        assertEquals(1, executor.getQueueSize());
+        release.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(List.of("kept"), order);
+    }
+
+    @Test
+    void shutdownNow_ShouldReturnQueuedTasksAndReject() throws Exception {
+        executor = new SrptExecutorService(1);
+        blockWorker();
+        submit("queued", estimator(100, 1));
+
+        assertEquals(1, executor.shutdownNow().size());
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertTrue(executor.isTerminated());
+        assertThrows(RejectedExecutionException.class, () -> submit("rejected", estimator(100, 1)));
+        assertTrue(order.isEmpty());
+    }
+
+    @Test
+    void submit_FromManyThreads_ShouldRunAllTasks() throws Exception {
+        executor = new SrptExecutorService(4);
+        CountDownLatch done = new CountDownLatch(1000);
+        for (int i = 0; i < 1000; i++) {
+            executor.submit(done::countDown, estimator(1000, 1 + i % 999));
+        }
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void constructor_WithInvalidArguments_ShouldThrowException() {
+        executor = new SrptExecutorService(1);
+        assertThrows(IllegalArgumentException.class, () -> new SrptExecutorService(0));
+        assertThrows(IllegalArgumentException.class,
+                () -> new SrptExecutorService(1, -1, Executors.defaultThreadFactory()));
+    }
+
+    void blockWorker() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        executor.execute(() -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+    }
+
+    Future<?> submit(String name, BaseEstimator<?, ?> estimator) {
+        return executor.submit(() -> order.add(name), estimator);
+    }
+
+    static DefaultEstimator<MockStopwatch> estimator(long total, long completed) {
+        MockStopwatch mockStopwatch = new MockStopwatch();
+        DefaultEstimator<MockStopwatch> estimator = new DefaultEstimator<>(mockStopwatch);
+        estimator.initAndStart(total);
+        mockStopwatch.incrementSecond();
+        estimator.completeWorkUnits(completed);
+        return estimator;
+    }
+}
@@ -0,0 +1,128 @@
+package net.sasu.lib.elapsedtime.estimator;
+
+import net.sasu.lib.time.stopwatch.mock.MockStopwatch;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests TimerWheel
+ */
+class TimerWheelTest {
+
+    MockStopwatch mockStopwatch;
+    TimerWheel timerWheel;
+
+    @BeforeEach
+    void initTest() {
+        this.mockStopwatch = new MockStopwatch();
+        this.timerWheel = new TimerWheel(mockStopwatch.getInstantSource(), Duration.ofMillis(100), 8);
+    }
+
+    @Test
+    void advance_ShouldRunOnlyExpiredTimeouts() {
+        List<String> ran = new ArrayList<>();
+        timerWheel.schedule(mockStopwatch.getInstantSource().instant().plusMillis(200), () -> ran.add("first"));
+        timerWheel.schedule(mockStopwatch.getInstantSource().instant().plusSeconds(2), () -> ran.add("second"));
+
+        mockStopwatch.incrementMilliseconds(100);
+        timerWheel.advance();
+        assertEquals(List.of(), ran);
+
+        mockStopwatch.incrementMilliseconds(100);
+        timerWheel.advance();
+        assertEquals(List.of("first"), ran);
+
+        // the second timeout shares a slot with earlier ticks, but must wait for its own round
+        mockStopwatch.incrementMilliseconds(1000);
+        timerWheel.advance();
+        assertEquals(List.of("first"), ran);
+
+        mockStopwatch.incrementSecond();
+        timerWheel.advance();
+        assertEquals(List.of("first", "second"), ran);
+    }
+
+    @Test
+    void advance_WithThrowingTask_ShouldRunOtherTasks() {
+        List<String> ran = new ArrayList<>();
+        timerWheel.schedule(mockStopwatch.getInstantSource().instant().plusMillis(100), () -> {
+            throw new IllegalStateException("failing task");
+        });
+        timerWheel.schedule(mockStopwatch.getInstantSource().instant().plusMillis(100), () -> ran.add("first"));
+        timerWheel.schedule(mockStopwatch.getInstantSource().instant().plusMillis(200), () -> ran.add("second"));
+
+        mockStopwatch.incrementMilliseconds(100);
+        timerWheel.advance();
+        assertEquals(List.of("first"), ran);
+
+        mockStopwatch.incrementMilliseconds(100);
+        timerWheel.advance();
+        assertEquals(List.of("first", "second"), ran);
+    }
+
+    @Test
+    void advance_WithJumpLongerThanWheel_ShouldRunAllExpiredTimeouts() {
+        List<Integer> ran = new ArrayList<>();
+        for (int i = 1; i <= 20; i++) {
+            int index = i;
+            timerWheel.schedule(mockStopwatch.getInstantSource().instant().plusMillis(i * 100L), () -> ran.add(index));
+        }
+
+        mockStopwatch.incrementMilliseconds(1500);
+        timerWheel.advance();
+        assertEquals(15, ran.size());
+
+        mockStopwatch.incrementMilliseconds(500);
+        timerWheel.advance();
+        assertEquals(20, ran.size());
+    }
+
+    @Test
+    void cancel_ShouldPreventTimeoutFromRunning() {
+        List<String> ran = new ArrayList<>();
+        TimerWheel.Timeout timeout = timerWheel.schedule(
+                mockStopwatch.getInstantSource().instant().plusMillis(100), () -> ran.add("cancelled"));
+        timeout.cancel();
+
+        mockStopwatch.incrementSecond();
+        timerWheel.advance();
+        assertTrue(timeout.isCancelled());
+        assertTrue(ran.isEmpty());
+    }
+
+    @Test
+    void schedule_WithPastDeadline_ShouldRunOnNextTick() {
+        List<String> ran = new ArrayList<>();
+        timerWheel.schedule(mockStopwatch.getInstantSource().instant().minusSeconds(10), () -> ran.add("past"));
+
+        mockStopwatch.incrementMilliseconds(100);
+        timerWheel.advance();
+        assertEquals(List.of("past"), ran);
+    }
+
+    @Test
+    void getCurrentTick_ShouldMoveOnlyWhenAdvanced() {
+        assertEquals(0, timerWheel.getCurrentTick());
+        assertEquals(Duration.ofMillis(100), timerWheel.getTickDuration());
+
+        mockStopwatch.incrementMilliseconds(350);
+        assertEquals(0, timerWheel.getCurrentTick());
+        timerWheel.advance();
+        assertEquals(3, timerWheel.getCurrentTick());
+    }
+
+    @Test
+    void constructor_WithInvalidArguments_ShouldThrowException() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new TimerWheel(mockStopwatch.getInstantSource(), Duration.ZERO, 8));
+        assertThrows(IllegalArgumentException.class,
+                () -> new TimerWheel(mockStopwatch.getInstantSource(), Duration.ofMillis(1), 0));
+        assertThrows(NullPointerException.class, () -> new TimerWheel(null, Duration.ofMillis(1), 8));
+    }
+}
@@ -0,0 +1,49 @@
+package net.sasu.lib.elapsedtime.estimator;
+
+import net.sasu.lib.time.stopwatch.mock.MockStopwatch;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests UnitLatencyRecorder
+ */
+class UnitLatencyRecorderTest {
+
+    MockStopwatch mockStopwatch;
+    DefaultEstimator<MockStopwatch> estimator;
+    UnitLatencyRecorder recorder;
+
+    @BeforeEach
+    void initTest() {
+        this.mockStopwatch = new MockStopwatch();
+        this.estimator = new DefaultEstimator<>(mockStopwatch);
+        this.estimator.initAndStart(100);
+        this.recorder = new UnitLatencyRecorder(estimator);
+    }
+
+    @Test
+    void workUnitsCompleted_ShouldRecordDurationPerUnit() {
+        mockStopwatch.incrementMilliseconds(100);
+        estimator.completeWorkUnits(1);
+        mockStopwatch.incrementMilliseconds(400);
+        estimator.completeWorkUnits(2);
+        estimator.completeWorkUnits(0);
+
+        LatencyHistogram.Snapshot snapshot = recorder.getHistogram().snapshot();
+        assertEquals(3, snapshot.getTotalCount());
+        assertEquals(100_000_000, snapshot.getMin(), 100_000_000 / 128.0);
+        assertEquals(200_000_000, snapshot.getMax(), 200_000_000 / 128.0);
+        assertEquals(200_000_000, snapshot.getValueAtPercentile(50), 200_000_000 / 128.0);
+    }
+
+    @Test
+    void close_ShouldStopRecording() {
+        recorder.close();
+        mockStopwatch.incrementMilliseconds(100);
+        estimator.completeWorkUnits(1);
+
+        assertEquals(0, recorder.getHistogram().snapshot().getTotalCount());
+    }
+}